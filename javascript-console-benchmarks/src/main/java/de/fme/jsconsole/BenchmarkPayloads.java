@@ -0,0 +1,68 @@
+package de.fme.jsconsole;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Realistic payloads shared by the benchmarks, e.g. the print output of a
+ * script listing nodes of a large folder.
+ */
+public final class BenchmarkPayloads {
+
+	/**
+	 * Instantiates a new benchmark payloads.
+	 */
+	private BenchmarkPayloads() {
+		// NO-OP
+	}
+
+	/**
+	 * Creates print output lines as printed for script nodes.
+	 *
+	 * @param lines the number of lines
+	 * @return the print output
+	 */
+	public static List<String> printOutput(final int lines) {
+		final List<String> printOutput = new ArrayList<>(lines);
+		for (int i = 0; i < lines; i++) {
+			printOutput.add(nodeLine(i));
+		}
+		return printOutput;
+	}
+
+	/**
+	 * Creates a single print output line as printed for a script node.
+	 *
+	 * @param index the index
+	 * @return the line
+	 */
+	public static String nodeLine(final int index) {
+		return "document-" + index + ".pdf (workspace://SpacesStore/" + nodeId(index) + ")";
+	}
+
+	/**
+	 * Creates a node id of the form of a UUID.
+	 *
+	 * @param index the index
+	 * @return the node id
+	 */
+	public static String nodeId(final int index) {
+		return String.format("%08x-1f2e-4d3c-9b8a-%012x", Integer.valueOf(index), Long.valueOf(index * 7919L));
+	}
+
+	/**
+	 * Creates a script of roughly the given size.
+	 *
+	 * @param bytes the approximate size in bytes (ASCII characters)
+	 * @return the script
+	 */
+	public static String script(final int bytes) {
+		final String line = "var node = search.findNode(\"workspace://SpacesStore/%s\"); print(node.name + '\\t' + node.size);\n";
+		final StringBuilder script = new StringBuilder(bytes + line.length() + 48);
+		int index = 0;
+		while (script.length() < bytes) {
+			script.append(String.format(line, nodeId(index++)));
+		}
+		return script.toString();
+	}
+}
@@ -0,0 +1,82 @@
+package de.fme.jsconsole;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.extensions.surf.util.Content;
+
+/**
+ * Request content stand-in providing a fresh stream of a UTF-8 JSON body on
+ * each call.
+ */
+public class ByteArrayContent implements Content {
+
+	/** The body. */
+	private final byte[] body;
+
+	/**
+	 * Instantiates a new byte array content.
+	 *
+	 * @param body the UTF-8 encoded body
+	 */
+	public ByteArrayContent(final byte[] body) {
+		this.body = body;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getContent() {
+		return new String(this.body, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getMimetype() {
+		return "application/json";
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getEncoding() {
+		return "UTF-8";
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getSize() {
+		return this.body.length;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public InputStream getInputStream() {
+		return new ByteArrayInputStream(this.body);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Reader getReader() {
+		return new InputStreamReader(this.getInputStream(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,77 @@
+package de.fme.jsconsole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.util.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks collecting print output in a {@link CacheBackedChunkedList}, i.e.
+ * the print output path of executions with a result channel.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheBackedChunkedListBenchmark {
+
+	/** The number of print output lines. */
+	@Param({ "1000", "100000" })
+	private int lines;
+
+	/** The chunk size (the default of the execute web script). */
+	@Param({ "5" })
+	private int chunkSize;
+
+	/** The print output lines. */
+	private List<String> printOutput;
+
+	/**
+	 * Prepares the print output lines.
+	 */
+	@Setup
+	public void setup() {
+		this.printOutput = BenchmarkPayloads.printOutput(this.lines);
+	}
+
+	/**
+	 * Adds all lines to a new chunked list.
+	 *
+	 * @return the chunked list
+	 */
+	@Benchmark
+	public List<String> add() {
+		final MapSimpleCache<Pair<String, Integer>, List<String>> cache = new MapSimpleCache<>();
+		final List<String> list = new CacheBackedChunkedList<>(cache, "channel", this.chunkSize);
+		for (final String line : this.printOutput) {
+			list.add(line);
+		}
+		return list;
+	}
+
+	/**
+	 * Adds all lines to a new chunked list and reads them back.
+	 *
+	 * @param blackhole the blackhole
+	 */
+	@Benchmark
+	public void addAndIterate(final Blackhole blackhole) {
+		for (final String line : this.add()) {
+			blackhole.consume(line);
+		}
+	}
+}
@@ -0,0 +1,572 @@
+package de.fme.jsconsole;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.admin.SysAdminParams;
+import org.alfresco.repo.jscript.ScriptNode;
+import org.alfresco.repo.jscript.ScriptUtils;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.service.cmr.audit.AuditService;
+import org.alfresco.service.cmr.dictionary.DictionaryService;
+import org.alfresco.service.cmr.lock.LockService;
+import org.alfresco.service.cmr.repository.ContentService;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.repository.Path;
+import org.alfresco.service.cmr.rule.RuleService;
+import org.alfresco.service.cmr.security.PermissionService;
+import org.alfresco.service.cmr.tagging.TaggingService;
+import org.alfresco.service.cmr.version.VersionService;
+import org.alfresco.service.cmr.webdav.WebDavService;
+import org.alfresco.service.cmr.workflow.WorkflowService;
+import org.alfresco.service.namespace.NamespaceService;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.Pair;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.springframework.extensions.webscripts.Container;
+import org.springframework.extensions.webscripts.Description;
+import org.springframework.extensions.webscripts.Match;
+import org.springframework.extensions.webscripts.ScriptContent;
+import org.springframework.extensions.webscripts.ScriptProcessor;
+import org.springframework.extensions.webscripts.ScriptProcessorRegistry;
+import org.springframework.extensions.webscripts.TemplateProcessor;
+import org.springframework.extensions.webscripts.TemplateProcessorRegistry;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+import org.springframework.extensions.webscripts.WebScriptResponse;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+
+/**
+ * Offline end-to-end performance harness. Wires {@link ExecuteWebscript},
+ * {@link ExecutionResultGet} and {@link DumpService} against in-memory
+ * stand-ins for the caches and the node, permission and transaction services
+ * with a plain Rhino script processor, drives concurrent executions with result
+ * channels while polling their print output like the Share client does, and
+ * reports throughput and latencies. Configured gates turn the report into a
+ * regression check: the process exits with status 1 if a gate fails.
+ * <p>
+ * Options are passed as {@code key=value} arguments, e.g.
+ * {@code threads=8 executions=500 printLines=10000 maxExecuteP99Millis=50}.
+ * The script is either given via {@code script=...} or {@code scriptFile=...}
+ * and defaults to printing {@code printLines} lines.
+ */
+public class ConsolePerformanceHarness {
+
+	/** The path of the pre-roll script. */
+	private static final String PRE_ROLL_JS = "alfresco/module/javascript-console-platform/jsconsole-js/jsconsole-pre-roll-script.js";
+
+	/** The path of the post-roll script. */
+	private static final String POST_ROLL_JS = "alfresco/module/javascript-console-platform/jsconsole-js/jsconsole-post-roll-script.js";
+
+	/** The path of the helper script of the shared console scope. */
+	static final String HELPERS_JS = "alfresco/module/javascript-console-platform/jsconsole-js/jsconsole-helpers.js";
+
+	/** The user running the executions. */
+	private static final String USER = "admin";
+
+	/** The number of concurrent clients. */
+	private final int threads;
+
+	/** The number of measured executions per client. */
+	private final int executions;
+
+	/** The number of warmup executions per client. */
+	private final int warmup;
+
+	/** The poll interval in milliseconds. */
+	private final long pollIntervalMillis;
+
+	/** The transaction mode. */
+	private final String transaction;
+
+	/** The script. */
+	private final String script;
+
+	/** The template. */
+	private final String template;
+
+	/** The gate for the 99th percentile execution latency in milliseconds (0 to disable). */
+	private final double maxExecuteP99Millis;
+
+	/** The gate for the 99th percentile poll latency in milliseconds (0 to disable). */
+	private final double maxPollP99Millis;
+
+	/** The gate for the execution throughput per second (0 to disable). */
+	private final double minExecuteThroughput;
+
+	/** The gate for the number of failed executions and polls. */
+	private final long maxFailures;
+
+	/** The execution statistics. */
+	private final OperationStatistics executeStatistics = new OperationStatistics();
+
+	/** The poll statistics. */
+	private final OperationStatistics pollStatistics = new OperationStatistics();
+
+	/** The wall clock time of the measured phase in nanoseconds. */
+	private long wallNanos;
+
+	/** The execute web script. */
+	private HarnessExecuteWebscript executeWebscript;
+
+	/** The execution result web script. */
+	private ExecutionResultGet executionResultGet;
+
+	/** The result channel registry. */
+	private ResultChannelRegistry resultChannelRegistry;
+
+	/**
+	 * Instantiates a new console performance harness.
+	 *
+	 * @param options the options
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public ConsolePerformanceHarness(final Map<String, String> options) throws IOException {
+		this.threads = Integer.parseInt(options.getOrDefault("threads", "4"));
+		this.executions = Integer.parseInt(options.getOrDefault("executions", "200"));
+		this.warmup = Integer.parseInt(options.getOrDefault("warmup", "20"));
+		this.pollIntervalMillis = Long.parseLong(options.getOrDefault("pollIntervalMillis", "5"));
+		this.transaction = options.getOrDefault("transaction", ExecutionMetrics.TRANSACTION_READ_WRITE);
+		this.template = options.getOrDefault("template", "");
+		this.maxExecuteP99Millis = Double.parseDouble(options.getOrDefault("maxExecuteP99Millis", "0"));
+		this.maxPollP99Millis = Double.parseDouble(options.getOrDefault("maxPollP99Millis", "0"));
+		this.minExecuteThroughput = Double.parseDouble(options.getOrDefault("minExecuteThroughput", "0"));
+		this.maxFailures = Long.parseLong(options.getOrDefault("maxFailures", "0"));
+
+		final int printLines = Integer.parseInt(options.getOrDefault("printLines", "1000"));
+		if (options.containsKey("scriptFile")) {
+			this.script = new String(Files.readAllBytes(Paths.get(options.get("scriptFile"))), StandardCharsets.UTF_8);
+		} else {
+			this.script = options.getOrDefault("script",
+					"for (var i = 0; i < " + printLines + "; i++) { print('line ' + i + ' of ' + space.name); }");
+		}
+	}
+
+	/**
+	 * Runs the harness with {@code key=value} options and writes the report to
+	 * standard out.
+	 *
+	 * @param args the arguments
+	 * @throws Exception if the harness fails
+	 */
+	public static void main(final String[] args) throws Exception {
+		final Map<String, String> options = new HashMap<>();
+		for (final String arg : args) {
+			final int separator = arg.indexOf('=');
+			if (separator > 0) {
+				options.put(arg.substring(0, separator), arg.substring(separator + 1));
+			}
+		}
+
+		final ConsolePerformanceHarness harness = new ConsolePerformanceHarness(options);
+		harness.run();
+		final List<String> failedGates = harness.writeReport(System.out);
+		System.exit(failedGates.isEmpty() ? 0 : 1);
+	}
+
+	/**
+	 * Runs the warmup and the measured phase.
+	 *
+	 * @throws Exception if the harness fails
+	 */
+	public void run() throws Exception {
+		this.setup();
+		try {
+			this.runPhase("warmup", this.warmup, false);
+
+			final long start = System.nanoTime();
+			this.runPhase("measure", this.executions, true);
+			this.wallNanos = System.nanoTime() - start;
+		} finally {
+			this.resultChannelRegistry.destroy();
+		}
+	}
+
+	/**
+	 * Writes the report and checks the gates.
+	 *
+	 * @param out the stream to write to
+	 * @return the failed gates
+	 */
+	public List<String> writeReport(final PrintStream out) {
+		out.println(String.format("JavaScript Console harness: %d clients x %d executions (%d warmup), %s transaction",
+				this.threads, this.executions, this.warmup, this.transaction));
+		out.println(String.format("%-10s %8s %8s %10s %9s %9s %9s %9s %9s", "operation", "count", "failures",
+				"ops/s", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+		this.executeStatistics.writeReportLine(out, "execute", this.wallNanos);
+		this.pollStatistics.writeReportLine(out, "poll", this.wallNanos);
+
+		final List<String> failedGates = new ArrayList<>();
+		final double executeP99 = PerfSpan.toMillis(this.executeStatistics.latencies.getValueAtPercentile(99));
+		if (this.maxExecuteP99Millis > 0 && executeP99 > this.maxExecuteP99Millis) {
+			failedGates.add("execute p99 " + executeP99 + " ms > " + this.maxExecuteP99Millis + " ms");
+		}
+		final double pollP99 = PerfSpan.toMillis(this.pollStatistics.latencies.getValueAtPercentile(99));
+		if (this.maxPollP99Millis > 0 && pollP99 > this.maxPollP99Millis) {
+			failedGates.add("poll p99 " + pollP99 + " ms > " + this.maxPollP99Millis + " ms");
+		}
+		final double throughput = this.executeStatistics.getThroughput(this.wallNanos);
+		if (this.minExecuteThroughput > 0 && throughput < this.minExecuteThroughput) {
+			failedGates.add("execute throughput " + throughput + " ops/s < " + this.minExecuteThroughput + " ops/s");
+		}
+		final long failures = this.executeStatistics.failures.get() + this.pollStatistics.failures.get();
+		if (failures > this.maxFailures) {
+			failedGates.add(failures + " failures > " + this.maxFailures);
+		}
+
+		for (final String failedGate : failedGates) {
+			out.println("GATE FAILED: " + failedGate);
+		}
+		return failedGates;
+	}
+
+	/**
+	 * Runs a phase of executions by all clients.
+	 *
+	 * @param phase      the phase name
+	 * @param executions the number of executions per client
+	 * @param record     whether to record the statistics
+	 * @throws Exception if the harness fails
+	 */
+	protected void runPhase(final String phase, final int executions, final boolean record) throws Exception {
+		final ExecutorService clients = Executors.newFixedThreadPool(this.threads);
+		final ExecutorService executors = Executors.newFixedThreadPool(this.threads);
+		try {
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int client = 0; client < this.threads; client++) {
+				final String clientPrefix = "harness-" + phase + "-" + client + "-";
+				futures.add(clients.submit(() -> {
+					for (int i = 0; i < executions; i++) {
+						this.runExecution(executors, clientPrefix + i, record);
+					}
+					return null;
+				}));
+			}
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			clients.shutdownNow();
+			executors.shutdownNow();
+		}
+	}
+
+	/**
+	 * Runs a single execution and polls its result channel until the result is
+	 * available, like the Share client does.
+	 *
+	 * @param executors the executor for the execute requests
+	 * @param channel   the result channel
+	 * @param record    whether to record the statistics
+	 * @throws Exception if the harness fails
+	 */
+	protected void runExecution(final ExecutorService executors, final String channel, final boolean record)
+			throws Exception {
+		final byte[] body = this.createRequestBody(channel);
+		final Future<?> execution = executors.submit(() -> AuthenticationUtil.runAs(() -> {
+			final StringWriter responseBody = new StringWriter();
+			final WebScriptRequest request = createRequest(body, Collections.emptyMap());
+			final WebScriptResponse response = createResponse(responseBody);
+
+			final long start = System.nanoTime();
+			this.executeWebscript.execute(request, response);
+			final long nanos = System.nanoTime() - start;
+
+			if (record) {
+				this.executeStatistics.record(nanos, new JSONObject(responseBody.toString()).has("status"));
+			}
+			return null;
+		}, USER));
+
+		boolean completed = false;
+		while (!completed) {
+			Thread.sleep(this.pollIntervalMillis);
+			final boolean executionDone = execution.isDone();
+
+			final StringWriter responseBody = new StringWriter();
+			final WebScriptRequest request = createRequest(null, Collections.singletonMap("resultChannel", channel));
+			final WebScriptResponse response = createResponse(responseBody);
+
+			final long start = System.nanoTime();
+			this.executionResultGet.execute(request, response);
+			final long nanos = System.nanoTime() - start;
+
+			final JSONObject json = new JSONObject(responseBody.toString());
+			completed = json.has("scriptOffset") || json.has("error");
+			if (record) {
+				this.pollStatistics.record(nanos, json.has("error"));
+			}
+			if (!completed && executionDone) {
+				// the execution failed before publishing its result
+				if (record) {
+					this.pollStatistics.failures.incrementAndGet();
+				}
+				break;
+			}
+		}
+		execution.get();
+	}
+
+	/**
+	 * Creates the request body of an execution.
+	 *
+	 * @param channel the result channel
+	 * @return the request body
+	 * @throws JSONException if an error occurs preparing the JSON structure
+	 */
+	protected byte[] createRequestBody(final String channel) throws JSONException {
+		final JSONObject json = new JSONObject();
+		json.put("script", this.script);
+		json.put("template", this.template);
+		json.put("spaceNodeRef", "");
+		json.put("transaction", this.transaction);
+		json.put("runas", "");
+		json.put("urlargs", "");
+		json.put("documentNodeRef", "");
+		json.put("resultChannel", channel);
+		return json.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Wires the web scripts against the in-memory stand-ins.
+	 *
+	 * @throws IOException if the console helper script cannot be read
+	 */
+	protected void setup() throws IOException {
+		final NodeRef companyHomeRef = new NodeRef("workspace://SpacesStore/" + BenchmarkPayloads.nodeId(0));
+		final ScriptNode companyHome = stub(ScriptNode.class);
+		when(companyHome.getNodeRef()).thenReturn(companyHomeRef);
+		when(companyHome.getName()).thenReturn("Company Home");
+
+		final NodeService nodeService = stub(NodeService.class);
+		when(nodeService.getPath(any(NodeRef.class))).thenReturn(new Path());
+		when(nodeService.getProperty(any(NodeRef.class), any(QName.class))).thenReturn("Company Home");
+		when(nodeService.getType(any(NodeRef.class))).thenReturn(ContentModel.TYPE_FOLDER);
+		when(nodeService.exists(any(NodeRef.class))).thenReturn(Boolean.TRUE);
+		final PermissionService permissionService = stub(PermissionService.class);
+
+		final RetryingTransactionHelper transactionHelper = new RetryingTransactionHelper() {
+
+			@Override
+			public <R> R doInTransaction(final RetryingTransactionCallback<R> cb, final boolean readOnly,
+					final boolean requiresNew) {
+				try {
+					return cb.execute();
+				} catch (final RuntimeException | Error e) {
+					throw e;
+				} catch (final Throwable e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+		final TransactionService transactionService = stub(TransactionService.class);
+		when(transactionService.getRetryingTransactionHelper()).thenReturn(transactionHelper);
+
+		final MapSimpleCache<Pair<String, Integer>, List<String>> printOutputCache = new MapSimpleCache<>();
+		final MapSimpleCache<String, JavascriptConsoleResultBase> resultCache = new MapSimpleCache<>();
+
+		this.resultChannelRegistry = new ResultChannelRegistry();
+		this.resultChannelRegistry.setChannelCache(new MapSimpleCache<>());
+		this.resultChannelRegistry.setChannelPollCache(new MapSimpleCache<>());
+		this.resultChannelRegistry.setPrintOutputCache(printOutputCache);
+		this.resultChannelRegistry.setResultCache(resultCache);
+		this.resultChannelRegistry.afterPropertiesSet();
+
+		final JsConsoleExportStore exportStore = new JsConsoleExportStore();
+		exportStore.afterPropertiesSet();
+
+		final DumpService dumpService = new DumpService();
+		dumpService.setNodeService(nodeService);
+		dumpService.setPermissionService(permissionService);
+		dumpService.setNamespaceService(stub(NamespaceService.class));
+		dumpService.setVersionService(stub(VersionService.class));
+		dumpService.setContentService(stub(ContentService.class));
+		dumpService.setDictionaryService(stub(DictionaryService.class));
+		dumpService.setRuleService(stub(RuleService.class));
+		dumpService.setWorkflowService(stub(WorkflowService.class));
+		dumpService.setTagService(stub(TaggingService.class));
+		dumpService.setWebDavService(stub(WebDavService.class));
+		dumpService.setAuditService(stub(AuditService.class));
+		dumpService.setSysAdminParams(stub(SysAdminParams.class));
+		dumpService.setLockService(stub(LockService.class));
+		dumpService.setDumpLimit(-1);
+		dumpService.setExportStore(exportStore);
+		dumpService.setAuditCountCache(new MapSimpleCache<>());
+
+		final RhinoScriptRunner scriptRunner = new RhinoScriptRunner(-1);
+		final ScriptProcessor scriptProcessor = stub(ScriptProcessor.class);
+		when(scriptProcessor.executeScript(any(ScriptContent.class), any()))
+				.thenAnswer(invocation -> scriptRunner.execute(invocation.getArgument(0), invocation.getArgument(1)));
+		when(scriptProcessor.unwrapValue(any())).thenAnswer(invocation -> invocation.getArgument(0));
+		final ScriptProcessorRegistry scriptProcessorRegistry = stub(ScriptProcessorRegistry.class);
+		when(scriptProcessorRegistry.getScriptProcessorByExtension(anyString())).thenReturn(scriptProcessor);
+		when(scriptProcessorRegistry.getScriptProcessor(any(ScriptContent.class))).thenReturn(scriptProcessor);
+
+		final Configuration freemarker = new Configuration(Configuration.VERSION_2_3_23);
+		final TemplateProcessor templateProcessor = stub(TemplateProcessor.class);
+		doAnswer(invocation -> {
+			new Template("template", new StringReader(invocation.getArgument(0)), freemarker)
+					.process(invocation.getArgument(1), invocation.<Writer>getArgument(2));
+			return null;
+		}).when(templateProcessor).processString(anyString(), any(), any(Writer.class));
+		final TemplateProcessorRegistry templateProcessorRegistry = stub(TemplateProcessorRegistry.class);
+		when(templateProcessorRegistry.getTemplateProcessorByExtension(anyString())).thenReturn(templateProcessor);
+
+		final Container container = stub(Container.class);
+		when(container.getScriptProcessorRegistry()).thenReturn(scriptProcessorRegistry);
+		when(container.getTemplateProcessorRegistry()).thenReturn(templateProcessorRegistry);
+		final Description description = stub(Description.class);
+		when(description.getRequiredCache()).thenReturn(stub(Description.RequiredCache.class));
+
+		this.executeWebscript = new HarnessExecuteWebscript(companyHome);
+		this.executeWebscript.setScriptUtils(stub(ScriptUtils.class));
+		this.executeWebscript.setTransactionService(transactionService);
+		this.executeWebscript.setNodeService(nodeService);
+		this.executeWebscript.setPermissionService(permissionService);
+		this.executeWebscript.setDumpService(dumpService);
+		final ConsoleScriptScope consoleScriptScope = new ConsoleScriptScope();
+		consoleScriptScope.setHelpersJs(HELPERS_JS);
+		consoleScriptScope.afterPropertiesSet();
+		this.executeWebscript.setConsoleScriptScope(consoleScriptScope);
+		this.executeWebscript.setPrintOutputCache(printOutputCache);
+		this.executeWebscript.setResultCache(resultCache);
+		this.executeWebscript.setResultChannelRegistry(this.resultChannelRegistry);
+		this.executeWebscript.setExecutionMetrics(new ExecutionMetrics());
+		this.executeWebscript.setJsconsolePreRollJs(PRE_ROLL_JS);
+		this.executeWebscript.setJsconsolePostRollJs(POST_ROLL_JS);
+		this.executeWebscript.afterPropertiesSet();
+		this.executeWebscript.init(container, description);
+
+		this.executionResultGet = new ExecutionResultGet();
+		this.executionResultGet.setPrintOutputCache(printOutputCache);
+		this.executionResultGet.setResultCache(resultCache);
+		this.executionResultGet.setResultChannelRegistry(this.resultChannelRegistry);
+		this.executionResultGet.afterPropertiesSet();
+	}
+
+	/**
+	 * Creates a request stand-in.
+	 *
+	 * @param body         the request body (null for none)
+	 * @param templateVars the URL template variables
+	 * @return the request
+	 */
+	protected static WebScriptRequest createRequest(final byte[] body, final Map<String, String> templateVars) {
+		final Match match = stub(Match.class);
+		when(match.getTemplateVars()).thenReturn(templateVars);
+
+		final WebScriptRequest request = stub(WebScriptRequest.class);
+		when(request.getFormat()).thenReturn("json");
+		when(request.getServiceMatch()).thenReturn(match);
+		if (body != null) {
+			when(request.getContent()).thenReturn(new ByteArrayContent(body));
+		}
+		return request;
+	}
+
+	/**
+	 * Creates a response stand-in writing to a string.
+	 *
+	 * @param body the writer for the response body
+	 * @return the response
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	protected static WebScriptResponse createResponse(final StringWriter body) throws IOException {
+		final WebScriptResponse response = stub(WebScriptResponse.class);
+		when(response.getWriter()).thenReturn(body);
+		return response;
+	}
+
+	/**
+	 * Creates a stub of a service or model class which does not record its
+	 * invocations.
+	 *
+	 * @param <T>   the type
+	 * @param clazz the class
+	 * @return the stub
+	 */
+	protected static <T> T stub(final Class<T> clazz) {
+		return mock(clazz, withSettings().stubOnly());
+	}
+
+	/**
+	 * The latencies and failures of an operation.
+	 */
+	private static class OperationStatistics {
+
+		/** The latencies in nanoseconds. */
+		private final LatencyHistogram latencies = new LatencyHistogram();
+
+		/** The number of failures. */
+		private final AtomicLong failures = new AtomicLong();
+
+		/**
+		 * Records an operation.
+		 *
+		 * @param nanos  the latency in nanoseconds
+		 * @param failed whether the operation failed
+		 */
+		private void record(final long nanos, final boolean failed) {
+			this.latencies.record(nanos);
+			if (failed) {
+				this.failures.incrementAndGet();
+			}
+		}
+
+		/**
+		 * Gets the throughput.
+		 *
+		 * @param wallNanos the wall clock time in nanoseconds
+		 * @return the operations per second
+		 */
+		private double getThroughput(final long wallNanos) {
+			return wallNanos > 0 ? this.latencies.getCount() * 1000000000.0 / wallNanos : 0;
+		}
+
+		/**
+		 * Writes the report line of the operation.
+		 *
+		 * @param out       the stream to write to
+		 * @param name      the operation name
+		 * @param wallNanos the wall clock time in nanoseconds
+		 */
+		private void writeReportLine(final PrintStream out, final String name, final long wallNanos) {
+			final long count = this.latencies.getCount();
+			out.println(String.format("%-10s %8d %8d %10.1f %9.3f %9.3f %9.3f %9.3f %9.3f", name, count,
+					this.failures.get(), this.getThroughput(wallNanos),
+					count > 0 ? PerfSpan.toMillis(this.latencies.getSum() / count) : 0,
+					PerfSpan.toMillis(this.latencies.getValueAtPercentile(50)),
+					PerfSpan.toMillis(this.latencies.getValueAtPercentile(90)),
+					PerfSpan.toMillis(this.latencies.getValueAtPercentile(99)),
+					PerfSpan.toMillis(this.latencies.getMax())));
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package de.fme.jsconsole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.util.Pair;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks a poll of the executionResult web script, i.e. assembling the
+ * print output chunks of a result channel and serializing them to JSON.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutionResultGetBenchmark {
+
+	/** The number of print output lines. */
+	@Param({ "1000", "100000" })
+	private int lines;
+
+	/** The chunk size (the default of the execute web script). */
+	@Param({ "5" })
+	private int chunkSize;
+
+	/** The print output cache. */
+	private MapSimpleCache<Pair<String, Integer>, List<String>> printOutputCache;
+
+	/**
+	 * Fills the print output cache as a running execution would.
+	 */
+	@Setup
+	public void setup() {
+		this.printOutputCache = new MapSimpleCache<>();
+		final List<String> list = new CacheBackedChunkedList<>(this.printOutputCache, "channel", this.chunkSize);
+		list.addAll(BenchmarkPayloads.printOutput(this.lines));
+	}
+
+	/**
+	 * Assembles the print output chunks.
+	 *
+	 * @return the print output
+	 */
+	@Benchmark
+	public List<String> readPrintOutput() {
+		final List<String> printOutput = new ArrayList<>();
+		ExecutionResultGet.readPrintOutput(this.printOutputCache, "channel", printOutput);
+		return printOutput;
+	}
+
+	/**
+	 * Assembles the print output chunks and serializes the poll response.
+	 *
+	 * @return the JSON response
+	 * @throws JSONException if an error occurs preparing the JSON structure
+	 */
+	@Benchmark
+	public String poll() throws JSONException {
+		final JSONObject jsonOutput = new JSONObject();
+		jsonOutput.put("printOutput", this.readPrintOutput());
+		return jsonOutput.toString();
+	}
+}
@@ -0,0 +1,59 @@
+package de.fme.jsconsole;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.alfresco.repo.jscript.ScriptNode;
+import org.springframework.extensions.webscripts.ScriptDetails;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+import org.springframework.extensions.webscripts.WebScriptResponse;
+
+/**
+ * {@link ExecuteWebscript} with a lean script and template model, so it can run
+ * without the web script runtime, URL model and repository root objects of a
+ * repository.
+ */
+public class HarnessExecuteWebscript extends ExecuteWebscript {
+
+	/** The company home stand-in. */
+	private final ScriptNode companyHome;
+
+	/**
+	 * Instantiates a new harness execute webscript.
+	 *
+	 * @param companyHome the company home stand-in
+	 */
+	public HarnessExecuteWebscript(final ScriptNode companyHome) {
+		this.companyHome = companyHome;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Map<String, Object> createScriptParameters(final WebScriptRequest req, final WebScriptResponse res,
+			final ScriptDetails script, final Map<String, Object> customParams) {
+		final Map<String, Object> params = new HashMap<>(16, 1.0f);
+		params.put("args", new HashMap<String, String>());
+		params.put("companyhome", this.companyHome);
+		if (customParams != null) {
+			params.putAll(customParams);
+		}
+		return params;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Map<String, Object> createTemplateParameters(final WebScriptRequest req, final WebScriptResponse res,
+			final Map<String, Object> customParams) {
+		final Map<String, Object> params = new HashMap<>(16, 1.0f);
+		if (customParams != null) {
+			params.putAll(customParams);
+		}
+		return params;
+	}
+}
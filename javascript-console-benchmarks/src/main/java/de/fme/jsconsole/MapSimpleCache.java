@@ -0,0 +1,73 @@
+package de.fme.jsconsole;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.alfresco.repo.cache.SimpleCache;
+
+/**
+ * In-memory stand-in for the (possibly clustered) caches of the JavaScript
+ * Console, so benchmarks measure the code under test instead of cache
+ * serialization or network round trips.
+ */
+public class MapSimpleCache<K extends Serializable, V> implements SimpleCache<K, V> {
+
+	/** The map. */
+	private final ConcurrentMap<K, V> map = new ConcurrentHashMap<>();
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final K key) {
+		return this.map.containsKey(key);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Collection<K> getKeys() {
+		return this.map.keySet();
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V get(final K key) {
+		return this.map.get(key);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void put(final K key, final V value) {
+		this.map.put(key, value);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void remove(final K key) {
+		this.map.remove(key);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		this.map.clear();
+	}
+}
@@ -0,0 +1,117 @@
+package de.fme.jsconsole;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link JavascriptConsoleScriptObject#print(Object)} including
+ * the value formatting for typical values printed by scripts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrintBenchmark {
+
+	/** The number of lines printed per batch, before the output is reset. */
+	private static final int BATCH = 10000;
+
+	/** The print output. */
+	private final List<String> printOutput = new ArrayList<>(BATCH);
+
+	/** The jsconsole script object. */
+	private JavascriptConsoleScriptObject jsconsole;
+
+	/** A string value. */
+	private String string;
+
+	/** A node ref value. */
+	private NodeRef nodeRef;
+
+	/** A map value. */
+	private Map<String, Object> map;
+
+	/** A list value. */
+	private List<Object> list;
+
+	/**
+	 * Prepares the values.
+	 */
+	@Setup
+	public void setup() {
+		this.jsconsole = new JavascriptConsoleScriptObject(this.printOutput);
+		this.string = BenchmarkPayloads.nodeLine(42);
+		this.nodeRef = new NodeRef("workspace://SpacesStore/" + BenchmarkPayloads.nodeId(42));
+		this.map = new LinkedHashMap<>();
+		for (int i = 0; i < 10; i++) {
+			this.map.put("cm:property" + i, BenchmarkPayloads.nodeLine(i));
+		}
+		this.list = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			this.list.add(BenchmarkPayloads.nodeLine(i));
+		}
+	}
+
+	/**
+	 * Clears the print output once a batch is full, so the benchmark does not
+	 * measure list growth.
+	 */
+	private void resetIfFull() {
+		if (this.printOutput.size() >= BATCH) {
+			this.printOutput.clear();
+		}
+	}
+
+	/**
+	 * Prints a string.
+	 */
+	@Benchmark
+	public void printString() {
+		this.resetIfFull();
+		this.jsconsole.print(this.string);
+	}
+
+	/**
+	 * Prints a node ref.
+	 */
+	@Benchmark
+	public void printNodeRef() {
+		this.resetIfFull();
+		this.jsconsole.print(this.nodeRef);
+	}
+
+	/**
+	 * Prints a map of ten properties.
+	 */
+	@Benchmark
+	public void printMap() {
+		this.resetIfFull();
+		this.jsconsole.print(this.map);
+	}
+
+	/**
+	 * Prints a list of ten values.
+	 */
+	@Benchmark
+	public void printList() {
+		this.resetIfFull();
+		this.jsconsole.print(this.list);
+	}
+}
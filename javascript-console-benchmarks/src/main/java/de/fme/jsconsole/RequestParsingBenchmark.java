@@ -0,0 +1,103 @@
+package de.fme.jsconsole;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+
+/**
+ * Benchmarks {@link JavascriptConsoleRequest#readJson(WebScriptRequest)} for
+ * request bodies with small and large scripts, sent as text or referenced by
+ * their hash in the {@link ScriptStore}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestParsingBenchmark {
+
+	/** The approximate script size in bytes. */
+	@Param({ "1024", "5242880" })
+	private int scriptBytes;
+
+	/** The request body. */
+	private byte[] body;
+
+	/** The request stand-in. */
+	private WebScriptRequest request;
+
+	/** The request stand-in referencing the script and template by hash. */
+	private WebScriptRequest hashRequest;
+
+	/** The script store. */
+	private ScriptStore scriptStore;
+
+	/**
+	 * Prepares the request body and the request stand-in.
+	 *
+	 * @throws JSONException if an error occurs preparing the JSON structure
+	 */
+	@Setup
+	public void setup() throws JSONException {
+		final JSONObject json = new JSONObject();
+		json.put("script", BenchmarkPayloads.script(this.scriptBytes));
+		json.put("template", "<#list nodes as node>${node.name}</#list>");
+		json.put("spaceNodeRef", "workspace://SpacesStore/" + BenchmarkPayloads.nodeId(1));
+		json.put("transaction", "readwrite");
+		json.put("runas", "admin");
+		json.put("urlargs", "a=1&b=2");
+		json.put("documentNodeRef", "");
+		json.put("resultChannel", "channel");
+		this.body = json.toString().getBytes(StandardCharsets.UTF_8);
+
+		// stub only, as recording the invocations would leak memory over millions of calls
+		this.request = mock(WebScriptRequest.class, withSettings().stubOnly());
+		when(this.request.getContent()).thenReturn(new ByteArrayContent(this.body));
+
+		this.scriptStore = new ScriptStore(10, Integer.MAX_VALUE);
+		json.put("scriptHash", this.scriptStore.put((String) json.remove("script")));
+		json.put("templateHash", this.scriptStore.put((String) json.remove("template")));
+		this.hashRequest = mock(WebScriptRequest.class, withSettings().stubOnly());
+		when(this.hashRequest.getContent())
+				.thenReturn(new ByteArrayContent(json.toString().getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Parses the request body.
+	 *
+	 * @return the parsed request
+	 */
+	@Benchmark
+	public JavascriptConsoleRequest readJson() {
+		return JavascriptConsoleRequest.readJson(this.request);
+	}
+
+	/**
+	 * Parses a request body referencing the script and template by hash.
+	 *
+	 * @return the parsed request
+	 */
+	@Benchmark
+	public JavascriptConsoleRequest readJsonByHash() {
+		return JavascriptConsoleRequest.readJson(this.hashRequest, 0, 0, this.scriptStore);
+	}
+}
@@ -0,0 +1,70 @@
+package de.fme.jsconsole;
+
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link JavascriptConsoleResult#generateJsonOutput()} and the
+ * serialization of the resulting JSON structure for large print outputs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultSerializationBenchmark {
+
+	/** The number of print output lines. */
+	@Param({ "1000", "100000" })
+	private int lines;
+
+	/** The result. */
+	private JavascriptConsoleResult result;
+
+	/**
+	 * Prepares the result.
+	 */
+	@Setup
+	public void setup() {
+		this.result = new JavascriptConsoleResult();
+		this.result.setPrintOutput(BenchmarkPayloads.printOutput(this.lines));
+		this.result.setRenderedTemplate(String.join("\n", BenchmarkPayloads.printOutput(this.lines / 10)));
+		this.result.setSpaceNodeRef("workspace://SpacesStore/" + BenchmarkPayloads.nodeId(1));
+		this.result.setSpacePath("/Company Home/Sites/benchmark/documentLibrary");
+	}
+
+	/**
+	 * Generates the JSON structure of the result.
+	 *
+	 * @return the JSON structure
+	 * @throws JSONException if an error occurs preparing the JSON structure
+	 */
+	@Benchmark
+	public Object generateJsonOutput() throws JSONException {
+		return this.result.generateJsonOutput();
+	}
+
+	/**
+	 * Generates and serializes the JSON structure of the result.
+	 *
+	 * @return the JSON response
+	 * @throws JSONException if an error occurs preparing the JSON structure
+	 */
+	@Benchmark
+	public String writeJson() throws JSONException {
+		return this.result.generateJsonOutput().toString();
+	}
+}
@@ -0,0 +1,122 @@
+package de.fme.jsconsole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.alfresco.error.AlfrescoRuntimeException;
+import org.apache.commons.io.IOUtils;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.springframework.extensions.webscripts.ScriptContent;
+
+/**
+ * Minimal stand-in for the repository Rhino script processor: resolves
+ * classpath imports, compiles scripts (caching cachable ones by path, as the
+ * repository processor does) and executes them in a fresh scope holding the
+ * model. Repository root objects other than those in the model are not
+ * available.
+ */
+public class RhinoScriptRunner {
+
+	/** The pattern of classpath imports. */
+	private static final Pattern CLASSPATH_IMPORT = Pattern
+			.compile("<import\\s+resource\\s*=\\s*\"classpath:([^\"]+)\"\\s*/?>");
+
+	/** The compiled cachable scripts by path. */
+	private final ConcurrentMap<String, Script> compiledScripts = new ConcurrentHashMap<>();
+
+	/** The Rhino optimization level (-1 for interpreted mode). */
+	private final int optimizationLevel;
+
+	/**
+	 * Instantiates a new rhino script runner.
+	 *
+	 * @param optimizationLevel the Rhino optimization level (-1 for interpreted
+	 *                          mode)
+	 */
+	public RhinoScriptRunner(final int optimizationLevel) {
+		this.optimizationLevel = optimizationLevel;
+	}
+
+	/**
+	 * Executes a script.
+	 *
+	 * @param scriptContent the script content
+	 * @param model         the model
+	 * @return the result of the script
+	 */
+	public Object execute(final ScriptContent scriptContent, final Map<String, Object> model) {
+		final Context cx = Context.enter();
+		try {
+			cx.setOptimizationLevel(this.optimizationLevel);
+			cx.setLanguageVersion(Context.VERSION_1_8);
+
+			final Script script;
+			if (scriptContent.isCachable()) {
+				script = this.compiledScripts.computeIfAbsent(scriptContent.getPath(),
+						path -> this.compile(cx, scriptContent));
+			} else {
+				script = this.compile(cx, scriptContent);
+			}
+
+			final Scriptable scope = cx.initStandardObjects();
+			for (final Map.Entry<String, Object> entry : model.entrySet()) {
+				ScriptableObject.putProperty(scope, entry.getKey(), Context.javaToJS(entry.getValue(), scope));
+			}
+			return script.exec(cx, scope);
+		} finally {
+			Context.exit();
+		}
+	}
+
+	/**
+	 * Compiles a script after resolving its classpath imports.
+	 *
+	 * @param cx            the Rhino context
+	 * @param scriptContent the script content
+	 * @return the compiled script
+	 */
+	protected Script compile(final Context cx, final ScriptContent scriptContent) {
+		try (Reader reader = scriptContent.getReader()) {
+			final StringWriter source = new StringWriter();
+			IOUtils.copy(reader, source);
+			return cx.compileString(resolveImports(source.toString()), scriptContent.getPath(), 1, null);
+		} catch (final IOException ioe) {
+			throw new AlfrescoRuntimeException("Failed to read script " + scriptContent.getPath(), ioe);
+		}
+	}
+
+	/**
+	 * Replaces classpath imports with the content of the imported scripts.
+	 *
+	 * @param source the script source
+	 * @return the resolved script source
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	protected static String resolveImports(final String source) throws IOException {
+		final Matcher matcher = CLASSPATH_IMPORT.matcher(source);
+		final StringBuffer resolved = new StringBuffer(source.length());
+		while (matcher.find()) {
+			try (InputStream imported = RhinoScriptRunner.class.getClassLoader()
+					.getResourceAsStream(matcher.group(1))) {
+				if (imported == null) {
+					throw new IllegalStateException("Unable to find classpath script resource " + matcher.group(1));
+				}
+				matcher.appendReplacement(resolved, Matcher.quoteReplacement(
+						resolveImports(IOUtils.toString(imported, StandardCharsets.UTF_8))));
+			}
+		}
+		matcher.appendTail(resolved);
+		return resolved.toString();
+	}
+}
@@ -0,0 +1,133 @@
+package de.fme.jsconsole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.repo.jscript.RhinoScriptProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the per-execution setup of the console helpers for a trivial
+ * script on the repository script processor: importing the former pre- and
+ * post-roll helpers into every execution versus importing the pre-roll which
+ * binds the helpers of the shared {@link ConsoleScriptScope}. Each execution
+ * runs through {@link RhinoScriptProcessor#executeString(String, Map)}, i.e.
+ * with the classpath import resolution, the compilation, the fresh scope on
+ * top of the shared sealed scopes and the model wrapping of the processor -
+ * only the processor extensions of a full repository are missing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScopeSetupBenchmark {
+
+	/** The path of the former helpers, i.e. the former pre-roll followed by the former post-roll. */
+	private static final String LEGACY_HELPERS_JS = "de/fme/jsconsole/legacy-console-helpers.js";
+
+	/** The path of the pre-roll script. */
+	private static final String PRE_ROLL_JS = "alfresco/module/javascript-console-platform/jsconsole-js/jsconsole-pre-roll-script.js";
+
+	/** The user script. */
+	private static final String SCRIPT = "\nprint('hello');\n";
+
+	/** Whether the script processor compiles scripts (false for interpreted mode). */
+	@Param({ "false", "true" })
+	private boolean compile;
+
+	/** The print output. */
+	private final List<String> printOutput = new ArrayList<>();
+
+	/** The repository script processor. */
+	private RhinoScriptProcessor scriptProcessor;
+
+	/** The console scope with the shared helpers. */
+	private ConsoleScriptScope consoleScriptScope;
+
+	/** The script with the former helpers. */
+	private String legacyScript;
+
+	/** The script with the shared helpers. */
+	private String sharedScript;
+
+	/**
+	 * Prepares the script processor, the shared scope and the scripts.
+	 *
+	 * @throws Exception if the script processor or the shared scope cannot be
+	 *                   initialised
+	 */
+	@Setup
+	public void setup() throws Exception {
+		this.scriptProcessor = new RhinoScriptProcessor();
+		this.scriptProcessor.setCompile(this.compile);
+		this.scriptProcessor.setShareSealedScopes(true);
+		this.scriptProcessor.afterPropertiesSet();
+
+		// like in the repository, the helpers are compiled after the processor has been initialised
+		this.consoleScriptScope = new ConsoleScriptScope();
+		this.consoleScriptScope.setHelpersJs(ConsolePerformanceHarness.HELPERS_JS);
+		this.consoleScriptScope.afterPropertiesSet();
+
+		// the web script imports the pre-roll the same way
+		this.legacyScript = "<import resource=\"classpath:" + LEGACY_HELPERS_JS + "\">" + SCRIPT;
+		this.sharedScript = "<import resource=\"classpath:" + PRE_ROLL_JS + "\">" + SCRIPT;
+	}
+
+	/**
+	 * Executes a script importing the former helpers.
+	 *
+	 * @return the print output
+	 */
+	@Benchmark
+	public Object legacyHelpers() {
+		return this.execute(this.legacyScript, false);
+	}
+
+	/**
+	 * Executes a script binding the helpers of the shared scope.
+	 *
+	 * @return the print output
+	 */
+	@Benchmark
+	public Object sharedHelpers() {
+		return this.execute(this.sharedScript, true);
+	}
+
+	/**
+	 * Executes a script on the repository script processor.
+	 *
+	 * @param script        the script
+	 * @param sharedHelpers whether to add the helpers of the shared scope to the
+	 *                      model
+	 * @return the print output
+	 */
+	private Object execute(final String script, final boolean sharedHelpers) {
+		this.printOutput.clear();
+
+		final Map<String, Object> model = new HashMap<>();
+		model.put("jsconsole", new JavascriptConsoleScriptObject(this.printOutput));
+		model.put("dumpService", new DumpService());
+		model.put("space", null);
+		if (sharedHelpers) {
+			this.consoleScriptScope.addHelpers(model);
+		}
+
+		this.scriptProcessor.executeString(script, model);
+		return this.printOutput;
+	}
+}
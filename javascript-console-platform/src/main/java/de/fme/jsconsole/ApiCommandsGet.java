@@ -0,0 +1,208 @@
+package de.fme.jsconsole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.alfresco.repo.content.MimetypeMap;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.MD5;
+import org.alfresco.util.PropertyCheck;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.extensions.webscripts.AbstractWebScript;
+import org.springframework.extensions.webscripts.Cache;
+import org.springframework.extensions.webscripts.ScriptProcessor;
+import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptException;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+import org.springframework.extensions.webscripts.WebScriptResponse;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Web script to list the global objects of the script scope and their methods
+ * for the code completion of the console. Enumerating the scope is expensive
+ * and its result only changes when the deployed modules change, which requires
+ * a restart. So the introspection script runs once on first request and its
+ * result is served from memory with an ETag and Last-Modified, answering
+ * revalidations of an unchanged result with 304.
+ */
+public class ApiCommandsGet extends AbstractWebScript implements InitializingBean {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(ApiCommandsGet.class);
+
+	/** The HTTP date format. */
+	static final DateTimeFormatter HTTP_DATE = DateTimeFormatter
+			.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.ENGLISH);
+
+	/** The transaction service. */
+	private TransactionService transactionService;
+
+	/** The classpath location of the introspection script. */
+	private String introspectionScript;
+
+	/** The response compression (null to not compress responses). */
+	private ResponseCompression responseCompression;
+
+	/** The cached introspection result (null until the first request). */
+	private volatile ApiCommands apiCommands;
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		PropertyCheck.mandatory(this, "transactionService", this.transactionService);
+		PropertyCheck.mandatory(this, "introspectionScript", this.introspectionScript);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void execute(final WebScriptRequest request, final WebScriptResponse response) throws IOException {
+		final ApiCommands commands = this.getApiCommands(request, response);
+		final String etag = "\"" + commands.etag + "\"";
+
+		response.setHeader("ETag", etag);
+		response.setHeader("Last-Modified", commands.lastModified);
+		response.setHeader("Cache-Control", "no-cache");
+		final String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null ? ListScriptsGet.matches(ifNoneMatch, etag)
+				: commands.lastModified.equals(request.getHeader("If-Modified-Since"))) {
+			response.setStatus(Status.STATUS_NOT_MODIFIED);
+			return;
+		}
+
+		response.setContentEncoding("UTF-8");
+		response.setContentType(MimetypeMap.MIMETYPE_JSON);
+		ResponseCompression.write(this.responseCompression, request, response, commands.json);
+	}
+
+	/**
+	 * Gets the introspection result, running the introspection script on first
+	 * use.
+	 *
+	 * @param request  the request
+	 * @param response the response
+	 * @return the API commands
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private ApiCommands getApiCommands(final WebScriptRequest request, final WebScriptResponse response)
+			throws IOException {
+		ApiCommands commands = this.apiCommands;
+		if (commands == null) {
+			synchronized (this) {
+				commands = this.apiCommands;
+				if (commands == null) {
+					final String json = this.transactionService.getRetryingTransactionHelper()
+							.doInTransaction(() -> this.introspect(request, response), true);
+					commands = new ApiCommands(json);
+					this.apiCommands = commands;
+					LOGGER.debug("Cached API commands with ETag {}", commands.etag);
+				}
+			}
+		}
+		return commands;
+	}
+
+	/**
+	 * Runs the introspection script in a web script scope.
+	 *
+	 * @param request  the request
+	 * @param response the response
+	 * @return the JSON of the global objects and their methods
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private String introspect(final WebScriptRequest request, final WebScriptResponse response) throws IOException {
+		final String script;
+		try (InputStream resource = ApiCommandsGet.class.getClassLoader()
+				.getResourceAsStream(this.introspectionScript)) {
+			if (resource == null) {
+				throw new IllegalStateException("Unable to find classpath script resource " + this.introspectionScript);
+			}
+			script = StreamUtils.copyToString(resource, StandardCharsets.UTF_8);
+		}
+
+		final Map<String, Object> model = new HashMap<>(8, 1.0f);
+		model.put("status", new Status());
+		model.put("cache", new Cache(this.getDescription().getRequiredCache()));
+		final Map<String, Object> scriptModel = this.createScriptParameters(request, response, null, model);
+		final Map<String, Object> returnModel = new HashMap<>(8, 1.0f);
+		scriptModel.put("model", returnModel);
+
+		final ScriptProcessor scriptProcessor = this.getContainer().getScriptProcessorRegistry()
+				.getScriptProcessorByExtension("js");
+		scriptProcessor.executeScript(new StringScriptContent(script), scriptModel);
+
+		final Object json = returnModel.get("json");
+		if (json == null) {
+			throw new WebScriptException(Status.STATUS_INTERNAL_SERVER_ERROR,
+					"Introspection script did not provide a result");
+		}
+		return json.toString();
+	}
+
+	/**
+	 * Sets the transaction service.
+	 *
+	 * @param transactionService the transactionService to set
+	 */
+	public final void setTransactionService(final TransactionService transactionService) {
+		this.transactionService = transactionService;
+	}
+
+	/**
+	 * Sets the classpath location of the introspection script.
+	 *
+	 * @param introspectionScript the introspectionScript to set
+	 */
+	public final void setIntrospectionScript(final String introspectionScript) {
+		this.introspectionScript = introspectionScript;
+	}
+
+	/**
+	 * Sets the response compression.
+	 *
+	 * @param responseCompression the responseCompression to set
+	 */
+	public final void setResponseCompression(final ResponseCompression responseCompression) {
+		this.responseCompression = responseCompression;
+	}
+
+	/**
+	 * The introspection result together with its validators.
+	 */
+	private static final class ApiCommands {
+
+		/** The JSON. */
+		private final String json;
+
+		/** The ETag (the hash of the JSON). */
+		private final String etag;
+
+		/** The Last-Modified date, i.e. the time of the introspection. */
+		private final String lastModified;
+
+		/**
+		 * Instantiates new API commands.
+		 *
+		 * @param json the JSON
+		 */
+		private ApiCommands(final String json) {
+			this.json = json;
+			this.etag = MD5.Digest(json.getBytes(StandardCharsets.UTF_8));
+			this.lastModified = HTTP_DATE.format(ZonedDateTime.now(ZoneOffset.UTC));
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package de.fme.jsconsole;
+
+import java.util.Arrays;
+
+/**
+ * The result of a server-side benchmark run via
+ * {@link JavascriptConsoleScriptObject#benchmark(org.mozilla.javascript.Function, Object)}.
+ * All latencies are reported in milliseconds.
+ */
+public class BenchmarkResult {
+
+	/** The number of warmup iterations per thread. */
+	private final int warmup;
+
+	/** The number of measured iterations per thread. */
+	private final int iterations;
+
+	/** The number of threads. */
+	private final int threads;
+
+	/** The sorted latencies of all measured iterations in nanoseconds. */
+	private final long[] latencies;
+
+	/** The wall clock time of the measured iterations in nanoseconds. */
+	private final long wallNanos;
+
+	/** The bytes allocated by the measured iterations (-1 if unknown). */
+	private final long allocatedBytes;
+
+	/**
+	 * Instantiates a new benchmark result.
+	 *
+	 * @param warmup         the number of warmup iterations per thread
+	 * @param iterations     the number of measured iterations per thread
+	 * @param threads        the number of threads
+	 * @param latencies      the latencies of all measured iterations in
+	 *                       nanoseconds
+	 * @param wallNanos      the wall clock time of the measured iterations in
+	 *                       nanoseconds
+	 * @param allocatedBytes the bytes allocated by the measured iterations (-1 if
+	 *                       unknown)
+	 */
+	public BenchmarkResult(final int warmup, final int iterations, final int threads, final long[] latencies,
+			final long wallNanos, final long allocatedBytes) {
+		this.warmup = warmup;
+		this.iterations = iterations;
+		this.threads = threads;
+		this.latencies = latencies.clone();
+		Arrays.sort(this.latencies);
+		this.wallNanos = wallNanos;
+		this.allocatedBytes = allocatedBytes;
+	}
+
+	/**
+	 * Gets the number of warmup iterations per thread.
+	 *
+	 * @return the warmup
+	 */
+	public int getWarmup() {
+		return this.warmup;
+	}
+
+	/**
+	 * Gets the number of measured iterations per thread.
+	 *
+	 * @return the iterations
+	 */
+	public int getIterations() {
+		return this.iterations;
+	}
+
+	/**
+	 * Gets the number of threads.
+	 *
+	 * @return the threads
+	 */
+	public int getThreads() {
+		return this.threads;
+	}
+
+	/**
+	 * Gets the min latency.
+	 *
+	 * @return the min
+	 */
+	public double getMin() {
+		return this.latencies.length > 0 ? PerfSpan.toMillis(this.latencies[0]) : 0;
+	}
+
+	/**
+	 * Gets the mean latency.
+	 *
+	 * @return the mean
+	 */
+	public double getMean() {
+		long sum = 0;
+		for (final long latency : this.latencies) {
+			sum += latency;
+		}
+		return this.latencies.length > 0 ? PerfSpan.toMillis(sum / this.latencies.length) : 0;
+	}
+
+	/**
+	 * Gets the median latency.
+	 *
+	 * @return the p50
+	 */
+	public double getP50() {
+		return this.getPercentile(50);
+	}
+
+	/**
+	 * Gets the 90th percentile latency.
+	 *
+	 * @return the p90
+	 */
+	public double getP90() {
+		return this.getPercentile(90);
+	}
+
+	/**
+	 * Gets the 99th percentile latency.
+	 *
+	 * @return the p99
+	 */
+	public double getP99() {
+		return this.getPercentile(99);
+	}
+
+	/**
+	 * Gets the max latency.
+	 *
+	 * @return the max
+	 */
+	public double getMax() {
+		return this.latencies.length > 0 ? PerfSpan.toMillis(this.latencies[this.latencies.length - 1]) : 0;
+	}
+
+	/**
+	 * Gets a percentile of the latencies (nearest rank).
+	 *
+	 * @param percentile the percentile (0 - 100)
+	 * @return the latency
+	 */
+	public double getPercentile(final double percentile) {
+		if (this.latencies.length == 0) {
+			return 0;
+		}
+		final int rank = (int) Math.ceil(percentile / 100.0 * this.latencies.length);
+		return PerfSpan.toMillis(this.latencies[Math.min(this.latencies.length, Math.max(1, rank)) - 1]);
+	}
+
+	/**
+	 * Gets the throughput of all threads.
+	 *
+	 * @return the iterations per second
+	 */
+	public double getThroughput() {
+		return this.wallNanos > 0 ? this.latencies.length * 1000000000.0 / this.wallNanos : 0;
+	}
+
+	/**
+	 * Gets the bytes allocated by all measured iterations.
+	 *
+	 * @return the allocated bytes (-1 if unknown)
+	 */
+	public long getAllocatedBytes() {
+		return this.allocatedBytes;
+	}
+
+	/**
+	 * Gets the average bytes allocated per measured iteration.
+	 *
+	 * @return the allocated bytes per iteration (-1 if unknown)
+	 */
+	public long getAllocatedBytesPerIteration() {
+		return this.allocatedBytes >= 0 && this.latencies.length > 0 ? this.allocatedBytes / this.latencies.length
+				: -1;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return String.format(
+				"Benchmark: %d x %d iterations (%d warmup) - min %.3f ms, mean %.3f ms, p50 %.3f ms, p90 %.3f ms, "
+						+ "p99 %.3f ms, max %.3f ms, %.1f ops/s, %d bytes allocated/op",
+				this.threads, this.iterations, this.warmup, this.getMin(), this.getMean(), this.getP50(),
+				this.getP90(), this.getP99(), this.getMax(), this.getThroughput(), this.getAllocatedBytesPerIteration());
+	}
+}
@@ -0,0 +1,348 @@
+package de.fme.jsconsole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.transaction.UserTransaction;
+
+import org.alfresco.error.AlfrescoRuntimeException;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport.TxnReadState;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.PropertyCheck;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Runs a JavaScript function repeatedly in-process to benchmark it, without the
+ * HTTP, Share proxy and polling overhead of running a whole script repeatedly
+ * from the client. Single-threaded benchmarks run on the thread of the calling
+ * script (i.e. within its transaction). Multi-threaded benchmarks run on
+ * dedicated worker threads as the user of the calling script, each worker in
+ * its own transaction of the same kind as the transaction of the calling
+ * script (if any) and with the allocation budget of the calling script (if
+ * any). Note that the function and its scope are shared by all workers, so the
+ * function should not modify shared script state - print output is collected
+ * thread-safely, but the lines of different workers interleave.
+ */
+public class BenchmarkRunner implements InitializingBean {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(BenchmarkRunner.class);
+
+	/** The transaction service. */
+	private TransactionService transactionService;
+
+	/** The max number of threads of a benchmark. */
+	private int maxThreads = 8;
+
+	/** The max number of (warmup and measured) iterations of all threads of a benchmark. */
+	private int maxIterations = 100000;
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		PropertyCheck.mandatory(this, "transactionService", this.transactionService);
+	}
+
+	/**
+	 * Runs a benchmark. The function is called with the iteration index and the
+	 * thread index as arguments.
+	 *
+	 * @param function   the function to benchmark
+	 * @param warmup     the number of warmup iterations per thread
+	 * @param iterations the number of measured iterations per thread
+	 * @param threads    the number of threads
+	 * @return the benchmark result
+	 */
+	public BenchmarkResult run(final Function function, final int warmup, final int iterations, final int threads) {
+		if (iterations < 1 || warmup < 0 || threads < 1) {
+			throw new IllegalArgumentException("Benchmark requires iterations >= 1, warmup >= 0 and threads >= 1");
+		}
+		if (threads > this.maxThreads) {
+			throw new IllegalArgumentException("Benchmark threads are limited to " + this.maxThreads);
+		}
+		if (((long) warmup + iterations) * threads > this.maxIterations) {
+			throw new IllegalArgumentException("Benchmark iterations of all threads are limited to "
+					+ this.maxIterations);
+		}
+
+		final BenchmarkResult result;
+		if (threads == 1) {
+			result = this.runOnCurrentThread(function, warmup, iterations);
+		} else {
+			result = this.runOnWorkers(function, warmup, iterations, threads);
+		}
+		LOGGER.debug("{}", result);
+		return result;
+	}
+
+	/**
+	 * Runs a single-threaded benchmark on the current thread.
+	 *
+	 * @param function   the function to benchmark
+	 * @param warmup     the number of warmup iterations
+	 * @param iterations the number of measured iterations
+	 * @return the benchmark result
+	 */
+	protected BenchmarkResult runOnCurrentThread(final Function function, final int warmup, final int iterations) {
+		final Context cx = Context.getCurrentContext();
+		final Scriptable scope = ScriptableObject.getTopLevelScope(function);
+
+		runIterations(cx, scope, function, warmup, 0, null);
+
+		final long[] latencies = new long[iterations];
+		final long startAllocated = ThreadResourceUsage.getCurrentThreadAllocatedBytes();
+		final long start = System.nanoTime();
+		runIterations(cx, scope, function, iterations, 0, latencies);
+		final long wallNanos = System.nanoTime() - start;
+
+		return new BenchmarkResult(warmup, iterations, 1, latencies, wallNanos,
+				allocatedSince(startAllocated));
+	}
+
+	/**
+	 * Runs a multi-threaded benchmark on worker threads. All workers complete
+	 * their warmup before the measurement starts.
+	 *
+	 * @param function   the function to benchmark
+	 * @param warmup     the number of warmup iterations per thread
+	 * @param iterations the number of measured iterations per thread
+	 * @param threads    the number of threads
+	 * @return the benchmark result
+	 */
+	protected BenchmarkResult runOnWorkers(final Function function, final int warmup, final int iterations,
+			final int threads) {
+		final ContextFactory contextFactory = Context.getCurrentContext().getFactory();
+		final Scriptable scope = ScriptableObject.getTopLevelScope(function);
+		final String user = AuthenticationUtil.getRunAsUser();
+		final TxnReadState readState = AlfrescoTransactionSupport.getTransactionReadState();
+		final long allocationBudgetBytes = ThreadResourceUsage.getAllocationBudgetBytes();
+		final CyclicBarrier warmedUp = new CyclicBarrier(threads + 1);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+			final Thread thread = new Thread(runnable, "jsconsole-benchmark");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			final List<Future<WorkerResult>> futures = new ArrayList<>();
+			for (int thread = 0; thread < threads; thread++) {
+				final int threadIndex = thread;
+				futures.add(executor.submit(() -> AuthenticationUtil.runAs(
+						() -> this.runWorker(contextFactory, scope, function, warmup, iterations, threadIndex,
+								readState, allocationBudgetBytes, warmedUp),
+						user)));
+			}
+
+			try {
+				warmedUp.await();
+			} catch (final BrokenBarrierException bbe) {
+				// only broken by an interrupt - the workers report their failures via their futures
+				LOGGER.debug("Benchmark warmup barrier broken", bbe);
+			}
+			final long start = System.nanoTime();
+
+			final long[] latencies = new long[iterations * threads];
+			long allocatedBytes = 0;
+			for (int thread = 0; thread < threads; thread++) {
+				final WorkerResult workerResult = futures.get(thread).get();
+				System.arraycopy(workerResult.latencies, 0, latencies, thread * iterations, iterations);
+				allocatedBytes = workerResult.allocatedBytes >= 0 && allocatedBytes >= 0
+						? allocatedBytes + workerResult.allocatedBytes
+						: -1;
+			}
+			final long wallNanos = System.nanoTime() - start;
+
+			return new BenchmarkResult(warmup, iterations, threads, latencies, wallNanos, allocatedBytes);
+		} catch (final ExecutionException ee) {
+			final Throwable cause = ee.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new AlfrescoRuntimeException("Benchmark failed", cause);
+		} catch (final InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new AlfrescoRuntimeException("Benchmark interrupted", ie);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Runs the iterations of a single worker thread.
+	 *
+	 * @param contextFactory the Rhino context factory of the calling script
+	 * @param scope          the scope
+	 * @param function       the function to benchmark
+	 * @param warmup         the number of warmup iterations
+	 * @param iterations     the number of measured iterations
+	 * @param threadIndex    the thread index
+	 * @param readState      the transaction read state of the calling script
+	 * @param budgetBytes    the allocation budget of the calling script (0 for
+	 *                       none)
+	 * @param warmedUp       the barrier to pass once the warmup is done
+	 * @return the worker result
+	 * @throws Exception if the benchmark fails
+	 */
+	private WorkerResult runWorker(final ContextFactory contextFactory, final Scriptable scope,
+			final Function function, final int warmup, final int iterations, final int threadIndex,
+			final TxnReadState readState, final long budgetBytes, final CyclicBarrier warmedUp) throws Exception {
+		// no retrying transaction helper here - a retry would pass the barrier twice
+		UserTransaction txn = null;
+		boolean active = false;
+		ThreadResourceUsage.startAllocationBudget(budgetBytes);
+		try {
+			Exception warmupFailure = null;
+			try {
+				if (readState != TxnReadState.TXN_NONE) {
+					txn = this.transactionService.getUserTransaction(readState == TxnReadState.TXN_READ_ONLY);
+					txn.begin();
+					active = true;
+				}
+				contextFactory.call(cx -> {
+					runIterations(cx, scope, function, warmup, threadIndex, null);
+					return null;
+				});
+			} catch (final Exception e) {
+				warmupFailure = e;
+			}
+
+			// a failed worker arrives at the barrier as well, so neither the other workers nor the caller block
+			try {
+				warmedUp.await();
+			} catch (final InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw warmupFailure != null ? warmupFailure : new AlfrescoRuntimeException("Benchmark interrupted", ie);
+			} catch (final BrokenBarrierException bbe) {
+				throw warmupFailure != null ? warmupFailure : new AlfrescoRuntimeException("Benchmark failed", bbe);
+			}
+			if (warmupFailure != null) {
+				throw warmupFailure;
+			}
+
+			final WorkerResult result = (WorkerResult) contextFactory.call(cx -> {
+				final long[] latencies = new long[iterations];
+				final long startAllocated = ThreadResourceUsage.getCurrentThreadAllocatedBytes();
+				runIterations(cx, scope, function, iterations, threadIndex, latencies);
+				return new WorkerResult(latencies, allocatedSince(startAllocated));
+			});
+			if (active) {
+				active = false;
+				txn.commit();
+			}
+			return result;
+		} catch (final Exception e) {
+			if (active) {
+				txn.rollback();
+			}
+			throw e;
+		} finally {
+			// the worker threads are discarded, but do not leave the budget behind
+			ThreadResourceUsage.stopAllocationBudget();
+		}
+	}
+
+	/**
+	 * Calls the function repeatedly.
+	 *
+	 * @param cx          the Rhino context of the current thread
+	 * @param scope       the scope
+	 * @param function    the function to benchmark
+	 * @param iterations  the number of iterations
+	 * @param threadIndex the thread index
+	 * @param latencies   the array to record the latencies in (null to skip
+	 *                    recording, e.g. for the warmup)
+	 */
+	protected static void runIterations(final Context cx, final Scriptable scope, final Function function,
+			final int iterations, final int threadIndex, final long[] latencies) {
+		final Integer thread = Integer.valueOf(threadIndex);
+		for (int i = 0; i < iterations; i++) {
+			ThreadResourceUsage.checkAllocationBudget();
+
+			final Object[] args = { Integer.valueOf(i), thread };
+			final long start = System.nanoTime();
+			function.call(cx, scope, scope, args);
+			if (latencies != null) {
+				latencies[i] = System.nanoTime() - start;
+			}
+		}
+	}
+
+	/**
+	 * Calculates the bytes allocated by the current thread since a previous
+	 * reading.
+	 *
+	 * @param startAllocated the previous reading
+	 * @return the allocated bytes (-1 if unknown)
+	 */
+	private static long allocatedSince(final long startAllocated) {
+		return startAllocated >= 0 ? ThreadResourceUsage.getCurrentThreadAllocatedBytes() - startAllocated : -1;
+	}
+
+	/**
+	 * Sets the transaction service.
+	 *
+	 * @param transactionService the transactionService to set
+	 */
+	public void setTransactionService(final TransactionService transactionService) {
+		this.transactionService = transactionService;
+	}
+
+	/**
+	 * Sets the max number of threads of a benchmark.
+	 *
+	 * @param maxThreads the maxThreads to set
+	 */
+	public void setMaxThreads(final int maxThreads) {
+		this.maxThreads = maxThreads;
+	}
+
+	/**
+	 * Sets the max number of iterations of all threads of a benchmark.
+	 *
+	 * @param maxIterations the maxIterations to set
+	 */
+	public void setMaxIterations(final int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * The measurements of a single worker thread.
+	 */
+	private static class WorkerResult {
+
+		/** The latencies in nanoseconds. */
+		private final long[] latencies;
+
+		/** The allocated bytes (-1 if unknown). */
+		private final long allocatedBytes;
+
+		/**
+		 * Instantiates a new worker result.
+		 *
+		 * @param latencies      the latencies in nanoseconds
+		 * @param allocatedBytes the allocated bytes (-1 if unknown)
+		 */
+		private WorkerResult(final long[] latencies, final long allocatedBytes) {
+			this.latencies = latencies;
+			this.allocatedBytes = allocatedBytes;
+		}
+	}
+}
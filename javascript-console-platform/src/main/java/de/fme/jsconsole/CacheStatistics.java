@@ -0,0 +1,104 @@
+package de.fme.jsconsole;
+
+import java.util.Map;
+
+/**
+ * Management interface of the statistics collected for a JavaScript Console
+ * cache. This interface is used to expose the statistics via JMX and the cache
+ * statistics web script.
+ */
+public interface CacheStatistics {
+
+	/**
+	 * Gets the name of the cache.
+	 *
+	 * @return the cache name
+	 */
+	String getCacheName();
+
+	/**
+	 * Gets the number of get operations.
+	 *
+	 * @return the gets
+	 */
+	long getGets();
+
+	/**
+	 * Gets the number of get operations which returned a value.
+	 *
+	 * @return the hits
+	 */
+	long getHits();
+
+	/**
+	 * Gets the number of get operations which did not return a value.
+	 *
+	 * @return the misses
+	 */
+	long getMisses();
+
+	/**
+	 * Gets the ratio of hits to gets.
+	 *
+	 * @return the hit ratio (0 if there have not been any gets yet)
+	 */
+	double getHitRatio();
+
+	/**
+	 * Gets the number of put operations.
+	 *
+	 * @return the puts
+	 */
+	long getPuts();
+
+	/**
+	 * Gets the number of remove operations.
+	 *
+	 * @return the removes
+	 */
+	long getRemoves();
+
+	/**
+	 * Gets the number of entries which have been put on this node but
+	 * disappeared from the cache without having been removed, i.e. which have
+	 * been evicted or expired.
+	 *
+	 * @return the detected evictions
+	 */
+	long getEvictions();
+
+	/**
+	 * Gets the number of entries put on this node which are still tracked as
+	 * live.
+	 *
+	 * @return the tracked entry count
+	 */
+	int getEntryCount();
+
+	/**
+	 * Gets the approximate serialized size in bytes of the entries put on this
+	 * node which are still tracked as live.
+	 *
+	 * @return the approximate size in bytes
+	 */
+	long getApproximateSize();
+
+	/**
+	 * Gets the number of distinct result channels of the live entries.
+	 *
+	 * @return the channel count
+	 */
+	int getChannelCount();
+
+	/**
+	 * Gets the number of live entries per result channel.
+	 *
+	 * @return the entry counts keyed by result channel
+	 */
+	Map<String, Integer> getChannelEntryCounts();
+
+	/**
+	 * Resets all counters. Tracked live entries are retained.
+	 */
+	void resetStatistics();
+}
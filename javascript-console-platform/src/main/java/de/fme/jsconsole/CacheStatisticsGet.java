@@ -0,0 +1,117 @@
+package de.fme.jsconsole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.alfresco.repo.content.MimetypeMap;
+import org.alfresco.util.PropertyCheck;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.extensions.webscripts.AbstractWebScript;
+import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptException;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+import org.springframework.extensions.webscripts.WebScriptResponse;
+
+/**
+ * Web script to retrieve the statistics of the JavaScript Console caches, e.g.
+ * to size the caches based on the actual usage.
+ */
+public class CacheStatisticsGet extends AbstractWebScript implements InitializingBean {
+
+	/** The caches. */
+	private List<CacheStatistics> caches;
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		PropertyCheck.mandatory(this, "caches", this.caches);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void execute(final WebScriptRequest request, final WebScriptResponse response) throws IOException {
+		final boolean includeChannels = Boolean.parseBoolean(request.getParameter("channels"));
+
+		response.setContentEncoding("UTF-8");
+		response.setContentType(MimetypeMap.MIMETYPE_JSON);
+
+		try {
+			final JSONArray cachesJson = new JSONArray();
+			for (final CacheStatistics cache : this.caches) {
+				cachesJson.put(generateCacheJson(cache, includeChannels));
+			}
+
+			final JSONObject jsonOutput = new JSONObject();
+			jsonOutput.put("caches", cachesJson);
+			response.getWriter().write(jsonOutput.toString());
+		} catch (final JSONException e) {
+			throw new WebScriptException(Status.STATUS_INTERNAL_SERVER_ERROR, "Error writing json response.", e);
+		}
+	}
+
+	/**
+	 * Generates the JSON representation of the statistics of a single cache.
+	 *
+	 * @param cache           the cache
+	 * @param includeChannels whether to include the entry counts per channel
+	 * @return the JSON object
+	 * @throws JSONException the JSON exception
+	 */
+	protected static JSONObject generateCacheJson(final CacheStatistics cache, final boolean includeChannels)
+			throws JSONException {
+		final JSONObject cacheJson = new JSONObject();
+		cacheJson.put("name", cache.getCacheName());
+		cacheJson.put("gets", cache.getGets());
+		cacheJson.put("hits", cache.getHits());
+		cacheJson.put("misses", cache.getMisses());
+		cacheJson.put("hitRatio", cache.getHitRatio());
+		cacheJson.put("puts", cache.getPuts());
+		cacheJson.put("removes", cache.getRemoves());
+		cacheJson.put("evictions", cache.getEvictions());
+		cacheJson.put("entries", cache.getEntryCount());
+		cacheJson.put("approximateSize", cache.getApproximateSize());
+		cacheJson.put("channelCount", cache.getChannelCount());
+
+		if (includeChannels) {
+			final JSONObject channelsJson = new JSONObject();
+			for (final Entry<String, Integer> channel : cache.getChannelEntryCounts().entrySet()) {
+				channelsJson.put(channel.getKey(), channel.getValue());
+			}
+			cacheJson.put("channels", channelsJson);
+		}
+
+		if (cache instanceof InstrumentedCache<?, ?>
+				&& ((InstrumentedCache<?, ?>) cache).getBackingCache() instanceof NearCache<?, ?>) {
+			final NearCache<?, ?> nearCache = (NearCache<?, ?>) ((InstrumentedCache<?, ?>) cache).getBackingCache();
+			final JSONObject nearCacheJson = new JSONObject();
+			nearCacheJson.put("entries", nearCache.getNearCacheSize());
+			nearCacheJson.put("hits", nearCache.getNearHits());
+			nearCacheJson.put("misses", nearCache.getNearMisses());
+			nearCacheJson.put("backingHits", nearCache.getBackingHits());
+			nearCacheJson.put("backingMisses", nearCache.getBackingMisses());
+			nearCacheJson.put("evictions", nearCache.getNearEvictions());
+			cacheJson.put("nearCache", nearCacheJson);
+		}
+
+		return cacheJson;
+	}
+
+	/**
+	 * Sets the caches.
+	 *
+	 * @param caches the caches to set
+	 */
+	public final void setCaches(final List<CacheStatistics> caches) {
+		this.caches = caches;
+	}
+}
@@ -0,0 +1,193 @@
+package de.fme.jsconsole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.springframework.extensions.webscripts.ScriptContent;
+
+/**
+ * A {@link ScriptContent} assembled from several segments (e.g. the pre-roll
+ * import, the user script and the post-roll script). The segments are read in
+ * sequence instead of being concatenated into a single string, so a large user
+ * script is not copied again just to add the console pre- and post-roll.
+ */
+public class CompositeScriptContent implements ScriptContent {
+
+	/** The segments. */
+	private final List<String> segments;
+
+	/** The path (calculated lazily). */
+	private String path;
+
+	/**
+	 * Instantiates a new composite script content.
+	 *
+	 * @param segments the segments in the order they are read
+	 */
+	public CompositeScriptContent(final String... segments) {
+		this.segments = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(segments)));
+	}
+
+	/**
+	 * Gets the input stream. The segments are encoded one at a time while the
+	 * stream is read.
+	 *
+	 * @return the input stream
+	 */
+	@Override
+	public InputStream getInputStream() {
+		return new SequenceInputStream(new Enumeration<InputStream>() {
+
+			private int index;
+
+			@Override
+			public boolean hasMoreElements() {
+				return this.index < CompositeScriptContent.this.segments.size();
+			}
+
+			@Override
+			public InputStream nextElement() {
+				if (!this.hasMoreElements()) {
+					throw new NoSuchElementException();
+				}
+				return new ByteArrayInputStream(
+						CompositeScriptContent.this.segments.get(this.index++).getBytes(StandardCharsets.UTF_8));
+			}
+		});
+	}
+
+	/**
+	 * Gets the path, i.e. the MD5 hash of the content like for
+	 * {@link StringScriptContent}.
+	 *
+	 * @return the path
+	 */
+	@Override
+	public String getPath() {
+		if (this.path == null) {
+			try {
+				final MessageDigest digest = MessageDigest.getInstance("MD5");
+				for (final String segment : this.segments) {
+					digest.update(segment.getBytes(StandardCharsets.UTF_8));
+				}
+				final StringBuilder hash = new StringBuilder(35);
+				for (final byte b : digest.digest()) {
+					hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+				}
+				this.path = hash.append(".js").toString();
+			} catch (final NoSuchAlgorithmException e) {
+				throw new IllegalStateException("MD5 is not supported", e);
+			}
+		}
+		return this.path;
+	}
+
+	/**
+	 * Gets the path description.
+	 *
+	 * @return the path description
+	 */
+	@Override
+	public String getPathDescription() {
+		return "Javascript Console Script";
+	}
+
+	/**
+	 * Gets the reader.
+	 *
+	 * @return the reader
+	 */
+	@Override
+	public Reader getReader() {
+		return new SegmentReader(this.segments);
+	}
+
+	/**
+	 * Checks if is cachable.
+	 *
+	 * @return true, if is cachable
+	 */
+	@Override
+	public boolean isCachable() {
+		return false;
+	}
+
+	/**
+	 * Checks if is secure.
+	 *
+	 * @return true, if is secure
+	 */
+	@Override
+	public boolean isSecure() {
+		return true;
+	}
+
+	/**
+	 * Reads a list of strings in sequence without concatenating them.
+	 */
+	private static final class SegmentReader extends Reader {
+
+		/** The segments. */
+		private final List<String> segments;
+
+		/** The index of the current segment. */
+		private int segment;
+
+		/** The offset in the current segment. */
+		private int offset;
+
+		/**
+		 * Instantiates a new segment reader.
+		 *
+		 * @param segments the segments
+		 */
+		private SegmentReader(final List<String> segments) {
+			this.segments = segments;
+		}
+
+		/**
+		 *
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int read(final char[] cbuf, final int off, final int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			while (this.segment < this.segments.size()) {
+				final String current = this.segments.get(this.segment);
+				if (this.offset >= current.length()) {
+					this.segment++;
+					this.offset = 0;
+					continue;
+				}
+				final int count = Math.min(len, current.length() - this.offset);
+				current.getChars(this.offset, this.offset + count, cbuf, off);
+				this.offset += count;
+				return count;
+			}
+			return -1;
+		}
+
+		/**
+		 *
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void close() {
+			this.segment = this.segments.size();
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package de.fme.jsconsole;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.alfresco.util.PropertyCheck;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.ScriptableObject;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Holds the shared, sealed top-level scope with the JavaScript Console helper
+ * functions (e.g. recurse and the binding of print, dump, exportDumps, logger,
+ * space and document). The helper script is compiled and evaluated once at
+ * startup instead of being compiled into every console execution, so the
+ * pre-roll script of an execution is reduced to a single call which binds the
+ * helpers to the per-execution scope and objects.
+ * <p>
+ * Objects created by the helpers (e.g. the result array of recurse) are
+ * created from the constructors of the execution scope, so they pass checks
+ * like {@code instanceof Array} in console scripts. The helper script is
+ * evaluated in a context of the global context factory which the repository
+ * script processor initialises, so the bean has to be created after the
+ * processor (depends-on).
+ */
+public class ConsoleScriptScope implements InitializingBean {
+
+	/** The name of the helper function binding the helpers to an execution. */
+	public static final String BIND_SCOPE_FUNCTION = "jsconsoleBindScope";
+
+	/** The names of the helper functions exposed to console executions. */
+	private static final String[] HELPER_FUNCTIONS = { BIND_SCOPE_FUNCTION };
+
+	/** The classpath location of the helper script. */
+	private String helpersJs;
+
+	/** The helper functions by name. */
+	private Map<String, Object> helpers = Collections.emptyMap();
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void afterPropertiesSet() throws IOException {
+		PropertyCheck.mandatory(this, "helpersJs", this.helpersJs);
+
+		final String source = ExecuteWebscript.readScriptFromClasspath(this.helpersJs);
+		final Context cx = ContextFactory.getGlobal().enterContext();
+		try {
+			// sealed standard objects, so executions cannot modify the shared prototypes
+			final ScriptableObject scope = cx.initStandardObjects(null, true);
+			cx.evaluateString(scope, source, this.helpersJs, 1, null);
+
+			final Map<String, Object> functions = new HashMap<>(4, 1.0f);
+			for (final String name : HELPER_FUNCTIONS) {
+				final Object function = ScriptableObject.getProperty(scope, name);
+				if (!(function instanceof Function)) {
+					throw new IllegalStateException(this.helpersJs + " does not define the function " + name);
+				}
+				final Object prototype = ScriptableObject.getProperty((Function) function, "prototype");
+				if (prototype instanceof ScriptableObject) {
+					((ScriptableObject) prototype).sealObject();
+				}
+				if (function instanceof ScriptableObject) {
+					((ScriptableObject) function).sealObject();
+				}
+				functions.put(name, function);
+			}
+			scope.sealObject();
+			this.helpers = Collections.unmodifiableMap(functions);
+		} finally {
+			Context.exit();
+		}
+	}
+
+	/**
+	 * Adds the shared helper functions to the model of a console execution.
+	 *
+	 * @param model the script model
+	 */
+	public void addHelpers(final Map<String, Object> model) {
+		model.putAll(this.helpers);
+	}
+
+	/**
+	 * Sets the classpath location of the helper script.
+	 *
+	 * @param helpersJs the helpersJs to set
+	 */
+	public void setHelpersJs(final String helpersJs) {
+		this.helpersJs = helpersJs;
+	}
+}
@@ -1,9 +1,17 @@
 package de.fme.jsconsole;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.math.BigInteger;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -18,7 +26,10 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.alfresco.model.ContentModel;
 import org.alfresco.model.RenditionModel;
+import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.repo.admin.SysAdminParams;
+import org.alfresco.repo.cache.SimpleCache;
+import org.alfresco.repo.content.filestore.FileContentWriter;
 import org.alfresco.repo.jscript.ScriptLogger;
 import org.alfresco.repo.jscript.ScriptNode;
 import org.alfresco.repo.lock.mem.LockState;
@@ -30,6 +41,7 @@ import org.alfresco.service.cmr.lock.LockService;
 import org.alfresco.service.cmr.repository.ChildAssociationRef;
 import org.alfresco.service.cmr.repository.ContentReader;
 import org.alfresco.service.cmr.repository.ContentService;
+import org.alfresco.service.cmr.repository.ContentWriter;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.cmr.repository.NodeRef.Status;
 import org.alfresco.service.cmr.repository.NodeService;
@@ -69,6 +81,15 @@ public class DumpService {
 	/** The Constant LOGGER. */
 	private static final Logger LOGGER = LoggerFactory.getLogger(ScriptLogger.class);
 
+	/** The Constant MIMETYPE_NDJSON. */
+	public static final String MIMETYPE_NDJSON = "application/x-ndjson";
+
+	/** The Constant AUDIT_ENTRIES_LIMIT. */
+	private static final int AUDIT_ENTRIES_LIMIT = 5;
+
+	/** The Constant NDJSON_EXTENSION. */
+	private static final String NDJSON_EXTENSION = "ndjson";
+
 	/** The node service. */
 	private NodeService nodeService;
 
@@ -114,6 +135,15 @@ public class DumpService {
 	/** The lock service. */
 	private LockService lockService;
 
+	/** The export store. */
+	private JsConsoleExportStore exportStore;
+
+	/** The audit count cache. */
+	private SimpleCache<NodeRef, Integer> auditCountCache;
+
+	/** The audit count limit. */
+	private int auditCountLimit = 1000;
+
 	/**
 	 * Adds the dump.
 	 *
@@ -150,6 +180,88 @@ public class DumpService {
 		return dumpOutput;
 	}
 
+	/**
+	 * Exports the dumps of one or more nodes as NDJSON (one dump JSON object per
+	 * line) into a temporary file which can be downloaded via the returned link.
+	 * In contrast to {@link #addDump(Object)} the dump limit is not applied as
+	 * this is meant for consistency checks over large node sets.
+	 *
+	 * @param obj the node(s) to dump
+	 * @return the export result
+	 */
+	public JsConsoleDumpExport exportDumps(Object obj) {
+		String exportId = exportStore.createExport(NDJSON_EXTENSION);
+		ContentWriter writer = new FileContentWriter(exportStore.getExportFile(exportId));
+		int count = writeDumps(obj, writer);
+		return new JsConsoleDumpExport(exportId, null, count, writer.getSize(), exportStore.getDownloadUrl(exportId));
+	}
+
+	/**
+	 * Exports the dumps of one or more nodes as NDJSON (one dump JSON object per
+	 * line) into a new content node in the repository. In contrast to
+	 * {@link #addDump(Object)} the dump limit is not applied as this is meant for
+	 * consistency checks over large node sets.
+	 *
+	 * @param obj    the node(s) to dump
+	 * @param folder the folder in which to create the export content node
+	 * @param name   the name of the export content node - a generated name will
+	 *               be used if not set
+	 * @return the export result
+	 */
+	public JsConsoleDumpExport exportDumps(Object obj, ScriptNode folder, String name) {
+		String effectiveName = name != null && !name.trim().isEmpty() ? name
+				: "jsconsole-dump-" + System.currentTimeMillis() + "." + NDJSON_EXTENSION;
+
+		Map<QName, Serializable> properties = new HashMap<>(2);
+		properties.put(ContentModel.PROP_NAME, effectiveName);
+		NodeRef exportNode = nodeService.createNode(folder.getNodeRef(), ContentModel.ASSOC_CONTAINS,
+				QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, QName.createValidLocalName(effectiveName)),
+				ContentModel.TYPE_CONTENT, properties).getChildRef();
+
+		ContentWriter writer = contentService.getWriter(exportNode, ContentModel.PROP_CONTENT, true);
+		int count = writeDumps(obj, writer);
+
+		String downloadUrl;
+		try {
+			downloadUrl = "api/node/content/" + exportNode.getStoreRef().getProtocol() + "/"
+					+ exportNode.getStoreRef().getIdentifier() + "/" + exportNode.getId() + "/"
+					+ URLEncoder.encode(effectiveName, StandardCharsets.UTF_8.name()).replace("+", "%20") + "?a=true";
+		} catch (UnsupportedEncodingException e) {
+			throw new AlfrescoRuntimeException("UTF-8 not supported", e);
+		}
+		return new JsConsoleDumpExport(null, exportNode.toString(), count, writer.getSize(), downloadUrl);
+	}
+
+	/**
+	 * Writes the dumps of one or more nodes as NDJSON lines via a content writer.
+	 *
+	 * @param obj           the node(s) to dump
+	 * @param contentWriter the content writer
+	 * @return the number of written dumps
+	 */
+	private int writeDumps(Object obj, ContentWriter contentWriter) {
+		contentWriter.setMimetype(MIMETYPE_NDJSON);
+		contentWriter.setEncoding(StandardCharsets.UTF_8.name());
+
+		int count = 0;
+		try (Writer writer = new BufferedWriter(
+				new OutputStreamWriter(contentWriter.getContentOutputStream(), StandardCharsets.UTF_8))) {
+			if (obj != null) {
+				Object value = ScriptValueConverter.unwrapValue(obj);
+				Iterator<?> valueIter = value instanceof Collection<?> ? ((Collection<?>) value).iterator()
+						: Collections.singleton(value).iterator();
+				while (valueIter.hasNext()) {
+					writer.write(dumpObject(valueIter.next()).getJson());
+					writer.write('\n');
+					count++;
+				}
+			}
+		} catch (IOException e) {
+			throw new AlfrescoRuntimeException("Failed to write dump export", e);
+		}
+		return count;
+	}
+
 	/**
 	 * Dump object.
 	 *
@@ -193,8 +305,11 @@ public class DumpService {
 								+ sysAdminParams.getAlfrescoPort() + "/" + sysAdminParams.getAlfrescoContext()
 								+ webDavService.getWebdavUrl(nodeRef));
 
-				json.put("audits", getAudits(nodeRef, true));
-				json.put("audit count", getAudits(nodeRef, false).size());
+				List<Map<String, Object>> audits = getAudits(nodeRef);
+				json.put("audits", audits);
+				int auditCount = getAuditCount(nodeRef, audits.size());
+				json.put("audit count", Math.min(auditCount, auditCountLimit));
+				json.put("audit count capped", auditCount > auditCountLimit);
 
 			} catch (JSONException error) {
 				LOGGER.warn("JSON error creating node dump", error);
@@ -512,13 +627,12 @@ public class DumpService {
 	}
 
 	/**
-	 * Gets the audits.
+	 * Gets the most recent audit entries of a node.
 	 *
 	 * @param nodeRef the node ref
-	 * @param limited the limited
 	 * @return the audits
 	 */
-	private Collection<Map<String, Object>> getAudits(NodeRef nodeRef, final boolean limited) {
+	private List<Map<String, Object>> getAudits(NodeRef nodeRef) {
 		// Execute the query
 		AuditQueryParameters params = new AuditQueryParameters();
 		params.setForward(false);
@@ -533,11 +647,7 @@ public class DumpService {
 			 */
 			@Override
 			public boolean valuesRequired() {
-				if (limited) {
-					return true;
-				} else {
-					return false;
-				}
+				return true;
 			}
 
 			/**
@@ -558,46 +668,101 @@ public class DumpService {
 					Map<String, Serializable> values) {
 
 				Map<String, Object> entry = new HashMap<>(11);
-				if (limited) {
+				entry.put(JavascriptConsoleScriptObject.JSON_KEY_ENTRY_ID, entryId);
+				entry.put(JavascriptConsoleScriptObject.JSON_KEY_ENTRY_APPLICATION, applicationName);
+				if (user != null) {
+					entry.put(JavascriptConsoleScriptObject.JSON_KEY_ENTRY_USER, user);
+				}
+				entry.put(JavascriptConsoleScriptObject.JSON_KEY_ENTRY_TIME, new Date(time));
+				if (values != null) {
+					// Convert values to Strings
+					Map<String, String> valueStrings = new HashMap<>(values.size() * 2);
+					for (Map.Entry<String, Serializable> mapEntry : values.entrySet()) {
+						String key = mapEntry.getKey();
+						Serializable value = mapEntry.getValue();
+						try {
+							String valueString = DefaultTypeConverter.INSTANCE.convert(String.class, value);
+							valueStrings.put(key, valueString);
+						} catch (TypeConversionException e) {
+							valueStrings.put(key, value.toString());
+						}
 
-					entry.put(JavascriptConsoleScriptObject.JSON_KEY_ENTRY_ID, entryId);
-					entry.put(JavascriptConsoleScriptObject.JSON_KEY_ENTRY_APPLICATION, applicationName);
-					if (user != null) {
-						entry.put(JavascriptConsoleScriptObject.JSON_KEY_ENTRY_USER, user);
 					}
-					entry.put(JavascriptConsoleScriptObject.JSON_KEY_ENTRY_TIME, new Date(time));
-					if (values != null) {
-						// Convert values to Strings
-						Map<String, String> valueStrings = new HashMap<>(values.size() * 2);
-						for (Map.Entry<String, Serializable> mapEntry : values.entrySet()) {
-							String key = mapEntry.getKey();
-							Serializable value = mapEntry.getValue();
-							try {
-								String valueString = DefaultTypeConverter.INSTANCE.convert(String.class, value);
-								valueStrings.put(key, valueString);
-							} catch (TypeConversionException e) {
-								valueStrings.put(key, value.toString());
-							}
+					entry.put(JavascriptConsoleScriptObject.JSON_KEY_ENTRY_VALUES, valueStrings);
+				}
+				entries.add(entry);
+				return true;
+			}
+		};
+		auditService.auditQuery(callback, params, AUDIT_ENTRIES_LIMIT);
+		return entries;
+	}
 
-						}
-						entry.put(JavascriptConsoleScriptObject.JSON_KEY_ENTRY_VALUES, valueStrings);
-					}
-					entries.add(entry);
+	/**
+	 * Gets the audit count of a node for the dump. If the number of the already
+	 * fetched most recent entries is below the entry limit, that number already
+	 * is the total count and no further query is needed. Otherwise the count is
+	 * determined via a count-only query (no entry values loaded) which is capped
+	 * at the configured audit count limit and cached per node for a short time.
+	 *
+	 * @param nodeRef        the node ref
+	 * @param fetchedEntries the number of already fetched most recent entries
+	 * @return the audit count - the exact number, or more than the audit count
+	 *         limit if the count exceeds it
+	 */
+	private int getAuditCount(NodeRef nodeRef, int fetchedEntries) {
+		if (fetchedEntries < AUDIT_ENTRIES_LIMIT) {
+			return fetchedEntries;
+		}
+
+		Integer count = auditCountCache != null ? auditCountCache.get(nodeRef) : null;
+		if (count == null) {
+			AuditQueryParameters params = new AuditQueryParameters();
+			params.setForward(false);
+			params.addSearchKey(null, nodeRef.toString());
+
+			final AtomicInteger counter = new AtomicInteger();
+			AuditQueryCallback callback = new AuditQueryCallback() {
+
+				/**
+				 * 
+				 * {@inheritDoc}
+				 */
+				@Override
+				public boolean valuesRequired() {
+					return false;
+				}
+
+				/**
+				 * 
+				 * {@inheritDoc}
+				 */
+				@Override
+				public boolean handleAuditEntryError(Long entryId, String errorMsg, Throwable error) {
 					return true;
-				} else {
-					entries.add(entry);
+				}
+
+				/**
+				 * 
+				 * {@inheritDoc}
+				 */
+				@Override
+				public boolean handleAuditEntry(Long entryId, String applicationName, String user, long time,
+						Map<String, Serializable> values) {
+					counter.incrementAndGet();
 					return true;
 				}
+			};
+			// query one more than the limit to detect if the limit is exceeded
+			auditService.auditQuery(callback, params, auditCountLimit + 1);
+			count = counter.get();
+
+			if (auditCountCache != null) {
+				auditCountCache.put(nodeRef, count);
 			}
-		};
-		int limit;
-		if (limited) {
-			limit = 5;
-		} else {
-			limit = 100;
 		}
-		auditService.auditQuery(callback, params, limit);
-		return entries;
+
+		return count;
 	}
 
 	/**
@@ -735,4 +900,31 @@ public class DumpService {
 		this.lockService = lockService;
 	}
 
+	/**
+	 * Sets the export store.
+	 *
+	 * @param exportStore the new export store
+	 */
+	public void setExportStore(JsConsoleExportStore exportStore) {
+		this.exportStore = exportStore;
+	}
+
+	/**
+	 * Sets the audit count cache.
+	 *
+	 * @param auditCountCache the new audit count cache
+	 */
+	public void setAuditCountCache(SimpleCache<NodeRef, Integer> auditCountCache) {
+		this.auditCountCache = auditCountCache;
+	}
+
+	/**
+	 * Sets the audit count limit.
+	 *
+	 * @param auditCountLimit the new audit count limit
+	 */
+	public void setAuditCountLimit(int auditCountLimit) {
+		this.auditCountLimit = auditCountLimit;
+	}
+
 }
@@ -11,6 +11,8 @@ import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.alfresco.model.ContentModel;
 import org.alfresco.repo.cache.SimpleCache;
@@ -26,12 +28,14 @@ import org.alfresco.service.cmr.repository.NodeService;
 import org.alfresco.service.cmr.security.PermissionService;
 import org.alfresco.service.transaction.TransactionService;
 import org.alfresco.util.Pair;
+import org.alfresco.util.PropertyCheck;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.LogFactory;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.extensions.webscripts.AbstractWebScript;
 import org.springframework.extensions.webscripts.Cache;
 import org.springframework.extensions.webscripts.Container;
@@ -44,6 +48,11 @@ import org.springframework.extensions.webscripts.TemplateProcessor;
 import org.springframework.extensions.webscripts.WebScriptException;
 import org.springframework.extensions.webscripts.WebScriptRequest;
 import org.springframework.extensions.webscripts.WebScriptResponse;
+import org.springframework.extensions.webscripts.processor.FTLTemplateProcessor;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
 
 /**
  * Implements a webscript that is used to execute arbitrary scripts and
@@ -53,11 +62,76 @@ import org.springframework.extensions.webscripts.WebScriptResponse;
  * @version 1.0
  *
  */
-public class ExecuteWebscript extends AbstractWebScript {
+public class ExecuteWebscript extends AbstractWebScript implements InitializingBean {
 
 	/** The Constant LOGGER. */
 	private static final Logger LOGGER = LoggerFactory.getLogger(ExecuteWebscript.class);
 
+	/** The name of the root performance span. */
+	public static final String SPAN_WEBSCRIPT = "webscript";
+
+	/** The name of the request parsing performance span. */
+	public static final String SPAN_REQUEST_PARSING = "requestParsing";
+
+	/** The name of the import resolution performance span. */
+	public static final String SPAN_IMPORT_RESOLUTION = "importResolution";
+
+	/** The name of the model building performance span. */
+	public static final String SPAN_MODEL_BUILDING = "modelBuilding";
+
+	/** The name of the script execution performance span. */
+	public static final String SPAN_SCRIPT = "script";
+
+	/** The name of the dumps performance span. */
+	public static final String SPAN_DUMPS = "dumps";
+
+	/** The name of the space path lookup performance span. */
+	public static final String SPAN_SPACE_PATH = "spacePath";
+
+	/** The name of the template processing performance span. */
+	public static final String SPAN_TEMPLATE = "template";
+
+	/** The name of the template parsing performance span. */
+	public static final String SPAN_TEMPLATE_PARSE = "templateParse";
+
+	/** The name of the template rendering performance span. */
+	public static final String SPAN_TEMPLATE_RENDER = "templateRender";
+
+	/** The name of the result serialization performance span. */
+	public static final String SPAN_SERIALIZATION = "serialization";
+
+	/** The file extension of rendered templates provided as a download. */
+	private static final String TEMPLATE_EXPORT_EXTENSION = "txt";
+
+	/** The pattern of any known EOL style. */
+	private static final Pattern EOL_PATTERN = Pattern.compile("(\\r?\\n\\r?)|(\\r)");
+
+	/** The names of the error status codes if not provided by the web script framework. */
+	private static final Map<Integer, String> FALLBACK_STATUS_NAMES = new HashMap<>();
+
+	/** The descriptions of the error status codes if not provided by the web script framework. */
+	private static final Map<Integer, String> FALLBACK_STATUS_DESCRIPTIONS = new HashMap<>();
+
+	static {
+		FALLBACK_STATUS_NAMES.put(Status.STATUS_BAD_REQUEST, "Bad Request");
+		FALLBACK_STATUS_DESCRIPTIONS.put(Status.STATUS_BAD_REQUEST,
+				"Request sent by the client was syntactically incorrect.");
+		FALLBACK_STATUS_NAMES.put(Status.STATUS_PRECONDITION_FAILED, "Precondition Failed");
+		FALLBACK_STATUS_DESCRIPTIONS.put(Status.STATUS_PRECONDITION_FAILED,
+				"The precondition given in the request evaluated to false by the server.");
+		FALLBACK_STATUS_NAMES.put(Status.STATUS_REQUEST_ENTITY_TOO_LARGE, "Request Entity Too Large");
+		FALLBACK_STATUS_DESCRIPTIONS.put(Status.STATUS_REQUEST_ENTITY_TOO_LARGE,
+				"The server is refusing to process a request because the request entity is larger than the server is"
+						+ " willing or able to process.");
+		FALLBACK_STATUS_NAMES.put(Status.STATUS_UNSUPPORTED_MEDIA_TYPE, "Unsupported Media Type");
+		FALLBACK_STATUS_DESCRIPTIONS.put(Status.STATUS_UNSUPPORTED_MEDIA_TYPE,
+				"The server is refusing to service the request because the entity of the request is in a format not"
+						+ " supported by the requested resource for the requested method.");
+		FALLBACK_STATUS_NAMES.put(Status.STATUS_INTERNAL_SERVER_ERROR, "Internal Error");
+		FALLBACK_STATUS_DESCRIPTIONS.put(Status.STATUS_INTERNAL_SERVER_ERROR,
+				"An error inside the HTTP server which prevented it from fulfilling the request.");
+	}
+
 	/** The script utils. */
 	private ScriptUtils scriptUtils;
 
@@ -79,12 +153,60 @@ public class ExecuteWebscript extends AbstractWebScript {
 	/** The dump service. */
 	private DumpService dumpService;
 
+	/** The export store for rendered templates exceeding the inline limit (null to render in memory). */
+	private JsConsoleExportStore exportStore;
+
+	/** The max number of characters of a rendered template returned inline in the result. */
+	private long templateInlineLimit = 1048576;
+
+	/** The max number of characters of a rendered template (0 for unlimited). */
+	private long templateMaxSize;
+
+	/** The max size of the request body in bytes (0 for unlimited). */
+	private long maxRequestSize;
+
+	/** The max length of request fields other than script and template (0 for unlimited). */
+	private int maxRequestFieldLength;
+
+	/** The response compression (null to write uncompressed responses). */
+	private ResponseCompression responseCompression;
+
+	/** The store of uploaded scripts and templates (null to require the texts in every request). */
+	private ScriptStore scriptStore;
+
+	/** The number of line breaks of the resolved pre-roll import (calculated lazily). */
+	private volatile Integer preRollLineBreaks;
+
 	/** The print output cache. */
 	private SimpleCache<Pair<String, Integer>, List<String>> printOutputCache;
 
 	/** The result cache. */
 	private SimpleCache<String, JavascriptConsoleResultBase> resultCache;
 
+	/** The result channel registry. */
+	private ResultChannelRegistry resultChannelRegistry;
+
+	/** The execution metrics. */
+	private ExecutionMetrics executionMetrics;
+
+	/** The script profiler. */
+	private ScriptProfiler scriptProfiler;
+
+	/** The benchmark runner. */
+	private BenchmarkRunner benchmarkRunner;
+
+	/** The shared scope with the console helper functions. */
+	private ConsoleScriptScope consoleScriptScope;
+
+	/** The cache of parsed console templates (null to parse on every execution). */
+	private TemplateCache templateCache;
+
+	/** The number of repository service methods reported in the result. */
+	private int repositoryCallsTopN = 10;
+
+	/** The max number of bytes a script may allocate (0 or less to disable). */
+	private long allocationBudgetBytes;
+
 	/** The print output chunk size. */
 	private int printOutputChunkSize = 5;
 
@@ -94,6 +216,16 @@ public class ExecuteWebscript extends AbstractWebScript {
 	/** The jsconsole post roll js. */
 	private String jsconsolePostRollJs;
 
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		// the pre-roll script binds the helpers of the shared scope
+		PropertyCheck.mandatory(this, "consoleScriptScope", this.consoleScriptScope);
+	}
+
 	/**
 	 *
 	 * {@inheritDoc}
@@ -102,7 +234,7 @@ public class ExecuteWebscript extends AbstractWebScript {
 	public void init(final Container container, final Description description) {
 		super.init(container, description);
 		try {
-			this.postRollScript = this.readScriptFromClasspath(this.jsconsolePostRollJs);
+			this.postRollScript = readScriptFromClasspath(this.jsconsolePostRollJs);
 		} catch (final IOException e) {
 			LOGGER.error("Could not read pre-roll script", e);
 		}
@@ -130,34 +262,74 @@ public class ExecuteWebscript extends AbstractWebScript {
 		try {
 			// this isn't very precise since there is some bit of processing until here that
 			// we can't measure
-			final PerfLog webscriptPerf = new PerfLog().start();
-			final JavascriptConsoleRequest jsreq = JavascriptConsoleRequest.readJson(request);
+			final PerfSpan webscriptSpan = PerfSpan.start(SPAN_WEBSCRIPT);
+			final PerfSpan requestParsingSpan = webscriptSpan.startChild(SPAN_REQUEST_PARSING);
+			final JavascriptConsoleRequest jsreq = JavascriptConsoleRequest.readJson(request, this.maxRequestSize,
+					this.maxRequestFieldLength, this.scriptStore);
+			requestParsingSpan.stop();
 
 			// Note: Need to use import here so the user-supplied script may also import
 			// scripts
-			final String script = "<import resource=\"classpath:" + this.jsconsolePreRollJs + "\">\n"
-					+ jsreq.script;
+			final String preRollImport = "<import resource=\"classpath:" + this.jsconsolePreRollJs + "\">\n";
 
-			final ScriptContent scriptContent = new StringScriptContent(script + this.postRollScript);
+			// the segments are read in sequence instead of copying the script into a
+			// concatenated string
+			final ScriptContent scriptContent = new CompositeScriptContent(preRollImport, jsreq.script,
+					this.postRollScript);
 
-			final int providedScriptLength = this.countScriptLines(jsreq.script, false);
-			final int resolvedScriptLength = this.countScriptLines(script, true);
-			scriptOffset = providedScriptLength - resolvedScriptLength;
+			final PerfSpan importResolutionSpan = webscriptSpan.startChild(SPAN_IMPORT_RESOLUTION);
+			scriptOffset = this.calculateScriptOffset(preRollImport, jsreq.script);
+			importResolutionSpan.stop();
 
+			if (jsreq.resultChannel != null && this.resultChannelRegistry != null) {
+				this.resultChannelRegistry.channelCreated(jsreq.resultChannel,
+						jsreq.runas != null && !jsreq.runas.trim().isEmpty() ? jsreq.runas
+								: AuthenticationUtil.getFullyAuthenticatedUser());
+			}
+
+			final boolean profile = jsreq.profile && this.scriptProfiler != null;
+			if (profile) {
+				this.scriptProfiler.startProfiling(scriptContent.getPath());
+			}
+			RepositoryCallInterceptor.startAccounting();
+			ThreadResourceUsage.startAllocationBudget(this.allocationBudgetBytes);
 			try {
-				result = this.runScriptWithTransactionAndAuthentication(request, response, jsreq, scriptContent);
+				List<ScriptLineProfile> scriptProfile = null;
+				try {
+					result = this.runScriptWithTransactionAndAuthentication(request, response, jsreq, scriptContent,
+							webscriptSpan);
+				} finally {
+					// stopped exactly once, also if the script fails
+					if (profile) {
+						scriptProfile = this.scriptProfiler.stopProfiling();
+					}
+				}
 
+				result.setRepositoryCalls(RepositoryCallInterceptor.stopAccounting(this.repositoryCallsTopN));
+				if (scriptProfile != null) {
+					result.setScriptProfile(scriptProfile);
+				}
 				result.setScriptOffset(scriptOffset);
+				result.setScriptHashes(jsreq.scriptHash, jsreq.templateHash);
+				result.setPerformance(webscriptSpan);
 
-				// this won't be very precise since there is still some post-processing, but we
-				// can't delay it any longer
-				result.setWebscriptPerformance(String.valueOf(
-						webscriptPerf.stop("Took {} ms to execute webscript with {} - result: {} ", jsreq, result)));
-
+				// root span is stopped after serialization
 				if (!result.isStatusResponseSent()) {
-					result.writeJson(response);
+					result.writeJson(request, response, this.responseCompression);
+				} else {
+					webscriptSpan.stop();
 				}
+				LOGGER.debug("Took {} ms to execute webscript with {} - result: {} ",
+						webscriptSpan.getDurationMillis(), jsreq, result);
 			} finally {
+				// make sure accounting is stopped on failure
+				RepositoryCallInterceptor.stopAccounting(0);
+				ThreadResourceUsage.stopAllocationBudget();
+
+				if (this.executionMetrics != null) {
+					this.recordExecutionMetrics(jsreq, result, webscriptSpan);
+				}
+
 				if (jsreq.resultChannel != null && ExecuteWebscript.this.resultCache != null) {
 					if (result != null) {
 						ExecuteWebscript.this.resultCache.put(jsreq.resultChannel, result.toBaseResult());
@@ -166,16 +338,123 @@ public class ExecuteWebscript extends AbstractWebScript {
 						ExecuteWebscript.this.resultCache.put(jsreq.resultChannel, new JavascriptConsoleResultBase());
 					}
 
+					if (this.resultChannelRegistry != null) {
+						this.resultChannelRegistry.channelCompleted(jsreq.resultChannel, result == null);
+					}
 				}
 			}
 
 		} catch (final WebScriptException e) {
-			response.setStatus(500);
+			response.setStatus(e.getStatus());
 			response.setContentEncoding("UTF-8");
 			response.setContentType(MimetypeMap.MIMETYPE_JSON);
 
-			this.writeErrorInfosAsJson(response, result, scriptOffset, e);
+			this.writeErrorInfosAsJson(request, response, result, scriptOffset, e);
+		}
+	}
+
+	/**
+	 * Records the metrics of an execution.
+	 *
+	 * @param jsreq         the request
+	 * @param result        the result (null if the execution failed)
+	 * @param webscriptSpan the root performance span
+	 */
+	private void recordExecutionMetrics(final JavascriptConsoleRequest jsreq, final JavascriptConsoleResult result,
+			final PerfSpan webscriptSpan) {
+		final String user = jsreq.runas != null && !jsreq.runas.trim().isEmpty() ? jsreq.runas
+				: AuthenticationUtil.getFullyAuthenticatedUser();
+		final String transactionMode;
+		if (!jsreq.useTransaction) {
+			transactionMode = ExecutionMetrics.TRANSACTION_NONE;
+		} else if (jsreq.transactionReadOnly) {
+			transactionMode = ExecutionMetrics.TRANSACTION_READ_ONLY;
+		} else {
+			transactionMode = ExecutionMetrics.TRANSACTION_READ_WRITE;
+		}
+
+		long printOutputLines = 0;
+		long dumps = 0;
+		if (result != null) {
+			printOutputLines = result.getPrintOutput().size();
+			dumps = result.getDumpOutput().size();
+			for (final JsConsoleDumpExport dumpExport : result.getDumpExports()) {
+				dumps += dumpExport.getCount();
+			}
+		}
+
+		this.executionMetrics.recordExecution(user, transactionMode,
+				result != null ? ExecutionMetrics.OUTCOME_SUCCESS : ExecutionMetrics.OUTCOME_FAILURE,
+				webscriptSpan.getTotalNanos(SPAN_SCRIPT), webscriptSpan.getTotalNanos(SPAN_TEMPLATE),
+				webscriptSpan.getDurationNanos(), webscriptSpan.getTotalCpuNanos(SPAN_SCRIPT),
+				webscriptSpan.getTotalAllocatedBytes(SPAN_SCRIPT), printOutputLines, dumps);
+	}
+
+	/**
+	 * Calculates the script offset, i.e. the number of lines the script processor
+	 * sees before the first line of the user script once all imports have been
+	 * resolved (as a negative number). The content following the import
+	 * directives is kept verbatim by the import resolution, so unless the user
+	 * script starts with imports of its own only the pre-roll import and the
+	 * leading whitespace of the user script have to be resolved instead of a
+	 * copy of the complete script.
+	 *
+	 * @param preRollImport the pre-roll import directive
+	 * @param script        the user script
+	 * @return the script offset
+	 */
+	private int calculateScriptOffset(final String preRollImport, final String script) {
+		int bodyStart = 0;
+		while (bodyStart < script.length() && Character.isWhitespace(script.charAt(bodyStart))) {
+			bodyStart++;
+		}
+
+		if (bodyStart == script.length() || script.startsWith("<import", bodyStart)) {
+			return this.countScriptLines(script, false) - this.countScriptLines(preRollImport + script, true);
+		}
+
+		final String leadingWhitespace = script.substring(0, bodyStart);
+		int prefixLineBreaks;
+		if (bodyStart == 0 && this.preRollLineBreaks != null) {
+			prefixLineBreaks = this.preRollLineBreaks;
+		} else {
+			// resolve the prefix followed by a placeholder for the verbatim script body
+			prefixLineBreaks = countLineBreaks(this.resolveScriptImports(preRollImport + leadingWhitespace + ";"));
+			if (bodyStart == 0) {
+				this.preRollLineBreaks = prefixLineBreaks;
+			}
+		}
+		return countLineBreaks(leadingWhitespace) - prefixLineBreaks;
+	}
+
+	/**
+	 * Resolves the imports of a script if the script processor supports it.
+	 *
+	 * @param script the script
+	 * @return the script with resolved imports (or the literal source)
+	 */
+	private String resolveScriptImports(final String script) {
+		if (this.jsProcessor instanceof RhinoScriptProcessor) {
+			return ScriptResourceHelper.resolveScriptImports(script, (RhinoScriptProcessor) this.jsProcessor,
+					LogFactory.getLog(ExecuteWebscript.class));
 		}
+		// assume this is the literal source
+		return script;
+	}
+
+	/**
+	 * Counts the line breaks of a script, for any known EOL style.
+	 *
+	 * @param script the script
+	 * @return the number of line breaks
+	 */
+	private static int countLineBreaks(final String script) {
+		final Matcher matcher = EOL_PATTERN.matcher(script);
+		int lineBreaks = 0;
+		while (matcher.find()) {
+			lineBreaks++;
+		}
+		return lineBreaks;
 	}
 
 	/**
@@ -186,20 +465,12 @@ public class ExecuteWebscript extends AbstractWebScript {
 	 * @return the int
 	 */
 	private int countScriptLines(final String script, final boolean attemptImportResolution) {
-		String scriptSource;
-
-		if (attemptImportResolution && this.jsProcessor instanceof RhinoScriptProcessor) {
-			// resolve any imports
-			scriptSource = ScriptResourceHelper.resolveScriptImports(script, (RhinoScriptProcessor) this.jsProcessor,
-					LogFactory.getLog(ExecuteWebscript.class));
-		} else {
-			// assume this is the literal source
-			scriptSource = script;
-		}
+		// resolve any imports
+		final String scriptSource = attemptImportResolution ? this.resolveScriptImports(script) : script;
 
 		// EOL is not only dependent on the current system but on the environment of the
 		// script author, so check for any known EOL styles
-		final String[] scriptLines = scriptSource.split("(\\r?\\n\\r?)|(\\r)");
+		final String[] scriptLines = EOL_PATTERN.split(scriptSource);
 		return scriptLines.length;
 	}
 
@@ -207,23 +478,30 @@ public class ExecuteWebscript extends AbstractWebScript {
 	 * used our own json reponse for errors because you cannot pass your own
 	 * parameters to the built-in alfresco status templates.
 	 *
+	 * @param request      the request
 	 * @param response     the response
 	 * @param result       the result
 	 * @param scriptOffset the script offset
 	 * @param e            the occured exception
 	 * @throws IOException Signals that an I/O exception has occurred.
 	 */
-	private void writeErrorInfosAsJson(final WebScriptResponse response, final JavascriptConsoleResult result,
-			final int scriptOffset, final WebScriptException e) throws IOException {
+	private void writeErrorInfosAsJson(final WebScriptRequest request, final WebScriptResponse response,
+			final JavascriptConsoleResult result, final int scriptOffset, final WebScriptException e)
+			throws IOException {
 		try {
 			final JSONObject jsonOutput = new JSONObject();
 
 			// set some common stuff like
 			final JSONObject status = new JSONObject();
-			status.put("code", 500);
-			status.put("name", "Internal Error");
-			status.put("description",
-					"An error inside the HTTP server which prevented it from fulfilling the request.");
+			status.put("code", e.getStatus());
+			final Status codeStatus = new Status();
+			codeStatus.setCode(e.getStatus());
+			final String codeName = codeStatus.getCodeName();
+			final String codeDescription = codeStatus.getCodeDescription();
+			status.put("name",
+					codeName != null ? codeName : FALLBACK_STATUS_NAMES.getOrDefault(e.getStatus(), "Error"));
+			status.put("description", codeDescription != null ? codeDescription
+					: FALLBACK_STATUS_DESCRIPTIONS.getOrDefault(e.getStatus(), ""));
 			jsonOutput.put("status", status);
 
 			// find out the closest error message which is helpful for the
@@ -254,7 +532,12 @@ public class ExecuteWebscript extends AbstractWebScript {
 			// (if you use preroll-scripts or imports in javascript input)
 			jsonOutput.put("scriptOffset", scriptOffset);
 
-			response.getWriter().write(jsonOutput.toString(5));
+			// the client has to send the texts of unknown hashes again
+			if (e instanceof UnknownScriptHashException) {
+				jsonOutput.put("unknownHashes", ((UnknownScriptHashException) e).getUnknownHashes());
+			}
+
+			ResponseCompression.write(this.responseCompression, request, response, jsonOutput.toString(5));
 
 		} catch (final JSONException ex) {
 			throw new WebScriptException(Status.STATUS_INTERNAL_SERVER_ERROR, "Error writing json error response.", ex);
@@ -268,9 +551,9 @@ public class ExecuteWebscript extends AbstractWebScript {
 	 * @return the string
 	 * @throws IOException Signals that an I/O exception has occurred.
 	 */
-	private String readScriptFromClasspath(final String resourceName) throws IOException {
+	static String readScriptFromClasspath(final String resourceName) throws IOException {
 		final StringBuilder script = new StringBuilder();
-		final InputStream resource = this.getClass().getClassLoader().getResourceAsStream(resourceName);
+		final InputStream resource = ExecuteWebscript.class.getClassLoader().getResourceAsStream(resourceName);
 		if (resource != null) {
 			try (BufferedReader bfr = new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8))) {
 				String line;
@@ -291,18 +574,21 @@ public class ExecuteWebscript extends AbstractWebScript {
 	 * @param response      the response
 	 * @param jsreq         the jsreq
 	 * @param scriptContent the script content
+	 * @param parentSpan    the parent performance span
 	 * @return the javascript console result
 	 */
 	private JavascriptConsoleResult runScriptWithTransactionAndAuthentication(final WebScriptRequest request,
-			final WebScriptResponse response, final JavascriptConsoleRequest jsreq, final ScriptContent scriptContent) {
+			final WebScriptResponse response, final JavascriptConsoleRequest jsreq, final ScriptContent scriptContent,
+			final PerfSpan parentSpan) {
 
 		LOGGER.debug("running script as user {}", jsreq.runas);
 
 		if (jsreq.runas != null && !jsreq.runas.trim().isEmpty()) {
 			return AuthenticationUtil
-					.runAs(() -> this.runWithTransactionIfNeeded(request, response, jsreq, scriptContent), jsreq.runas);
+					.runAs(() -> this.runWithTransactionIfNeeded(request, response, jsreq, scriptContent, parentSpan),
+							jsreq.runas);
 		} else {
-			return this.runWithTransactionIfNeeded(request, response, jsreq, scriptContent);
+			return this.runWithTransactionIfNeeded(request, response, jsreq, scriptContent, parentSpan);
 		}
 	}
 
@@ -313,10 +599,12 @@ public class ExecuteWebscript extends AbstractWebScript {
 	 * @param response      the response
 	 * @param jsreq         the jsreq
 	 * @param scriptContent the script content
+	 * @param parentSpan    the parent performance span
 	 * @return the javascript console result
 	 */
 	private JavascriptConsoleResult runWithTransactionIfNeeded(final WebScriptRequest request,
-			final WebScriptResponse response, final JavascriptConsoleRequest jsreq, final ScriptContent scriptContent) {
+			final WebScriptResponse response, final JavascriptConsoleRequest jsreq, final ScriptContent scriptContent,
+			final PerfSpan parentSpan) {
 
 		final List<String> printOutput;
 		if (jsreq.resultChannel != null && this.printOutputCache != null) {
@@ -337,12 +625,12 @@ public class ExecuteWebscript extends AbstractWebScript {
 					printOutput.clear();
 				}
 				return this.executeScriptContent(request, response, scriptContent, jsreq.template, jsreq.spaceNodeRef,
-						jsreq.urlargs, jsreq.documentNodeRef, printOutput);
+						jsreq.urlargs, jsreq.documentNodeRef, jsreq.templateDownload, printOutput, parentSpan);
 			}, jsreq.transactionReadOnly);
 		} else {
 			LOGGER.debug("Executing script script without transaction");
 			result = this.executeScriptContent(request, response, scriptContent, jsreq.template, jsreq.spaceNodeRef,
-					jsreq.urlargs, jsreq.documentNodeRef, printOutput);
+					jsreq.urlargs, jsreq.documentNodeRef, jsreq.templateDownload, printOutput, parentSpan);
 		}
 		return result;
 	}
@@ -356,8 +644,11 @@ public class ExecuteWebscript extends AbstractWebScript {
 	 * @param template        the template
 	 * @param spaceNodeRef    the space node ref
 	 * @param urlargs         the urlargs
-	 * @param documentNodeRef the document node ref
-	 * @param printOutput     the print output
+	 * @param documentNodeRef  the document node ref
+	 * @param templateDownload whether the rendered template should always be
+	 *                         provided as a download
+	 * @param printOutput      the print output
+	 * @param parentSpan       the parent performance span
 	 * @return the javascript console result
 	 */
 	/*
@@ -368,7 +659,8 @@ public class ExecuteWebscript extends AbstractWebScript {
 	 */
 	private JavascriptConsoleResult executeScriptContent(final WebScriptRequest req, final WebScriptResponse res,
 			final ScriptContent scriptContent, final String template, final String spaceNodeRef,
-			final Map<String, String> urlargs, final String documentNodeRef, final List<String> printOutput) {
+			final Map<String, String> urlargs, final String documentNodeRef, final boolean templateDownload,
+			final List<String> printOutput, final PerfSpan parentSpan) {
 		final JavascriptConsoleResult output = new JavascriptConsoleResult();
 
 		// retrieve requested format
@@ -376,6 +668,7 @@ public class ExecuteWebscript extends AbstractWebScript {
 
 		try {
 			// construct model for script / template
+			final PerfSpan modelBuildingSpan = parentSpan.startChild(SPAN_MODEL_BUILDING);
 			final Status status = new Status();
 			final Cache cache = new Cache(this.getDescription().getRequiredCache());
 			final Map<String, Object> model = new HashMap<>(8, 1.0f);
@@ -393,50 +686,60 @@ public class ExecuteWebscript extends AbstractWebScript {
 			final JavascriptConsoleScriptObject javascriptConsole = printOutput == null
 					? new JavascriptConsoleScriptObject()
 					: new JavascriptConsoleScriptObject(printOutput);
+			javascriptConsole.setBenchmarkRunner(this.benchmarkRunner);
 			scriptModel.put("jsconsole", javascriptConsole);
 
+			// space and document are only resolved into script nodes on first access - the
+			// pre-roll script replaces the placeholders with resolving accessors
+			NodeRef requestedSpaceRef = null;
 			if (spaceNodeRef != null && !spaceNodeRef.trim().isEmpty()) {
-				javascriptConsole.setSpace(this.scriptUtils.getNodeFromString(spaceNodeRef));
+				requestedSpaceRef = new NodeRef(spaceNodeRef.trim());
+				javascriptConsole.setSpaceNodeRef(requestedSpaceRef);
 			} else {
 				final Object ch = scriptModel.get("companyhome");
-				if (ch instanceof NodeRef) {
-					javascriptConsole.setSpace(this.scriptUtils.getNodeFromString(ch.toString()));
-				} else {
+				if (ch instanceof ScriptNode) {
 					javascriptConsole.setSpace((ScriptNode) ch);
+				} else if (ch instanceof NodeRef) {
+					javascriptConsole.setSpaceNodeRef((NodeRef) ch);
 				}
 			}
-			scriptModel.put("space", javascriptConsole.getSpace());
+			scriptModel.put("space", null);
 
-			ScriptNode documentNode = null;
+			NodeRef documentRef = null;
 			if (documentNodeRef != null && !documentNodeRef.trim().isEmpty()) {
-				documentNode = this.scriptUtils.getNodeFromString(documentNodeRef);
-				scriptModel.put("document", documentNode);
+				documentRef = new NodeRef(documentNodeRef.trim());
+				javascriptConsole.setDocumentNodeRef(documentRef);
+				scriptModel.put("document", null);
 			}
 			scriptModel.put("dumpService", this.dumpService);
+			this.consoleScriptScope.addHelpers(scriptModel);
+			modelBuildingSpan.stop();
 
-			final PerfLog jsPerf = new PerfLog().start();
+			final PerfSpan scriptSpan = parentSpan.startChild(SPAN_SCRIPT);
 			try {
 				final ScriptProcessor scriptProcessor = this.getContainer().getScriptProcessorRegistry()
 						.getScriptProcessorByExtension("js");
 				scriptProcessor.executeScript(scriptContent, scriptModel);
 			} finally {
-				output.setScriptPerformance(String.valueOf(
-						jsPerf.stop("Took {} ms to execute script in {} with model {}", scriptContent, scriptModel)));
+				scriptSpan.stop();
 				output.setPrintOutput(javascriptConsole.getPrintOutput());
-				if (documentNode != null) {
-					output.setDumpOutput(this.dumpService.addDump(documentNode));
+				output.setDumpExports(javascriptConsole.getDumpExports());
+				if (documentRef != null) {
+					final PerfSpan dumpsSpan = parentSpan.startChild(SPAN_DUMPS);
+					output.setDumpOutput(this.dumpService.addDump(documentRef));
+					dumpsSpan.stop();
 				}
 			}
 
-			final ScriptNode newSpace = javascriptConsole.getSpace();
-			final NodeRef newSpaceRef = newSpace.getNodeRef();
-			output.setSpaceNodeRef(newSpaceRef.toString());
-			try {
-				output.setSpacePath(
-						this.nodeService.getPath(newSpaceRef).toDisplayPath(this.nodeService, this.permissionService)
-								+ "/" + this.nodeService.getProperty(newSpaceRef, ContentModel.PROP_NAME));
-			} catch (final AccessDeniedException ade) {
-				output.setSpacePath("/");
+			final NodeRef newSpaceRef = javascriptConsole.getSpaceNodeRef();
+			if (newSpaceRef != null) {
+				output.setSpaceNodeRef(newSpaceRef.toString());
+				// the client already displays the path of the space it sent
+				if (!newSpaceRef.equals(requestedSpaceRef)) {
+					final PerfSpan spacePathSpan = parentSpan.startChild(SPAN_SPACE_PATH);
+					output.setSpacePath(this.getDisplayPath(newSpaceRef));
+					spacePathSpan.stop();
+				}
 			}
 
 			this.mergeScriptModelIntoTemplateModel(scriptContent, returnModel, model);
@@ -457,16 +760,26 @@ public class ExecuteWebscript extends AbstractWebScript {
 				}
 
 				if (template != null && !template.trim().isEmpty()) {
-					final PerfLog freemarkerPerf = new PerfLog().start();
-					final TemplateProcessor templateProcessor = this.getContainer().getTemplateProcessorRegistry()
-							.getTemplateProcessorByExtension("ftl");
-					final StringWriter sw = new StringWriter();
-					templateProcessor.processString(template, templateModel, sw);
-					final String templateResult = sw.toString();
-					output.setFreemarkerPerformance(String.valueOf(
-							freemarkerPerf.stop("Took {} ms to execute template {} with model {} with result {}",
-									template, templateModel, templateResult)));
-					output.setRenderedTemplate(templateResult);
+					final PerfSpan templateSpan = parentSpan.startChild(SPAN_TEMPLATE);
+					final SpillingTemplateWriter templateWriter = this.createTemplateWriter(templateDownload);
+					boolean rendered = false;
+					try {
+						this.renderTemplate(template, templateModel, templateSpan, output, templateWriter);
+						templateWriter.close();
+						rendered = true;
+					} finally {
+						if (!rendered) {
+							templateWriter.discard();
+						}
+					}
+					templateSpan.stop();
+
+					if (templateWriter.isSpilled()) {
+						output.setRenderedTemplateExport(this.exportStore.getDownloadUrl(templateWriter.getExportId()),
+								templateWriter.getExportFile().length());
+					} else {
+						output.setRenderedTemplate(templateWriter.getInlineOutput());
+					}
 				}
 			}
 		} catch (final Exception e) {
@@ -476,6 +789,80 @@ public class ExecuteWebscript extends AbstractWebScript {
 		return output;
 	}
 
+	/**
+	 * Gets the display path of a space including the name of the space.
+	 *
+	 * @param spaceRef the space node ref
+	 * @return the display path ("/" if the path is not accessible)
+	 */
+	protected String getDisplayPath(final NodeRef spaceRef) {
+		try {
+			return this.nodeService.getPath(spaceRef).toDisplayPath(this.nodeService, this.permissionService) + "/"
+					+ this.nodeService.getProperty(spaceRef, ContentModel.PROP_NAME);
+		} catch (final AccessDeniedException ade) {
+			return "/";
+		}
+	}
+
+	/**
+	 * Creates the writer for the rendered template. Without an export store the
+	 * template is always rendered in memory.
+	 *
+	 * @param templateDownload whether the rendered template should always be
+	 *                         provided as a download
+	 * @return the template writer
+	 */
+	protected SpillingTemplateWriter createTemplateWriter(final boolean templateDownload) {
+		if (this.exportStore == null) {
+			return new SpillingTemplateWriter(null, null, Long.MAX_VALUE, this.templateMaxSize);
+		}
+		return new SpillingTemplateWriter(this.exportStore, TEMPLATE_EXPORT_EXTENSION,
+				templateDownload ? 0 : this.templateInlineLimit, this.templateMaxSize);
+	}
+
+	/**
+	 * Renders a console template. If the FreeMarker template processor exposes
+	 * its configuration, the parsed template is taken from / put into the
+	 * template cache, so repeated executions of the same template only pay for
+	 * rendering. Otherwise the template processor parses the template on every
+	 * execution.
+	 *
+	 * @param template      the template source
+	 * @param templateModel the template model
+	 * @param templateSpan  the template performance span
+	 * @param output        the result to record the template cache outcome in
+	 * @param writer        the writer to render the template to
+	 * @throws IOException       Signals that an I/O exception has occurred.
+	 * @throws TemplateException if the template cannot be rendered
+	 */
+	protected void renderTemplate(final String template, final Map<String, Object> templateModel,
+			final PerfSpan templateSpan, final JavascriptConsoleResultBase output, final Writer writer)
+			throws IOException, TemplateException {
+		final TemplateProcessor templateProcessor = this.getContainer().getTemplateProcessorRegistry()
+				.getTemplateProcessorByExtension("ftl");
+
+		if (this.templateCache == null || !(templateProcessor instanceof FTLTemplateProcessor)) {
+			final PerfSpan renderSpan = templateSpan.startChild(SPAN_TEMPLATE_RENDER);
+			templateProcessor.processString(template, templateModel, writer);
+			renderSpan.stop();
+			return;
+		}
+
+		final Configuration configuration = ((FTLTemplateProcessor) templateProcessor).getConfig();
+		Template parsedTemplate = this.templateCache.get(template, configuration);
+		output.setTemplateCacheHit(parsedTemplate != null);
+		if (parsedTemplate == null) {
+			final PerfSpan parseSpan = templateSpan.startChild(SPAN_TEMPLATE_PARSE);
+			parsedTemplate = this.templateCache.parse(template, configuration);
+			parseSpan.stop();
+		}
+
+		final PerfSpan renderSpan = templateSpan.startChild(SPAN_TEMPLATE_RENDER);
+		parsedTemplate.process(templateModel, writer);
+		renderSpan.stop();
+		output.setTemplateCacheStatistics(this.templateCache.getHits(), this.templateCache.getMisses());
+	}
+
 	/**
 	 * Augment script model args.
 	 *
@@ -592,6 +979,60 @@ public class ExecuteWebscript extends AbstractWebScript {
 		this.resultCache = resultCache;
 	}
 
+	/**
+	 * Sets the result channel registry.
+	 *
+	 * @param resultChannelRegistry the resultChannelRegistry to set
+	 */
+	public final void setResultChannelRegistry(final ResultChannelRegistry resultChannelRegistry) {
+		this.resultChannelRegistry = resultChannelRegistry;
+	}
+
+	/**
+	 * Sets the execution metrics.
+	 *
+	 * @param executionMetrics the executionMetrics to set
+	 */
+	public final void setExecutionMetrics(final ExecutionMetrics executionMetrics) {
+		this.executionMetrics = executionMetrics;
+	}
+
+	/**
+	 * Sets the script profiler.
+	 *
+	 * @param scriptProfiler the scriptProfiler to set
+	 */
+	public final void setScriptProfiler(final ScriptProfiler scriptProfiler) {
+		this.scriptProfiler = scriptProfiler;
+	}
+
+	/**
+	 * Sets the benchmark runner.
+	 *
+	 * @param benchmarkRunner the benchmarkRunner to set
+	 */
+	public final void setBenchmarkRunner(final BenchmarkRunner benchmarkRunner) {
+		this.benchmarkRunner = benchmarkRunner;
+	}
+
+	/**
+	 * Sets the number of repository service methods reported in the result.
+	 *
+	 * @param repositoryCallsTopN the repositoryCallsTopN to set
+	 */
+	public final void setRepositoryCallsTopN(final int repositoryCallsTopN) {
+		this.repositoryCallsTopN = repositoryCallsTopN;
+	}
+
+	/**
+	 * Sets the max number of bytes a script may allocate.
+	 *
+	 * @param allocationBudgetBytes the allocationBudgetBytes to set
+	 */
+	public final void setAllocationBudgetBytes(final long allocationBudgetBytes) {
+		this.allocationBudgetBytes = allocationBudgetBytes;
+	}
+
 	/**
 	 * Sets the prints the output chunk size.
 	 *
@@ -601,6 +1042,89 @@ public class ExecuteWebscript extends AbstractWebScript {
 		this.printOutputChunkSize = printOutputChunkSize;
 	}
 
+	/**
+	 * Sets the cache of parsed console templates.
+	 *
+	 * @param templateCache the templateCache to set
+	 */
+	public void setTemplateCache(final TemplateCache templateCache) {
+		this.templateCache = templateCache;
+	}
+
+	/**
+	 * Sets the export store for rendered templates exceeding the inline limit.
+	 *
+	 * @param exportStore the exportStore to set
+	 */
+	public void setExportStore(final JsConsoleExportStore exportStore) {
+		this.exportStore = exportStore;
+	}
+
+	/**
+	 * Sets the max number of characters of a rendered template returned inline
+	 * in the result.
+	 *
+	 * @param templateInlineLimit the templateInlineLimit to set
+	 */
+	public void setTemplateInlineLimit(final long templateInlineLimit) {
+		this.templateInlineLimit = templateInlineLimit;
+	}
+
+	/**
+	 * Sets the max number of characters of a rendered template.
+	 *
+	 * @param templateMaxSize the templateMaxSize to set
+	 */
+	public void setTemplateMaxSize(final long templateMaxSize) {
+		this.templateMaxSize = templateMaxSize;
+	}
+
+	/**
+	 * Sets the max size of the request body in bytes (0 for unlimited).
+	 *
+	 * @param maxRequestSize the maxRequestSize to set
+	 */
+	public void setMaxRequestSize(final long maxRequestSize) {
+		this.maxRequestSize = maxRequestSize;
+	}
+
+	/**
+	 * Sets the max length of request fields other than script and template (0
+	 * for unlimited).
+	 *
+	 * @param maxRequestFieldLength the maxRequestFieldLength to set
+	 */
+	public void setMaxRequestFieldLength(final int maxRequestFieldLength) {
+		this.maxRequestFieldLength = maxRequestFieldLength;
+	}
+
+	/**
+	 * Sets the response compression.
+	 *
+	 * @param responseCompression the responseCompression to set
+	 */
+	public void setResponseCompression(final ResponseCompression responseCompression) {
+		this.responseCompression = responseCompression;
+	}
+
+	/**
+	 * Sets the store of uploaded scripts and templates.
+	 *
+	 * @param scriptStore the scriptStore to set
+	 */
+	public void setScriptStore(final ScriptStore scriptStore) {
+		this.scriptStore = scriptStore;
+	}
+
+	/**
+	 * Sets the shared scope with the console helper functions.
+	 *
+	 * @param consoleScriptScope the consoleScriptScope to set
+	 */
+	public void setConsoleScriptScope(final ConsoleScriptScope consoleScriptScope) {
+		this.consoleScriptScope = consoleScriptScope;
+	}
+
 	/**
 	 * Sets the dump service.
 	 *
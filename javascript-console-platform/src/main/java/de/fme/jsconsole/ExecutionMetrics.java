@@ -0,0 +1,524 @@
+package de.fme.jsconsole;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aggregates metrics of JavaScript Console executions in lock-free histograms,
+ * split by user, transaction mode and outcome. The number of distinct users
+ * tracked is limited - executions of any additional users are aggregated under
+ * a common "other" user.
+ */
+public class ExecutionMetrics implements ExecutionStatistics {
+
+	/** The transaction mode of executions without a transaction. */
+	public static final String TRANSACTION_NONE = "none";
+
+	/** The transaction mode of executions in a read-only transaction. */
+	public static final String TRANSACTION_READ_ONLY = "readonly";
+
+	/** The transaction mode of executions in a read-write transaction. */
+	public static final String TRANSACTION_READ_WRITE = "readwrite";
+
+	/** The outcome of successful executions. */
+	public static final String OUTCOME_SUCCESS = "success";
+
+	/** The outcome of failed executions. */
+	public static final String OUTCOME_FAILURE = "failure";
+
+	/** The user label used once the max number of distinct users is reached. */
+	public static final String OTHER_USER = "other";
+
+	/** The metrics by key. */
+	private final ConcurrentMap<MetricsKey, MetricSet> metrics = new ConcurrentHashMap<>();
+
+	/** The metrics aggregated over all keys. */
+	private final MetricSet totals = new MetricSet();
+
+	/** The number of failed executions. */
+	private final AtomicLong failures = new AtomicLong();
+
+	/** The number of compressed responses. */
+	private final AtomicLong compressedResponses = new AtomicLong();
+
+	/** The uncompressed bytes of compressed responses. */
+	private final AtomicLong compressionInputBytes = new AtomicLong();
+
+	/** The compressed bytes of compressed responses. */
+	private final AtomicLong compressionOutputBytes = new AtomicLong();
+
+	/** The max number of distinct users to track. */
+	private int maxUsers = 100;
+
+	/**
+	 * Records the metrics of a single execution.
+	 *
+	 * @param user              the user running the script
+	 * @param transactionMode   the transaction mode
+	 * @param outcome           the outcome
+	 * @param scriptNanos       the script time in nanoseconds
+	 * @param templateNanos     the template time in nanoseconds
+	 * @param endToEndNanos     the end-to-end time in nanoseconds
+	 * @param scriptCpuNanos    the thread CPU time of the script in nanoseconds
+	 * @param scriptAllocated   the bytes allocated by the script
+	 * @param printOutputLines  the number of print output lines
+	 * @param dumps             the number of dumps
+	 */
+	public void recordExecution(final String user, final String transactionMode, final String outcome,
+			final long scriptNanos, final long templateNanos, final long endToEndNanos, final long scriptCpuNanos,
+			final long scriptAllocated, final long printOutputLines, final long dumps) {
+		MetricsKey key = new MetricsKey(user != null ? user : OTHER_USER, transactionMode, outcome);
+		MetricSet metricSet = this.metrics.get(key);
+		if (metricSet == null) {
+			if (this.countUsers() >= this.maxUsers && !this.isUserTracked(key.user)) {
+				key = new MetricsKey(OTHER_USER, transactionMode, outcome);
+			}
+			metricSet = this.metrics.computeIfAbsent(key, k -> new MetricSet());
+		}
+
+		metricSet.record(scriptNanos, templateNanos, endToEndNanos, scriptCpuNanos, scriptAllocated,
+				printOutputLines, dumps);
+		this.totals.record(scriptNanos, templateNanos, endToEndNanos, scriptCpuNanos, scriptAllocated,
+				printOutputLines, dumps);
+		if (OUTCOME_FAILURE.equals(outcome)) {
+			this.failures.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Records the compression of a response.
+	 *
+	 * @param uncompressedBytes the uncompressed size in bytes
+	 * @param compressedBytes   the compressed size in bytes
+	 */
+	public void recordResponseCompression(final long uncompressedBytes, final long compressedBytes) {
+		this.compressedResponses.incrementAndGet();
+		this.compressionInputBytes.addAndGet(uncompressedBytes);
+		this.compressionOutputBytes.addAndGet(compressedBytes);
+	}
+
+	/**
+	 * Gets a snapshot of the metrics by key, sorted by user, transaction mode and
+	 * outcome.
+	 *
+	 * @return the metrics
+	 */
+	public Map<MetricsKey, MetricSet> getMetrics() {
+		final Map<MetricsKey, MetricSet> snapshot = new TreeMap<>(this.metrics);
+		return Collections.unmodifiableMap(snapshot);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getExecutionCount() {
+		return this.totals.endToEndTime.getCount();
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getFailureCount() {
+		return this.failures.get();
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getEndToEndMedianMillis() {
+		return PerfSpan.toMillis(this.totals.endToEndTime.getValueAtPercentile(50));
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getEndToEnd99thPercentileMillis() {
+		return PerfSpan.toMillis(this.totals.endToEndTime.getValueAtPercentile(99));
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getEndToEndMaxMillis() {
+		return PerfSpan.toMillis(this.totals.endToEndTime.getMax());
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getScript99thPercentileMillis() {
+		return PerfSpan.toMillis(this.totals.scriptTime.getValueAtPercentile(99));
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getTemplate99thPercentileMillis() {
+		return PerfSpan.toMillis(this.totals.templateTime.getValueAtPercentile(99));
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getScriptCpu99thPercentileMillis() {
+		return PerfSpan.toMillis(this.totals.scriptCpuTime.getValueAtPercentile(99));
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getScriptAllocated99thPercentileBytes() {
+		return this.totals.scriptAllocatedBytes.getValueAtPercentile(99);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getScriptAllocatedBytes() {
+		return this.totals.scriptAllocatedBytes.getSum();
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getPrintOutputLines() {
+		return this.totals.printOutputLines.getSum();
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getDumps() {
+		return this.totals.dumps.getSum();
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getCompressedResponses() {
+		return this.compressedResponses.get();
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getCompressionSavedBytes() {
+		return this.compressionInputBytes.get() - this.compressionOutputBytes.get();
+	}
+
+	/**
+	 * Gets the uncompressed bytes of all compressed responses.
+	 *
+	 * @return the uncompressed bytes
+	 */
+	public long getCompressionInputBytes() {
+		return this.compressionInputBytes.get();
+	}
+
+	/**
+	 * Gets the compressed bytes of all compressed responses.
+	 *
+	 * @return the compressed bytes
+	 */
+	public long getCompressionOutputBytes() {
+		return this.compressionOutputBytes.get();
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void resetStatistics() {
+		this.metrics.clear();
+		this.totals.reset();
+		this.failures.set(0);
+		this.compressedResponses.set(0);
+		this.compressionInputBytes.set(0);
+		this.compressionOutputBytes.set(0);
+	}
+
+	/**
+	 * Sets the max number of distinct users to track.
+	 *
+	 * @param maxUsers the maxUsers to set
+	 */
+	public void setMaxUsers(final int maxUsers) {
+		this.maxUsers = maxUsers;
+	}
+
+	/**
+	 * Counts the distinct users currently tracked.
+	 *
+	 * @return the number of users
+	 */
+	private int countUsers() {
+		return (int) this.metrics.keySet().stream().map(MetricsKey::getUser).distinct().count();
+	}
+
+	/**
+	 * Checks if a user is currently tracked.
+	 *
+	 * @param user the user
+	 * @return true, if tracked
+	 */
+	private boolean isUserTracked(final String user) {
+		return this.metrics.keySet().stream().anyMatch(key -> key.user.equals(user));
+	}
+
+	/**
+	 * The key of a set of metrics.
+	 */
+	public static class MetricsKey implements Comparable<MetricsKey> {
+
+		/** The user. */
+		private final String user;
+
+		/** The transaction mode. */
+		private final String transactionMode;
+
+		/** The outcome. */
+		private final String outcome;
+
+		/**
+		 * Instantiates a new metrics key.
+		 *
+		 * @param user            the user
+		 * @param transactionMode the transaction mode
+		 * @param outcome         the outcome
+		 */
+		public MetricsKey(final String user, final String transactionMode, final String outcome) {
+			this.user = user;
+			this.transactionMode = transactionMode;
+			this.outcome = outcome;
+		}
+
+		/**
+		 * Gets the user.
+		 *
+		 * @return the user
+		 */
+		public String getUser() {
+			return this.user;
+		}
+
+		/**
+		 * Gets the transaction mode.
+		 *
+		 * @return the transaction mode
+		 */
+		public String getTransactionMode() {
+			return this.transactionMode;
+		}
+
+		/**
+		 * Gets the outcome.
+		 *
+		 * @return the outcome
+		 */
+		public String getOutcome() {
+			return this.outcome;
+		}
+
+		/**
+		 *
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int compareTo(final MetricsKey other) {
+			int result = this.user.compareTo(other.user);
+			if (result == 0) {
+				result = this.transactionMode.compareTo(other.transactionMode);
+			}
+			if (result == 0) {
+				result = this.outcome.compareTo(other.outcome);
+			}
+			return result;
+		}
+
+		/**
+		 *
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.user, this.transactionMode, this.outcome);
+		}
+
+		/**
+		 *
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (obj == null || this.getClass() != obj.getClass()) {
+				return false;
+			}
+			final MetricsKey other = (MetricsKey) obj;
+			return this.user.equals(other.user) && this.transactionMode.equals(other.transactionMode)
+					&& this.outcome.equals(other.outcome);
+		}
+	}
+
+	/**
+	 * The histograms of a set of executions.
+	 */
+	public static class MetricSet {
+
+		/** The script time in nanoseconds. */
+		private final LatencyHistogram scriptTime = new LatencyHistogram();
+
+		/** The template time in nanoseconds. */
+		private final LatencyHistogram templateTime = new LatencyHistogram();
+
+		/** The end-to-end time in nanoseconds. */
+		private final LatencyHistogram endToEndTime = new LatencyHistogram();
+
+		/** The thread CPU time of the script in nanoseconds. */
+		private final LatencyHistogram scriptCpuTime = new LatencyHistogram();
+
+		/** The bytes allocated by the script. */
+		private final LatencyHistogram scriptAllocatedBytes = new LatencyHistogram();
+
+		/** The print output lines. */
+		private final LatencyHistogram printOutputLines = new LatencyHistogram();
+
+		/** The dumps. */
+		private final LatencyHistogram dumps = new LatencyHistogram();
+
+		/**
+		 * Records the metrics of a single execution.
+		 *
+		 * @param scriptNanos      the script time in nanoseconds
+		 * @param templateNanos    the template time in nanoseconds
+		 * @param endToEndNanos    the end-to-end time in nanoseconds
+		 * @param scriptCpuNanos   the thread CPU time of the script in nanoseconds
+		 * @param scriptAllocated  the bytes allocated by the script
+		 * @param printOutputLines the number of print output lines
+		 * @param dumpCount        the number of dumps
+		 */
+		protected void record(final long scriptNanos, final long templateNanos, final long endToEndNanos,
+				final long scriptCpuNanos, final long scriptAllocated, final long printOutputLines,
+				final long dumpCount) {
+			this.scriptTime.record(scriptNanos);
+			this.templateTime.record(templateNanos);
+			this.endToEndTime.record(endToEndNanos);
+			this.scriptCpuTime.record(scriptCpuNanos);
+			this.scriptAllocatedBytes.record(scriptAllocated);
+			this.printOutputLines.record(printOutputLines);
+			this.dumps.record(dumpCount);
+		}
+
+		/**
+		 * Resets all histograms.
+		 */
+		protected void reset() {
+			this.scriptTime.reset();
+			this.templateTime.reset();
+			this.endToEndTime.reset();
+			this.scriptCpuTime.reset();
+			this.scriptAllocatedBytes.reset();
+			this.printOutputLines.reset();
+			this.dumps.reset();
+		}
+
+		/**
+		 * Gets the script time histogram (nanoseconds).
+		 *
+		 * @return the script time
+		 */
+		public LatencyHistogram getScriptTime() {
+			return this.scriptTime;
+		}
+
+		/**
+		 * Gets the template time histogram (nanoseconds).
+		 *
+		 * @return the template time
+		 */
+		public LatencyHistogram getTemplateTime() {
+			return this.templateTime;
+		}
+
+		/**
+		 * Gets the end-to-end time histogram (nanoseconds).
+		 *
+		 * @return the end-to-end time
+		 */
+		public LatencyHistogram getEndToEndTime() {
+			return this.endToEndTime;
+		}
+
+		/**
+		 * Gets the script CPU time histogram (nanoseconds).
+		 *
+		 * @return the script CPU time
+		 */
+		public LatencyHistogram getScriptCpuTime() {
+			return this.scriptCpuTime;
+		}
+
+		/**
+		 * Gets the script allocated bytes histogram.
+		 *
+		 * @return the script allocated bytes
+		 */
+		public LatencyHistogram getScriptAllocatedBytes() {
+			return this.scriptAllocatedBytes;
+		}
+
+		/**
+		 * Gets the print output lines histogram.
+		 *
+		 * @return the print output lines
+		 */
+		public LatencyHistogram getPrintOutputLines() {
+			return this.printOutputLines;
+		}
+
+		/**
+		 * Gets the dumps histogram.
+		 *
+		 * @return the dumps
+		 */
+		public LatencyHistogram getDumps() {
+			return this.dumps;
+		}
+	}
+}
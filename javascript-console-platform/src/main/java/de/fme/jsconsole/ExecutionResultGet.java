@@ -31,6 +31,12 @@ public class ExecutionResultGet extends AbstractWebScript implements Initializin
 	/** The result cache. */
 	private SimpleCache<String, JavascriptConsoleResultBase> resultCache;
 
+	/** The result channel registry. */
+	private ResultChannelRegistry resultChannelRegistry;
+
+	/** The response compression (null to write uncompressed responses). */
+	private ResponseCompression responseCompression;
+
 	/**
 	 *
 	 * {@inheritDoc}
@@ -39,6 +45,7 @@ public class ExecutionResultGet extends AbstractWebScript implements Initializin
 	public void afterPropertiesSet() {
 		PropertyCheck.mandatory(this, "printOutputCache", this.printOutputCache);
 		PropertyCheck.mandatory(this, "resultCache", this.resultCache);
+		PropertyCheck.mandatory(this, "resultChannelRegistry", this.resultChannelRegistry);
 	}
 
 	/**
@@ -59,6 +66,24 @@ public class ExecutionResultGet extends AbstractWebScript implements Initializin
 		this.resultCache = resultCache;
 	}
 
+	/**
+	 * Sets the result channel registry.
+	 *
+	 * @param resultChannelRegistry the resultChannelRegistry to set
+	 */
+	public final void setResultChannelRegistry(final ResultChannelRegistry resultChannelRegistry) {
+		this.resultChannelRegistry = resultChannelRegistry;
+	}
+
+	/**
+	 * Sets the response compression.
+	 *
+	 * @param responseCompression the responseCompression to set
+	 */
+	public final void setResponseCompression(final ResponseCompression responseCompression) {
+		this.responseCompression = responseCompression;
+	}
+
 	/**
 	 *
 	 * {@inheritDoc}
@@ -72,16 +97,7 @@ public class ExecutionResultGet extends AbstractWebScript implements Initializin
 			final JavascriptConsoleResultBase result = this.resultCache.get(resultChannel);
 			final List<String> printOutput = new ArrayList<>();
 			try {
-				for (int chunk = 0; chunk < Integer.MAX_VALUE; chunk++) {
-					final Pair<String, Integer> chunkKey = new Pair<>(resultChannel, Integer.valueOf(chunk));
-					final List<String> chunkOutput = this.printOutputCache.get(chunkKey);
-					if (chunkOutput != null) {
-						printOutput.addAll(chunkOutput);
-					} else {
-						break;
-					}
-				}
-
+				readPrintOutput(this.printOutputCache, resultChannel, printOutput);
 			} finally {
 				if (result != null) {
 					// check for dummy error result
@@ -94,27 +110,22 @@ public class ExecutionResultGet extends AbstractWebScript implements Initializin
 							jsonOutput.put("printOutput", printOutput);
 							jsonOutput.put("error", Boolean.TRUE);
 
-							response.getWriter().write(jsonOutput.toString());
+							ResponseCompression.write(this.responseCompression, request, response,
+									jsonOutput.toString());
 
 						} catch (final JSONException e) {
 							throw new WebScriptException(Status.STATUS_INTERNAL_SERVER_ERROR,
 									"Error writing json response.", e);
 						}
 					} else {
-						result.writeJson(response, printOutput);
+						result.writeJson(request, response, printOutput, this.responseCompression);
 					}
 
 					// clear all data
-					this.resultCache.remove(resultChannel);
-					for (int chunk = 0; chunk < Integer.MAX_VALUE; chunk++) {
-						final Pair<String, Integer> chunkKey = new Pair<>(resultChannel, Integer.valueOf(chunk));
-						if (this.printOutputCache.contains(chunkKey)) {
-							this.printOutputCache.remove(chunkKey);
-						} else {
-							break;
-						}
-					}
+					this.resultChannelRegistry.purgeChannel(resultChannel);
 				} else {
+					this.resultChannelRegistry.channelPolled(resultChannel);
+
 					response.setContentEncoding("UTF-8");
 					response.setContentType(MimetypeMap.MIMETYPE_JSON);
 
@@ -122,7 +133,8 @@ public class ExecutionResultGet extends AbstractWebScript implements Initializin
 						final JSONObject jsonOutput = new JSONObject();
 						jsonOutput.put("printOutput", printOutput);
 
-						response.getWriter().write(jsonOutput.toString());
+						ResponseCompression.write(this.responseCompression, request, response,
+								jsonOutput.toString());
 
 					} catch (final JSONException e) {
 						throw new WebScriptException(Status.STATUS_INTERNAL_SERVER_ERROR,
@@ -134,4 +146,25 @@ public class ExecutionResultGet extends AbstractWebScript implements Initializin
 			throw new WebScriptException(Status.STATUS_BAD_REQUEST, "The print output channel has not been specified");
 		}
 	}
+
+	/**
+	 * Reads the print output of a result channel, i.e. all consecutive chunks
+	 * currently in the print output cache.
+	 *
+	 * @param printOutputCache the print output cache
+	 * @param resultChannel    the result channel
+	 * @param printOutput      the list to add the print output to
+	 */
+	protected static void readPrintOutput(final SimpleCache<Pair<String, Integer>, List<String>> printOutputCache,
+			final String resultChannel, final List<String> printOutput) {
+		for (int chunk = 0; chunk < Integer.MAX_VALUE; chunk++) {
+			final Pair<String, Integer> chunkKey = new Pair<>(resultChannel, Integer.valueOf(chunk));
+			final List<String> chunkOutput = printOutputCache.get(chunkKey);
+			if (chunkOutput != null) {
+				printOutput.addAll(chunkOutput);
+			} else {
+				break;
+			}
+		}
+	}
 }
@@ -0,0 +1,113 @@
+package de.fme.jsconsole;
+
+/**
+ * Management interface of the aggregated JavaScript Console execution metrics.
+ * This interface is used to expose the metrics via JMX.
+ */
+public interface ExecutionStatistics {
+
+	/**
+	 * Gets the number of executions.
+	 *
+	 * @return the execution count
+	 */
+	long getExecutionCount();
+
+	/**
+	 * Gets the number of failed executions.
+	 *
+	 * @return the failure count
+	 */
+	long getFailureCount();
+
+	/**
+	 * Gets the median end-to-end time of executions in milliseconds.
+	 *
+	 * @return the median end-to-end time
+	 */
+	double getEndToEndMedianMillis();
+
+	/**
+	 * Gets the 99th percentile of the end-to-end time of executions in
+	 * milliseconds.
+	 *
+	 * @return the 99th percentile of the end-to-end time
+	 */
+	double getEndToEnd99thPercentileMillis();
+
+	/**
+	 * Gets the max end-to-end time of executions in milliseconds.
+	 *
+	 * @return the max end-to-end time
+	 */
+	double getEndToEndMaxMillis();
+
+	/**
+	 * Gets the 99th percentile of the script time of executions in milliseconds.
+	 *
+	 * @return the 99th percentile of the script time
+	 */
+	double getScript99thPercentileMillis();
+
+	/**
+	 * Gets the 99th percentile of the template time of executions in
+	 * milliseconds.
+	 *
+	 * @return the 99th percentile of the template time
+	 */
+	double getTemplate99thPercentileMillis();
+
+	/**
+	 * Gets the 99th percentile of the thread CPU time of scripts in milliseconds.
+	 *
+	 * @return the 99th percentile of the script CPU time
+	 */
+	double getScriptCpu99thPercentileMillis();
+
+	/**
+	 * Gets the 99th percentile of the bytes allocated by scripts.
+	 *
+	 * @return the 99th percentile of the script allocated bytes
+	 */
+	long getScriptAllocated99thPercentileBytes();
+
+	/**
+	 * Gets the total number of bytes allocated by the scripts of all executions.
+	 *
+	 * @return the script allocated bytes
+	 */
+	long getScriptAllocatedBytes();
+
+	/**
+	 * Gets the total number of print output lines of all executions.
+	 *
+	 * @return the total print output lines
+	 */
+	long getPrintOutputLines();
+
+	/**
+	 * Gets the total number of dumps of all executions.
+	 *
+	 * @return the total dumps
+	 */
+	long getDumps();
+
+	/**
+	 * Gets the number of compressed responses.
+	 *
+	 * @return the compressed responses
+	 */
+	long getCompressedResponses();
+
+	/**
+	 * Gets the total number of bytes saved by compressing responses.
+	 *
+	 * @return the saved bytes
+	 */
+	long getCompressionSavedBytes();
+
+	/**
+	 * Resets all metrics.
+	 */
+	void resetStatistics();
+}
@@ -0,0 +1,86 @@
+package de.fme.jsconsole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.alfresco.service.cmr.repository.MimetypeService;
+import org.alfresco.util.PropertyCheck;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.extensions.webscripts.AbstractWebScript;
+import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptException;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+import org.springframework.extensions.webscripts.WebScriptResponse;
+
+/**
+ * Web script to download an export (e.g. a NDJSON dump export) which has been
+ * written to a temporary file during a JavaScript Console execution.
+ */
+public class ExportGet extends AbstractWebScript implements InitializingBean {
+
+	/** The export store. */
+	private JsConsoleExportStore exportStore;
+
+	/** The mimetype service. */
+	private MimetypeService mimetypeService;
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		PropertyCheck.mandatory(this, "exportStore", this.exportStore);
+		PropertyCheck.mandatory(this, "mimetypeService", this.mimetypeService);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void execute(final WebScriptRequest request, final WebScriptResponse response) throws IOException {
+		final String exportId = request.getServiceMatch().getTemplateVars().get("exportId");
+
+		final File exportFile;
+		try {
+			exportFile = this.exportStore.getExportFile(exportId);
+		} catch (final IllegalArgumentException iae) {
+			throw new WebScriptException(Status.STATUS_BAD_REQUEST, iae.getMessage());
+		}
+
+		if (!exportFile.exists()) {
+			throw new WebScriptException(Status.STATUS_NOT_FOUND, "The export " + exportId + " does not exist");
+		}
+
+		final String extension = exportId.substring(exportId.lastIndexOf('.') + 1);
+		final String mimetype = "ndjson".equals(extension) ? DumpService.MIMETYPE_NDJSON
+				: this.mimetypeService.getMimetype(extension);
+
+		response.setContentType(mimetype);
+		response.setContentEncoding("UTF-8");
+		response.setHeader("Content-Disposition", "attachment; filename=\"" + exportId + "\"");
+		response.setHeader("Content-Length", String.valueOf(exportFile.length()));
+
+		Files.copy(exportFile.toPath(), response.getOutputStream());
+	}
+
+	/**
+	 * Sets the export store.
+	 *
+	 * @param exportStore the new export store
+	 */
+	public final void setExportStore(final JsConsoleExportStore exportStore) {
+		this.exportStore = exportStore;
+	}
+
+	/**
+	 * Sets the mimetype service.
+	 *
+	 * @param mimetypeService the new mimetype service
+	 */
+	public final void setMimetypeService(final MimetypeService mimetypeService) {
+		this.mimetypeService = mimetypeService;
+	}
+}
@@ -0,0 +1,464 @@
+package de.fme.jsconsole;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.alfresco.repo.cache.SimpleCache;
+import org.alfresco.util.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decorates a cache with counters for gets, hits, misses, puts and removes. In
+ * addition the entries put via this node are tracked with their approximate
+ * size and result channel, so that the number of live entries and bytes per
+ * cache / channel as well as evictions (entries which disappeared from the
+ * cache without being removed) can be reported. By default the size is
+ * estimated cheaply from the lengths of strings and lists; serializing each
+ * value to determine its exact serialized size is opt-in, since it doubles the
+ * serialization cost of every put.
+ */
+public class InstrumentedCache<K extends Serializable, V> implements SimpleCache<K, V>, CacheStatistics {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(InstrumentedCache.class);
+
+	/** The number of puts after which stale tracked entries are pruned. */
+	private static final int PRUNE_INTERVAL = 1000;
+
+	/** The estimated size of values other than strings, lists and results. */
+	private static final long DEFAULT_VALUE_SIZE = 64;
+
+	/** The cache name. */
+	private final String cacheName;
+
+	/** The backing cache. */
+	private final SimpleCache<K, V> backingCache;
+
+	/** The time after which a tracked entry is considered expired. */
+	private final long trackingTimeToLiveMillis;
+
+	/** Whether the size of values is estimated by serializing them. */
+	private final boolean serializedSizeEstimation;
+
+	/** The tracked live entries. */
+	private final Map<K, TrackedEntry> trackedEntries = new ConcurrentHashMap<>();
+
+	/** The approximate size of the tracked live entries. */
+	private final AtomicLong approximateSize = new AtomicLong();
+
+	/** The gets. */
+	private final AtomicLong gets = new AtomicLong();
+
+	/** The hits. */
+	private final AtomicLong hits = new AtomicLong();
+
+	/** The puts. */
+	private final AtomicLong puts = new AtomicLong();
+
+	/** The removes. */
+	private final AtomicLong removes = new AtomicLong();
+
+	/** The detected evictions. */
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Instantiates a new instrumented cache.
+	 *
+	 * @param cacheName                 the cache name
+	 * @param backingCache              the backing cache
+	 * @param trackingTimeToLiveSeconds the time to live of the backing cache
+	 *                                  entries in seconds, after which tracked
+	 *                                  entries are considered expired (0 to
+	 *                                  disable)
+	 */
+	public InstrumentedCache(final String cacheName, final SimpleCache<K, V> backingCache,
+			final int trackingTimeToLiveSeconds) {
+		this(cacheName, backingCache, trackingTimeToLiveSeconds, false);
+	}
+
+	/**
+	 * Instantiates a new instrumented cache.
+	 *
+	 * @param cacheName                 the cache name
+	 * @param backingCache              the backing cache
+	 * @param trackingTimeToLiveSeconds the time to live of the backing cache
+	 *                                  entries in seconds, after which tracked
+	 *                                  entries are considered expired (0 to
+	 *                                  disable)
+	 * @param serializedSizeEstimation  whether the size of values is estimated
+	 *                                  by serializing them instead of from the
+	 *                                  lengths of strings and lists
+	 */
+	public InstrumentedCache(final String cacheName, final SimpleCache<K, V> backingCache,
+			final int trackingTimeToLiveSeconds, final boolean serializedSizeEstimation) {
+		this.cacheName = cacheName;
+		this.backingCache = backingCache;
+		this.trackingTimeToLiveMillis = trackingTimeToLiveSeconds * 1000L;
+		this.serializedSizeEstimation = serializedSizeEstimation;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final K key) {
+		return this.backingCache.contains(key);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Collection<K> getKeys() {
+		return this.backingCache.getKeys();
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V get(final K key) {
+		this.gets.incrementAndGet();
+		final V value = this.backingCache.get(key);
+		if (value != null) {
+			this.hits.incrementAndGet();
+		} else {
+			// an entry we put ourselves has vanished without a remove
+			final TrackedEntry entry = this.trackedEntries.remove(key);
+			if (entry != null) {
+				this.approximateSize.addAndGet(-entry.size);
+				this.evictions.incrementAndGet();
+			}
+		}
+		return value;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void put(final K key, final V value) {
+		this.backingCache.put(key, value);
+		final long count = this.puts.incrementAndGet();
+
+		final long size = this.serializedSizeEstimation ? estimateSerializedSize(value) : estimateSize(value);
+		final TrackedEntry newEntry = new TrackedEntry(size, System.currentTimeMillis());
+		final TrackedEntry oldEntry = this.trackedEntries.put(key, newEntry);
+		this.approximateSize.addAndGet(newEntry.size - (oldEntry != null ? oldEntry.size : 0));
+
+		if (count % PRUNE_INTERVAL == 0) {
+			this.pruneExpiredEntries();
+		}
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void remove(final K key) {
+		this.backingCache.remove(key);
+		this.removes.incrementAndGet();
+		final TrackedEntry entry = this.trackedEntries.remove(key);
+		if (entry != null) {
+			this.approximateSize.addAndGet(-entry.size);
+		}
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		this.backingCache.clear();
+		this.trackedEntries.clear();
+		this.approximateSize.set(0);
+	}
+
+	/**
+	 * Gets the backing cache.
+	 *
+	 * @return the backing cache
+	 */
+	public SimpleCache<K, V> getBackingCache() {
+		return this.backingCache;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String getCacheName() {
+		return this.cacheName;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getGets() {
+		return this.gets.get();
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getMisses() {
+		return Math.max(0, this.gets.get() - this.hits.get());
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double getHitRatio() {
+		final long getCount = this.gets.get();
+		return getCount == 0 ? 0 : (double) this.hits.get() / getCount;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getPuts() {
+		return this.puts.get();
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getRemoves() {
+		return this.removes.get();
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getEvictions() {
+		this.pruneExpiredEntries();
+		return this.evictions.get();
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getEntryCount() {
+		this.pruneExpiredEntries();
+		return this.trackedEntries.size();
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getApproximateSize() {
+		this.pruneExpiredEntries();
+		return this.approximateSize.get();
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getChannelCount() {
+		return this.getChannelEntryCounts().size();
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Map<String, Integer> getChannelEntryCounts() {
+		this.pruneExpiredEntries();
+		final Map<String, Integer> channelEntryCounts = new TreeMap<>();
+		for (final K key : this.trackedEntries.keySet()) {
+			channelEntryCounts.merge(getChannel(key), Integer.valueOf(1), Integer::sum);
+		}
+		return channelEntryCounts;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void resetStatistics() {
+		this.gets.set(0);
+		this.hits.set(0);
+		this.puts.set(0);
+		this.removes.set(0);
+		this.evictions.set(0);
+	}
+
+	/**
+	 * Drops tracked entries which are older than the time to live of the backing
+	 * cache and counts them as evictions.
+	 */
+	protected void pruneExpiredEntries() {
+		if (this.trackingTimeToLiveMillis > 0) {
+			final long threshold = System.currentTimeMillis() - this.trackingTimeToLiveMillis;
+			final Iterator<TrackedEntry> entries = this.trackedEntries.values().iterator();
+			while (entries.hasNext()) {
+				final TrackedEntry entry = entries.next();
+				if (entry.created < threshold) {
+					entries.remove();
+					this.approximateSize.addAndGet(-entry.size);
+					this.evictions.incrementAndGet();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Determines the result channel a cache key belongs to. Print output chunks
+	 * are keyed by a pair of channel and chunk index, results by the channel
+	 * itself.
+	 *
+	 * @param key the key
+	 * @return the channel
+	 */
+	protected static String getChannel(final Object key) {
+		final String channel;
+		if (key instanceof Pair<?, ?>) {
+			channel = String.valueOf(((Pair<?, ?>) key).getFirst());
+		} else {
+			channel = String.valueOf(key);
+		}
+		return channel;
+	}
+
+	/**
+	 * Estimates the size of a value cheaply from the lengths of strings (two
+	 * bytes per character), lists of strings (print output chunks) and the
+	 * rendered template of results.
+	 *
+	 * @param value the value
+	 * @return the approximate size in bytes
+	 */
+	protected static long estimateSize(final Object value) {
+		if (value == null) {
+			return 0;
+		}
+		if (value instanceof CharSequence) {
+			return ((CharSequence) value).length() * 2L;
+		}
+		if (value instanceof Collection<?>) {
+			long size = 0;
+			for (final Object element : (Collection<?>) value) {
+				size += element instanceof CharSequence ? ((CharSequence) element).length() * 2L : DEFAULT_VALUE_SIZE;
+			}
+			return size;
+		}
+		if (value instanceof JavascriptConsoleResultBase) {
+			final String renderedTemplate = ((JavascriptConsoleResultBase) value).getRenderedTemplate();
+			return DEFAULT_VALUE_SIZE + (renderedTemplate != null ? renderedTemplate.length() * 2L : 0);
+		}
+		return DEFAULT_VALUE_SIZE;
+	}
+
+	/**
+	 * Estimates the serialized size of a value by serializing it.
+	 *
+	 * @param value the value
+	 * @return the approximate size in bytes
+	 */
+	protected static long estimateSerializedSize(final Object value) {
+		final CountingOutputStream counter = new CountingOutputStream();
+		if (value != null) {
+			try (ObjectOutputStream oos = new ObjectOutputStream(counter)) {
+				oos.writeObject(value);
+			} catch (final IOException ioex) {
+				LOGGER.debug("Failed to estimate size of cache value", ioex);
+			}
+		}
+		return counter.count;
+	}
+
+	/**
+	 * Meta data of an entry which has been put via this node.
+	 */
+	private static class TrackedEntry {
+
+		/** The approximate size. */
+		private final long size;
+
+		/** The creation timestamp. */
+		private final long created;
+
+		/**
+		 * Instantiates a new tracked entry.
+		 *
+		 * @param size    the approximate size
+		 * @param created the creation timestamp
+		 */
+		private TrackedEntry(final long size, final long created) {
+			this.size = size;
+			this.created = created;
+		}
+	}
+
+	/**
+	 * An output stream which only counts the bytes written to it.
+	 */
+	private static class CountingOutputStream extends OutputStream {
+
+		/** The count. */
+		private long count;
+
+		/**
+		 *
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void write(final int b) {
+			this.count++;
+		}
+
+		/**
+		 *
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void write(final byte[] b, final int off, final int len) {
+			this.count += len;
+		}
+	}
+}
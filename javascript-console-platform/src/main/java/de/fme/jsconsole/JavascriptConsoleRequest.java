@@ -1,18 +1,24 @@
 package de.fme.jsconsole;
 
-import java.io.InputStreamReader;
-import java.nio.charset.Charset;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.ZipException;
 
-import org.json.JSONException;
-import org.json.JSONObject;
-import org.json.JSONTokener;
 import org.springframework.extensions.surf.util.Content;
 import org.springframework.extensions.webscripts.Status;
 import org.springframework.extensions.webscripts.WebScriptException;
 import org.springframework.extensions.webscripts.WebScriptRequest;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
 /**
  * Parses and stores the input data for the Javascript Console
  * {@link ExecuteWebscript} and contains the logic to decode the request body
@@ -26,6 +32,9 @@ public class JavascriptConsoleRequest {
 	/** The Constant DEFAULT_DUMP_LIMIT. */
 	private static final int DEFAULT_DUMP_LIMIT = 10;
 
+	/** The json factory (thread safe, shared by all requests). */
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
 	/** The script. */
 	public final String script;
 
@@ -56,6 +65,18 @@ public class JavascriptConsoleRequest {
 	/** The result channel. */
 	public final String resultChannel;
 
+	/** Whether the script should be profiled. */
+	public final boolean profile;
+
+	/** Whether the rendered template should always be provided as a download. */
+	public final boolean templateDownload;
+
+	/** The hash of the script in the script store (null if not stored). */
+	public final String scriptHash;
+
+	/** The hash of the template in the script store (null if not stored). */
+	public final String templateHash;
+
 	/**
 	 * Instantiates a new javascript console request.
 	 *
@@ -68,9 +89,15 @@ public class JavascriptConsoleRequest {
 	 * @param documentNodeRef the document node ref
 	 * @param dumpLimit       the dump limit
 	 * @param resultChannel   the result channel
+	 * @param profile          whether the script should be profiled
+	 * @param templateDownload whether the rendered template should always be
+	 *                         provided as a download
+	 * @param scriptHash       the hash of the script in the script store
+	 * @param templateHash     the hash of the template in the script store
 	 */
 	private JavascriptConsoleRequest(String script, String template, String spaceNodeRef, String transaction,
-			String runas, String urlargs, String documentNodeRef, Integer dumpLimit, String resultChannel) {
+			String runas, String urlargs, String documentNodeRef, Integer dumpLimit, String resultChannel,
+			boolean profile, boolean templateDownload, String scriptHash, String templateHash) {
 		super();
 		this.script = script;
 		this.template = template;
@@ -82,6 +109,10 @@ public class JavascriptConsoleRequest {
 		this.useTransaction = transactionReadOnly || "readwrite".equalsIgnoreCase(transaction);
 		this.runas = runas;
 		this.resultChannel = resultChannel;
+		this.profile = profile;
+		this.templateDownload = templateDownload;
+		this.scriptHash = scriptHash;
+		this.templateHash = templateHash;
 	}
 
 	/**
@@ -109,41 +140,268 @@ public class JavascriptConsoleRequest {
 	}
 
 	/**
-	 * Read json.
+	 * Read json without limits.
 	 *
 	 * @param request the request
 	 * @return the javascript console request
 	 */
 	public static JavascriptConsoleRequest readJson(WebScriptRequest request) {
+		return readJson(request, 0, 0, null);
+	}
+
+	/**
+	 * Read json. The body is parsed as a stream, so only the field values are
+	 * materialized and unknown fields are skipped without being buffered.
+	 * <p>
+	 * The script and the template may be sent as text (script, template) or be
+	 * referenced by their hash in the script store (scriptHash, templateHash).
+	 * Texts are added to the script store, so later requests may reference them
+	 * by hash.
+	 *
+	 * @param request        the request
+	 * @param maxRequestSize the max size of the request body in bytes (0 for
+	 *                       unlimited)
+	 * @param maxFieldLength the max length of fields other than the script and
+	 *                       the template in characters (0 for unlimited)
+	 * @param scriptStore    the script store (null to require the texts)
+	 * @return the javascript console request
+	 * @throws UnknownScriptHashException if a referenced hash is not in the
+	 *                                    script store
+	 */
+	public static JavascriptConsoleRequest readJson(WebScriptRequest request, long maxRequestSize,
+			int maxFieldLength, ScriptStore scriptStore) {
 		Content content = request.getContent();
+		if (content == null) {
+			throw new WebScriptException(Status.STATUS_BAD_REQUEST, "Missing json request body.");
+		}
+		if (maxRequestSize > 0 && content.getSize() > maxRequestSize) {
+			throw new WebScriptException(Status.STATUS_REQUEST_ENTITY_TOO_LARGE,
+					"The request body exceeds the max size of " + maxRequestSize + " bytes.");
+		}
 
-		InputStreamReader br = new InputStreamReader(content.getInputStream(), Charset.forName("UTF-8"));
-		JSONTokener jsonTokener = new JSONTokener(br);
+		InputStream input;
 		try {
-			JSONObject jsonInput = new JSONObject(jsonTokener);
-
-			String script = jsonInput.getString("script");
-			String template = jsonInput.getString("template");
-			String spaceNodeRef = jsonInput.getString("spaceNodeRef");
-			String transaction = jsonInput.getString("transaction");
-			String urlargs = jsonInput.getString("urlargs");
-			String documentNodeRef = jsonInput.getString("documentNodeRef");
-			int dumpLimit = DEFAULT_DUMP_LIMIT;
-			if (jsonInput.has("dumpLimit")) {
-				dumpLimit = jsonInput.getInt("dumpLimit");
+			input = ResponseCompression.decodeRequestBody(request, content.getInputStream());
+		} catch (IOException e) {
+			throw new WebScriptException(Status.STATUS_BAD_REQUEST, "Error decoding the request body.", e);
+		}
+		// limit the decoded size, so compressed bodies cannot exceed the max size
+		if (maxRequestSize > 0) {
+			input = new LimitedInputStream(input, maxRequestSize);
+		}
+
+		String script = null;
+		String template = null;
+		String scriptHash = null;
+		String templateHash = null;
+		String spaceNodeRef = "";
+		String transaction = "";
+		String urlargs = "";
+		String documentNodeRef = "";
+		String runas = "";
+		int dumpLimit = DEFAULT_DUMP_LIMIT;
+		String resultChannel = null;
+		boolean profile = false;
+		boolean templateDownload = false;
+
+		try (JsonParser parser = JSON_FACTORY.createParser(input)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new WebScriptException(Status.STATUS_BAD_REQUEST, "The json request body is not an object.");
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				parser.nextToken();
+				switch (field) {
+				case "script":
+					script = readString(parser, field, 0);
+					break;
+				case "template":
+					template = readString(parser, field, 0);
+					break;
+				case "scriptHash":
+					scriptHash = readString(parser, field, maxFieldLength);
+					break;
+				case "templateHash":
+					templateHash = readString(parser, field, maxFieldLength);
+					break;
+				case "spaceNodeRef":
+					spaceNodeRef = readString(parser, field, maxFieldLength);
+					break;
+				case "transaction":
+					transaction = readString(parser, field, maxFieldLength);
+					break;
+				case "urlargs":
+					urlargs = readString(parser, field, maxFieldLength);
+					break;
+				case "documentNodeRef":
+					documentNodeRef = readString(parser, field, maxFieldLength);
+					break;
+				case "runas":
+					runas = readString(parser, field, maxFieldLength);
+					break;
+				case "dumpLimit":
+					dumpLimit = parser.getValueAsInt(DEFAULT_DUMP_LIMIT);
+					break;
+				case "resultChannel":
+					resultChannel = parser.currentToken() == JsonToken.VALUE_NULL ? null
+							: readString(parser, field, maxFieldLength);
+					break;
+				case "profile":
+					profile = parser.getValueAsBoolean();
+					break;
+				case "templateOutput":
+					templateDownload = "download".equals(readString(parser, field, maxFieldLength));
+					break;
+				default:
+					parser.skipChildren();
+					break;
+				}
+			}
+		} catch (JsonProcessingException | ZipException e) {
+			throw new WebScriptException(Status.STATUS_BAD_REQUEST, "Error reading json request body.", e);
+		} catch (IOException e) {
+			throw new WebScriptException(Status.STATUS_INTERNAL_SERVER_ERROR, "Error reading json request body.", e);
+		}
+
+		if (script == null && scriptHash == null) {
+			throw new WebScriptException(Status.STATUS_BAD_REQUEST, "The json request body has no script.");
+		}
+		if (scriptStore == null && (script == null || (template == null && templateHash != null))) {
+			throw new WebScriptException(Status.STATUS_BAD_REQUEST, "Scripts and templates cannot be referenced by hash.");
+		}
+
+		List<String> unknownHashes = new ArrayList<>(2);
+		if (script != null) {
+			scriptHash = scriptStore != null ? scriptStore.put(script) : null;
+		} else {
+			script = scriptStore.get(scriptHash);
+			if (script == null) {
+				unknownHashes.add(scriptHash);
+			}
+		}
+		if (template != null) {
+			templateHash = scriptStore != null ? scriptStore.put(template) : null;
+		} else if (templateHash != null) {
+			template = scriptStore.get(templateHash);
+			if (template == null) {
+				unknownHashes.add(templateHash);
 			}
-			String resultChannel = jsonInput.has("resultChannel") ? jsonInput.getString("resultChannel") : null;
+		} else {
+			template = "";
+		}
+		if (!unknownHashes.isEmpty()) {
+			throw new UnknownScriptHashException(unknownHashes);
+		}
+
+		return new JavascriptConsoleRequest(script, template, spaceNodeRef, transaction, runas, urlargs,
+				documentNodeRef, dumpLimit, resultChannel, profile, templateDownload, scriptHash, templateHash);
+	}
+
+	/**
+	 * Reads the current value of a field as a string, rejecting values which
+	 * exceed the max length before they are materialized.
+	 *
+	 * @param parser    the parser positioned on the value
+	 * @param field     the field name
+	 * @param maxLength the max length in characters (0 for unlimited)
+	 * @return the value (empty for null)
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static String readString(JsonParser parser, String field, int maxLength) throws IOException {
+		JsonToken token = parser.currentToken();
+		if (token == JsonToken.VALUE_NULL) {
+			return "";
+		}
+		if (!token.isScalarValue()) {
+			throw new WebScriptException(Status.STATUS_BAD_REQUEST, "The field " + field + " is not a string.");
+		}
+		if (maxLength > 0 && parser.getTextLength() > maxLength) {
+			throw new WebScriptException(Status.STATUS_REQUEST_ENTITY_TOO_LARGE,
+					"The field " + field + " exceeds the max length of " + maxLength + " characters.");
+		}
+		return parser.getText();
+	}
+
+	/**
+	 * An input stream which fails with a 413 status once more than the max number
+	 * of bytes have been read.
+	 */
+	private static final class LimitedInputStream extends FilterInputStream {
+
+		/** The max number of bytes. */
+		private final long maxBytes;
+
+		/** The number of bytes read. */
+		private long count;
+
+		/**
+		 * Instantiates a new limited input stream.
+		 *
+		 * @param in       the input stream
+		 * @param maxBytes the max number of bytes
+		 */
+		private LimitedInputStream(InputStream in, long maxBytes) {
+			super(in);
+			this.maxBytes = maxBytes;
+		}
+
+		/**
+		 *
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				this.count(1);
+			}
+			return b;
+		}
 
-			String runas = jsonInput.getString("runas");
-			if (runas == null) {
-				runas = "";
+		/**
+		 *
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0) {
+				this.count(read);
 			}
+			return read;
+		}
 
-			return new JavascriptConsoleRequest(script, template, spaceNodeRef, transaction, runas, urlargs,
-					documentNodeRef, dumpLimit, resultChannel);
+		/**
+		 *
+		 * {@inheritDoc}
+		 */
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			this.count(skipped);
+			return skipped;
+		}
 
-		} catch (JSONException e) {
-			throw new WebScriptException(Status.STATUS_INTERNAL_SERVER_ERROR, "Error reading json request body.", e);
+		/**
+		 * Counts read bytes and enforces the max number of bytes.
+		 *
+		 * @param bytes the number of bytes read
+		 */
+		private void count(long bytes) {
+			this.count += bytes;
+			if (this.count > this.maxBytes) {
+				throw new WebScriptException(Status.STATUS_REQUEST_ENTITY_TOO_LARGE,
+						"The request body exceeds the max size of " + this.maxBytes + " bytes.");
+			}
+		}
+
+		/**
+		 *
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean markSupported() {
+			return false;
 		}
 	}
 
@@ -157,7 +415,8 @@ public class JavascriptConsoleRequest {
 		return "JavascriptConsoleRequest [script=" + script + ", template=" + template + ", spaceNodeRef="
 				+ spaceNodeRef + ", runas=" + runas + ", useTransaction=" + useTransaction + ", transactionReadOnly="
 				+ transactionReadOnly + ", urlargs=" + urlargs + ", documentNodeRef=" + documentNodeRef + ", dumpLimit="
-				+ dumpLimit + ", resultChannel=" + resultChannel + "]";
+				+ dumpLimit + ", resultChannel=" + resultChannel + ", profile=" + profile + ", templateDownload=" + templateDownload
+				+ ", scriptHash=" + scriptHash + ", templateHash=" + templateHash + "]";
 	}
 
 }
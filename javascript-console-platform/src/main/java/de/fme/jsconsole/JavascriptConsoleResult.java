@@ -11,6 +11,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.springframework.extensions.webscripts.Status;
 import org.springframework.extensions.webscripts.WebScriptException;
+import org.springframework.extensions.webscripts.WebScriptRequest;
 import org.springframework.extensions.webscripts.WebScriptResponse;
 
 /**
@@ -60,12 +61,35 @@ public class JavascriptConsoleResult extends JavascriptConsoleResultBase {
 	 * @throws IOException Signals that an I/O exception has occurred.
 	 */
 	public void writeJson(final WebScriptResponse response) throws IOException {
+		this.writeJson(null, response, null);
+	}
+
+	/**
+	 * Write json, compressed as negotiated with the request.
+	 *
+	 * @param request     the request
+	 * @param response    the response
+	 * @param compression the response compression (null to write uncompressed)
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void writeJson(final WebScriptRequest request, final WebScriptResponse response,
+			final ResponseCompression compression) throws IOException {
 		response.setContentEncoding("UTF-8");
 		response.setContentType(MimetypeMap.MIMETYPE_JSON);
 
 		try {
+			final PerfSpan performance = this.getPerformance();
+			final PerfSpan serializationSpan = performance != null
+					? performance.startChild(ExecuteWebscript.SPAN_SERIALIZATION)
+					: null;
 			final JSONObject jsonOutput = this.generateJsonOutput();
-			response.getWriter().write(jsonOutput.toString());
+			if (serializationSpan != null) {
+				serializationSpan.stop();
+				performance.stop();
+				// update figures to include serialization
+				this.putPerformanceJson(jsonOutput);
+			}
+			ResponseCompression.write(compression, request, response, jsonOutput.toString());
 		} catch (final JSONException e) {
 			throw new WebScriptException(Status.STATUS_INTERNAL_SERVER_ERROR, "Error writing json response.", e);
 		}
@@ -82,15 +106,16 @@ public class JavascriptConsoleResult extends JavascriptConsoleResultBase {
 	public JSONObject generateJsonOutput() throws JSONException {
 		final JSONObject jsonOutput = new JSONObject();
 		jsonOutput.put("renderedTemplate", this.getRenderedTemplate());
+		this.putRenderedTemplateExportJson(jsonOutput);
+		this.putScriptHashesJson(jsonOutput);
 		jsonOutput.put("printOutput", this.getPrintOutput());
 		jsonOutput.put("dumpOutput", this.getDumpOutput());
+		jsonOutput.put("dumpExports", this.generateDumpExportsJson());
 		jsonOutput.put("spaceNodeRef", this.getSpaceNodeRef());
 		jsonOutput.put("spacePath", this.getSpacePath());
 		jsonOutput.put("result", new JSONArray());
-		jsonOutput.put("scriptPerf", this.getScriptPerformance());
-		jsonOutput.put("freemarkerPerf", this.getFreemarkerPerformance());
-		jsonOutput.put("webscriptPerf", this.getWebscriptPerformance());
-		jsonOutput.put("scriptOffset", this.getScriptPerformance());
+		this.putPerformanceJson(jsonOutput);
+		jsonOutput.put("scriptOffset", this.getScriptOffset());
 		return jsonOutput;
 	}
 
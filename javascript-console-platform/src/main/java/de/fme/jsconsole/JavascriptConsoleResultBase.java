@@ -2,6 +2,8 @@ package de.fme.jsconsole;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.alfresco.repo.content.MimetypeMap;
@@ -10,6 +12,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.springframework.extensions.webscripts.Status;
 import org.springframework.extensions.webscripts.WebScriptException;
+import org.springframework.extensions.webscripts.WebScriptRequest;
 import org.springframework.extensions.webscripts.WebScriptResponse;
 
 /**
@@ -27,58 +30,87 @@ public class JavascriptConsoleResultBase implements Serializable {
 	/** The rendered template. */
 	private String renderedTemplate = "";
 
+	/** The download url of the rendered template (null if returned inline). */
+	private String renderedTemplateDownloadUrl;
+
+	/** The size of the rendered template download in bytes. */
+	private long renderedTemplateSize;
+
 	/** The space node ref. */
 	private String spaceNodeRef = "";
 
 	/** The space path. */
 	private String spacePath = "";
 
-	/** The script performance. */
-	private String scriptPerformance;
-
-	/** The freemarker performance. */
-	private String freemarkerPerformance;
-
-	/** The webscript performance. */
-	private String webscriptPerformance;
+	/** The performance spans of the web script execution. */
+	private PerfSpan performance;
 
 	/** The script offset. */
 	private int scriptOffset;
 
+	/** The dump exports. */
+	private final List<JsConsoleDumpExport> dumpExports = new ArrayList<>();
+
+	/** The top repository calls by total time. */
+	private final List<RepositoryCallStatistics> repositoryCalls = new ArrayList<>();
+
+	/** The line profile of the script (empty if the script was not profiled). */
+	private final List<ScriptLineProfile> scriptProfile = new ArrayList<>();
+
+	/** Whether the parsed template was taken from the template cache (null if not cached). */
+	private Boolean templateCacheHit;
+
+	/** The total template cache hits at the time the template was rendered. */
+	private long templateCacheHits;
+
+	/** The total template cache misses at the time the template was rendered. */
+	private long templateCacheMisses;
+
+	/** The hash of the script in the script store (null if not stored). */
+	private String scriptHash;
+
+	/** The hash of the template in the script store (null if not stored). */
+	private String templateHash;
+
 	/**
-	 * Sets the webscript performance.
+	 * Sets the performance spans of the web script execution.
 	 *
-	 * @param webscriptPerformance the new webscript performance
+	 * @param performance the new performance spans
 	 */
-	public void setWebscriptPerformance(final String webscriptPerformance) {
-		this.webscriptPerformance = webscriptPerformance;
+	public void setPerformance(final PerfSpan performance) {
+		this.performance = performance;
 	}
 
 	/**
-	 * Sets the script performance.
+	 * Sets the rendered template.
 	 *
-	 * @param scriptPerformance the new script performance
+	 * @param renderedTemplate the new rendered template
 	 */
-	public void setScriptPerformance(final String scriptPerformance) {
-		this.scriptPerformance = scriptPerformance;
+	public void setRenderedTemplate(final String renderedTemplate) {
+		this.renderedTemplate = renderedTemplate;
 	}
 
 	/**
-	 * Sets the freemarker performance.
+	 * Sets the download of a rendered template which exceeded the inline limit.
 	 *
-	 * @param freemarkerPerformance the new freemarker performance
+	 * @param downloadUrl the download url
+	 * @param size        the size of the download in bytes
 	 */
-	public void setFreemarkerPerformance(final String freemarkerPerformance) {
-		this.freemarkerPerformance = freemarkerPerformance;
+	public void setRenderedTemplateExport(final String downloadUrl, final long size) {
+		this.renderedTemplateDownloadUrl = downloadUrl;
+		this.renderedTemplateSize = size;
 	}
 
 	/**
-	 * Sets the rendered template.
+	 * Sets the hashes of the script and the template in the script store, so
+	 * the client may reference them instead of sending the texts again.
 	 *
-	 * @param renderedTemplate the new rendered template
+	 * @param scriptHash   the script hash (null if not stored)
+	 * @param templateHash the template hash (null if not stored)
 	 */
-	public void setRenderedTemplate(final String renderedTemplate) {
-		this.renderedTemplate = renderedTemplate;
+	public void setScriptHashes(final String scriptHash, final String templateHash) {
+		this.scriptHash = scriptHash;
+		this.templateHash = templateHash;
 	}
 
 	/**
@@ -100,30 +132,214 @@ public class JavascriptConsoleResultBase implements Serializable {
 	}
 
 	/**
-	 * Gets the webscript performance.
+	 * Sets the dump exports.
+	 *
+	 * @param dumpExports the new dump exports
+	 */
+	public void setDumpExports(final List<JsConsoleDumpExport> dumpExports) {
+		this.dumpExports.clear();
+		this.dumpExports.addAll(dumpExports);
+	}
+
+	/**
+	 * Gets the dump exports.
+	 *
+	 * @return the dump exports
+	 */
+	public List<JsConsoleDumpExport> getDumpExports() {
+		return Collections.unmodifiableList(this.dumpExports);
+	}
+
+	/**
+	 * Sets the top repository calls by total time.
+	 *
+	 * @param repositoryCalls the new repository calls
+	 */
+	public void setRepositoryCalls(final List<RepositoryCallStatistics> repositoryCalls) {
+		this.repositoryCalls.clear();
+		this.repositoryCalls.addAll(repositoryCalls);
+	}
+
+	/**
+	 * Gets the top repository calls by total time.
 	 *
-	 * @return the webscript performance
+	 * @return the repository calls
 	 */
-	public String getWebscriptPerformance() {
-		return this.webscriptPerformance;
+	public List<RepositoryCallStatistics> getRepositoryCalls() {
+		return Collections.unmodifiableList(this.repositoryCalls);
 	}
 
 	/**
-	 * Gets the script performance.
+	 * Sets the line profile of the script.
 	 *
-	 * @return the script performance
+	 * @param scriptProfile the new script profile
 	 */
-	public String getScriptPerformance() {
-		return this.scriptPerformance;
+	public void setScriptProfile(final List<ScriptLineProfile> scriptProfile) {
+		this.scriptProfile.clear();
+		this.scriptProfile.addAll(scriptProfile);
 	}
 
 	/**
-	 * Gets the freemarker performance.
+	 * Gets the line profile of the script.
 	 *
-	 * @return the freemarker performance
+	 * @return the script profile
 	 */
-	public String getFreemarkerPerformance() {
-		return this.freemarkerPerformance;
+	public List<ScriptLineProfile> getScriptProfile() {
+		return Collections.unmodifiableList(this.scriptProfile);
+	}
+
+	/**
+	 * Sets whether the parsed template was taken from the template cache.
+	 *
+	 * @param templateCacheHit the templateCacheHit to set
+	 */
+	public void setTemplateCacheHit(final Boolean templateCacheHit) {
+		this.templateCacheHit = templateCacheHit;
+	}
+
+	/**
+	 * Sets the total template cache hits and misses at the time the template was
+	 * rendered.
+	 *
+	 * @param hits   the template cache hits
+	 * @param misses the template cache misses
+	 */
+	public void setTemplateCacheStatistics(final long hits, final long misses) {
+		this.templateCacheHits = hits;
+		this.templateCacheMisses = misses;
+	}
+
+	/**
+	 * Generates the JSON structure describing the dump exports.
+	 *
+	 * @return the JSON array of dump exports
+	 * @throws JSONException if an error occurs preparing the JSON structure
+	 */
+	protected JSONArray generateDumpExportsJson() throws JSONException {
+		final JSONArray dumpExportsJson = new JSONArray();
+		for (final JsConsoleDumpExport dumpExport : this.dumpExports) {
+			final JSONObject dumpExportJson = new JSONObject();
+			dumpExportJson.put("count", dumpExport.getCount());
+			dumpExportJson.put("size", dumpExport.getSize());
+			dumpExportJson.put("downloadUrl", dumpExport.getDownloadUrl());
+			if (dumpExport.getNodeRef() != null) {
+				dumpExportJson.put("nodeRef", dumpExport.getNodeRef());
+			}
+			dumpExportsJson.put(dumpExportJson);
+		}
+		return dumpExportsJson;
+	}
+
+	/**
+	 * Adds the download handle of a rendered template which exceeded the inline
+	 * limit to the JSON structure of the result.
+	 *
+	 * @param jsonOutput the JSON structure of the result
+	 * @throws JSONException if an error occurs preparing the JSON structure
+	 */
+	protected void putRenderedTemplateExportJson(final JSONObject jsonOutput) throws JSONException {
+		if (this.renderedTemplateDownloadUrl != null) {
+			final JSONObject exportJson = new JSONObject();
+			exportJson.put("size", this.renderedTemplateSize);
+			exportJson.put("downloadUrl", this.renderedTemplateDownloadUrl);
+			jsonOutput.put("renderedTemplateExport", exportJson);
+		}
+	}
+
+	/**
+	 * Puts the hashes of the script and the template in the script store (if
+	 * stored) into the result JSON.
+	 *
+	 * @param jsonOutput the result JSON
+	 * @throws JSONException if an error occurs generating the JSON
+	 */
+	protected void putScriptHashesJson(final JSONObject jsonOutput) throws JSONException {
+		if (this.scriptHash != null) {
+			jsonOutput.put("scriptHash", this.scriptHash);
+		}
+		if (this.templateHash != null) {
+			jsonOutput.put("templateHash", this.templateHash);
+		}
+	}
+
+	/**
+	 * Gets the performance spans of the web script execution.
+	 *
+	 * @return the performance spans
+	 */
+	public PerfSpan getPerformance() {
+		return this.performance;
+	}
+
+	/**
+	 * Gets the script offset.
+	 *
+	 * @return the script offset
+	 */
+	public int getScriptOffset() {
+		return this.scriptOffset;
+	}
+
+	/**
+	 * Adds the performance figures to the JSON structure of the result, i.e. the
+	 * total times of script, template and web script execution in milliseconds
+	 * as well as the full span tree.
+	 *
+	 * @param jsonOutput the JSON structure of the result
+	 * @throws JSONException if an error occurs preparing the JSON structure
+	 */
+	protected void putPerformanceJson(final JSONObject jsonOutput) throws JSONException {
+		if (this.performance != null) {
+			jsonOutput.put("scriptPerf", this.performance.getTotalMillis(ExecuteWebscript.SPAN_SCRIPT));
+			jsonOutput.put("freemarkerPerf", this.performance.getTotalMillis(ExecuteWebscript.SPAN_TEMPLATE));
+			jsonOutput.put("webscriptPerf", this.performance.getDurationMillis());
+			jsonOutput.put("scriptCpu", PerfSpan.toMillis(this.performance.getTotalCpuNanos(ExecuteWebscript.SPAN_SCRIPT)));
+			jsonOutput.put("scriptAllocated", this.performance.getTotalAllocatedBytes(ExecuteWebscript.SPAN_SCRIPT));
+			jsonOutput.put("freemarkerCpu",
+					PerfSpan.toMillis(this.performance.getTotalCpuNanos(ExecuteWebscript.SPAN_TEMPLATE)));
+			jsonOutput.put("freemarkerAllocated",
+					this.performance.getTotalAllocatedBytes(ExecuteWebscript.SPAN_TEMPLATE));
+			jsonOutput.put("freemarkerParsePerf",
+					this.performance.getTotalMillis(ExecuteWebscript.SPAN_TEMPLATE_PARSE));
+			jsonOutput.put("freemarkerRenderPerf",
+					this.performance.getTotalMillis(ExecuteWebscript.SPAN_TEMPLATE_RENDER));
+			jsonOutput.put("perfSpans", this.performance.toJson());
+		}
+
+		if (this.templateCacheHit != null) {
+			final JSONObject templateCacheJson = new JSONObject();
+			templateCacheJson.put("hit", this.templateCacheHit.booleanValue());
+			templateCacheJson.put("hits", this.templateCacheHits);
+			templateCacheJson.put("misses", this.templateCacheMisses);
+			jsonOutput.put("templateCache", templateCacheJson);
+		}
+
+		final JSONArray repositoryCallsJson = new JSONArray();
+		for (final RepositoryCallStatistics repositoryCall : this.repositoryCalls) {
+			final JSONObject repositoryCallJson = new JSONObject();
+			repositoryCallJson.put("method", repositoryCall.getMethod());
+			repositoryCallJson.put("calls", repositoryCall.getCalls());
+			repositoryCallJson.put("time", PerfSpan.toMillis(repositoryCall.getTotalNanos()));
+			repositoryCallJson.put("maxTime", PerfSpan.toMillis(repositoryCall.getMaxNanos()));
+			repositoryCallsJson.put(repositoryCallJson);
+		}
+		jsonOutput.put("repositoryCalls", repositoryCallsJson);
+
+		if (!this.scriptProfile.isEmpty()) {
+			final JSONArray scriptProfileJson = new JSONArray();
+			for (final ScriptLineProfile lineProfile : this.scriptProfile) {
+				// map the line of the executed script to the line of the user-supplied script
+				final int line = lineProfile.getLine() + this.scriptOffset;
+				if (line > 0) {
+					final JSONObject lineProfileJson = new JSONObject();
+					lineProfileJson.put("line", line);
+					lineProfileJson.put("hits", lineProfile.getHits());
+					lineProfileJson.put("time", PerfSpan.toMillis(lineProfile.getNanos()));
+					scriptProfileJson.put(lineProfileJson);
+				}
+			}
+			jsonOutput.put("scriptProfile", scriptProfileJson);
+		}
 	}
 
 	/**
@@ -135,6 +351,15 @@ public class JavascriptConsoleResultBase implements Serializable {
 		return this.renderedTemplate;
 	}
 
+	/**
+	 * Gets the download url of the rendered template.
+	 *
+	 * @return the download url (null if the rendered template is returned inline)
+	 */
+	public String getRenderedTemplateDownloadUrl() {
+		return this.renderedTemplateDownloadUrl;
+	}
+
 	/**
 	 * Gets the space node ref.
 	 *
@@ -161,23 +386,38 @@ public class JavascriptConsoleResultBase implements Serializable {
 	 * @throws IOException Signals that an I/O exception has occurred.
 	 */
 	public void writeJson(final WebScriptResponse response, final List<String> printOutput) throws IOException {
+		this.writeJson(null, response, printOutput, null);
+	}
+
+	/**
+	 * Write json, compressed as negotiated with the request.
+	 *
+	 * @param request     the request
+	 * @param response    the response
+	 * @param printOutput the print output
+	 * @param compression the response compression (null to write uncompressed)
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void writeJson(final WebScriptRequest request, final WebScriptResponse response,
+			final List<String> printOutput, final ResponseCompression compression) throws IOException {
 		response.setContentEncoding("UTF-8");
 		response.setContentType(MimetypeMap.MIMETYPE_JSON);
 
 		try {
 			final JSONObject jsonOutput = new JSONObject();
 			jsonOutput.put("renderedTemplate", this.getRenderedTemplate());
+			this.putRenderedTemplateExportJson(jsonOutput);
+			this.putScriptHashesJson(jsonOutput);
 			jsonOutput.put("printOutput", printOutput);
 			jsonOutput.put("dumpOutput", new JSONArray());
+			jsonOutput.put("dumpExports", this.generateDumpExportsJson());
 			jsonOutput.put("spaceNodeRef", this.getSpaceNodeRef());
 			jsonOutput.put("spacePath", this.getSpacePath());
 			jsonOutput.put("result", new JSONArray());
-			jsonOutput.put("scriptPerf", this.scriptPerformance);
-			jsonOutput.put("freemarkerPerf", this.freemarkerPerformance);
-			jsonOutput.put("webscriptPerf", this.webscriptPerformance);
+			this.putPerformanceJson(jsonOutput);
 			jsonOutput.put("scriptOffset", this.scriptOffset);
 
-			response.getWriter().write(jsonOutput.toString());
+			ResponseCompression.write(compression, request, response, jsonOutput.toString());
 
 		} catch (final JSONException e) {
 			throw new WebScriptException(Status.STATUS_INTERNAL_SERVER_ERROR, "Error writing json response.", e);
@@ -191,13 +431,18 @@ public class JavascriptConsoleResultBase implements Serializable {
 	 */
 	public JavascriptConsoleResultBase toBaseResult() {
 		final JavascriptConsoleResultBase base = new JavascriptConsoleResultBase();
-		base.setFreemarkerPerformance(this.freemarkerPerformance);
 		base.setRenderedTemplate(this.renderedTemplate);
+		base.setRenderedTemplateExport(this.renderedTemplateDownloadUrl, this.renderedTemplateSize);
 		base.setScriptOffset(this.scriptOffset);
-		base.setScriptPerformance(this.scriptPerformance);
+		base.setPerformance(this.performance);
 		base.setSpaceNodeRef(this.spaceNodeRef);
 		base.setSpacePath(this.spacePath);
-		base.setWebscriptPerformance(this.webscriptPerformance);
+		base.setDumpExports(this.dumpExports);
+		base.setRepositoryCalls(this.repositoryCalls);
+		base.setScriptProfile(this.scriptProfile);
+		base.setTemplateCacheHit(this.templateCacheHit);
+		base.setTemplateCacheStatistics(this.templateCacheHits, this.templateCacheMisses);
+		base.setScriptHashes(this.scriptHash, this.templateHash);
 
 		return base;
 	}
@@ -210,8 +455,7 @@ public class JavascriptConsoleResultBase implements Serializable {
 	@Override
 	public String toString() {
 		return "JavascriptConsoleResultBase [renderedTemplate=" + this.renderedTemplate + ", spaceNodeRef="
-				+ this.spaceNodeRef + ", spacePath=" + this.spacePath + ", scriptPerformance=" + this.scriptPerformance
-				+ ", freemarkerPerformance=" + this.freemarkerPerformance + "]";
+				+ this.spaceNodeRef + ", spacePath=" + this.spacePath + ", performance=" + this.performance + "]";
 	}
 
 	/**
@@ -230,13 +474,22 @@ public class JavascriptConsoleResultBase implements Serializable {
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((this.freemarkerPerformance == null) ? 0 : this.freemarkerPerformance.hashCode());
+		result = prime * result + this.dumpExports.hashCode();
+		result = prime * result + this.repositoryCalls.hashCode();
+		result = prime * result + this.scriptProfile.hashCode();
+		result = prime * result + ((this.templateCacheHit == null) ? 0 : this.templateCacheHit.hashCode());
+		result = prime * result + Long.hashCode(this.templateCacheHits);
+		result = prime * result + Long.hashCode(this.templateCacheMisses);
+		result = prime * result + ((this.scriptHash == null) ? 0 : this.scriptHash.hashCode());
+		result = prime * result + ((this.templateHash == null) ? 0 : this.templateHash.hashCode());
+		result = prime * result + ((this.performance == null) ? 0 : this.performance.hashCode());
 		result = prime * result + ((this.renderedTemplate == null) ? 0 : this.renderedTemplate.hashCode());
+		result = prime * result
+				+ ((this.renderedTemplateDownloadUrl == null) ? 0 : this.renderedTemplateDownloadUrl.hashCode());
+		result = prime * result + Long.hashCode(this.renderedTemplateSize);
 		result = prime * result + this.scriptOffset;
-		result = prime * result + ((this.scriptPerformance == null) ? 0 : this.scriptPerformance.hashCode());
 		result = prime * result + ((this.spaceNodeRef == null) ? 0 : this.spaceNodeRef.hashCode());
 		result = prime * result + ((this.spacePath == null) ? 0 : this.spacePath.hashCode());
-		result = prime * result + ((this.webscriptPerformance == null) ? 0 : this.webscriptPerformance.hashCode());
 		return result;
 	}
 
@@ -255,11 +508,44 @@ public class JavascriptConsoleResultBase implements Serializable {
 			return false;
 		}
 		final JavascriptConsoleResultBase other = (JavascriptConsoleResultBase) obj;
-		if (this.freemarkerPerformance == null) {
-			if (other.freemarkerPerformance != null) {
+		if (!this.dumpExports.equals(other.dumpExports)) {
+			return false;
+		}
+		if (!this.repositoryCalls.equals(other.repositoryCalls)) {
+			return false;
+		}
+		if (!this.scriptProfile.equals(other.scriptProfile)) {
+			return false;
+		}
+		if (this.templateCacheHit == null) {
+			if (other.templateCacheHit != null) {
+				return false;
+			}
+		} else if (!this.templateCacheHit.equals(other.templateCacheHit)) {
+			return false;
+		}
+		if (this.templateCacheHits != other.templateCacheHits || this.templateCacheMisses != other.templateCacheMisses) {
+			return false;
+		}
+		if (this.scriptHash == null) {
+			if (other.scriptHash != null) {
+				return false;
+			}
+		} else if (!this.scriptHash.equals(other.scriptHash)) {
+			return false;
+		}
+		if (this.templateHash == null) {
+			if (other.templateHash != null) {
 				return false;
 			}
-		} else if (!this.freemarkerPerformance.equals(other.freemarkerPerformance)) {
+		} else if (!this.templateHash.equals(other.templateHash)) {
+			return false;
+		}
+		if (this.performance == null) {
+			if (other.performance != null) {
+				return false;
+			}
+		} else if (!this.performance.equals(other.performance)) {
 			return false;
 		}
 		if (this.renderedTemplate == null) {
@@ -269,14 +555,17 @@ public class JavascriptConsoleResultBase implements Serializable {
 		} else if (!this.renderedTemplate.equals(other.renderedTemplate)) {
 			return false;
 		}
-		if (this.scriptOffset != other.scriptOffset) {
-			return false;
-		}
-		if (this.scriptPerformance == null) {
-			if (other.scriptPerformance != null) {
+		if (this.renderedTemplateDownloadUrl == null) {
+			if (other.renderedTemplateDownloadUrl != null) {
 				return false;
 			}
-		} else if (!this.scriptPerformance.equals(other.scriptPerformance)) {
+		} else if (!this.renderedTemplateDownloadUrl.equals(other.renderedTemplateDownloadUrl)) {
+			return false;
+		}
+		if (this.renderedTemplateSize != other.renderedTemplateSize) {
+			return false;
+		}
+		if (this.scriptOffset != other.scriptOffset) {
 			return false;
 		}
 		if (this.spaceNodeRef == null) {
@@ -293,13 +582,6 @@ public class JavascriptConsoleResultBase implements Serializable {
 		} else if (!this.spacePath.equals(other.spacePath)) {
 			return false;
 		}
-		if (this.webscriptPerformance == null) {
-			if (other.webscriptPerformance != null) {
-				return false;
-			}
-		} else if (!this.webscriptPerformance.equals(other.webscriptPerformance)) {
-			return false;
-		}
 		return true;
 	}
 
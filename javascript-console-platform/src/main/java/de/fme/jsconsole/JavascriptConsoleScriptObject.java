@@ -13,6 +13,7 @@ import org.alfresco.repo.security.authority.script.ScriptUser;
 import org.alfresco.repo.site.script.Site;
 import org.alfresco.service.cmr.repository.ChildAssociationRef;
 import org.alfresco.service.cmr.repository.NodeRef;
+import org.mozilla.javascript.Function;
 import org.springframework.extensions.webscripts.ScriptContent;
 import org.springframework.extensions.webscripts.ScriptValueConverter;
 
@@ -30,9 +31,21 @@ public class JavascriptConsoleScriptObject {
 	/** The print output. */
 	private List<String> printOutput = new ArrayList<>();
 
-	/** The space. */
+	/** The space (null until resolved by the script or set explicitly). */
 	private ScriptNode space = null;
 
+	/** The node ref of the space. */
+	private NodeRef spaceNodeRef = null;
+
+	/** The node ref of the document (null if there is no document). */
+	private NodeRef documentNodeRef = null;
+
+	/** The dump exports. */
+	private final List<JsConsoleDumpExport> dumpExports = new ArrayList<>();
+
+	/** The benchmark runner. */
+	private BenchmarkRunner benchmarkRunner;
+
 	/** The Constant JSON_KEY_ENTRY_ID. */
 	public static final String JSON_KEY_ENTRY_ID = "id";
 
@@ -82,6 +95,72 @@ public class JavascriptConsoleScriptObject {
 	 */
 	public void setSpace(ScriptNode space) {
 		this.space = space;
+		this.spaceNodeRef = space != null ? space.getNodeRef() : null;
+	}
+
+	/**
+	 * Gets the node ref of the space without resolving the space node.
+	 *
+	 * @return the space node ref
+	 */
+	public NodeRef getSpaceNodeRef() {
+		return spaceNodeRef;
+	}
+
+	/**
+	 * Sets the node ref of the space, which is only resolved into a
+	 * {@link ScriptNode} if the script accesses the space.
+	 *
+	 * @param spaceNodeRef the new space node ref
+	 */
+	public void setSpaceNodeRef(NodeRef spaceNodeRef) {
+		this.space = null;
+		this.spaceNodeRef = spaceNodeRef;
+	}
+
+	/**
+	 * Gets the node ref of the document.
+	 *
+	 * @return the document node ref
+	 */
+	public NodeRef getDocumentNodeRef() {
+		return documentNodeRef;
+	}
+
+	/**
+	 * Sets the node ref of the document, which is only resolved into a
+	 * {@link ScriptNode} if the script accesses the document.
+	 *
+	 * @param documentNodeRef the new document node ref
+	 */
+	public void setDocumentNodeRef(NodeRef documentNodeRef) {
+		this.documentNodeRef = documentNodeRef;
+	}
+
+	/**
+	 * Registers a dump export so its download link is included in the execution
+	 * result.
+	 *
+	 * @param dumpExport the dump export
+	 */
+	public void addDumpExport(JsConsoleDumpExport dumpExport) {
+		if (dumpExport != null) {
+			synchronized (this.dumpExports) {
+				this.dumpExports.add(dumpExport);
+			}
+		}
+	}
+
+	/**
+	 * Gets the dump exports.
+	 *
+	 * @return the dump exports
+	 */
+	public List<JsConsoleDumpExport> getDumpExports() {
+		// defensive copy
+		synchronized (this.dumpExports) {
+			return new ArrayList<>(this.dumpExports);
+		}
 	}
 
 	/**
@@ -93,12 +172,76 @@ public class JavascriptConsoleScriptObject {
 		return new JavascriptConsoleScriptLogger(this);
 	}
 
+	/**
+	 * Sets the benchmark runner.
+	 *
+	 * @param benchmarkRunner the new benchmark runner
+	 */
+	public void setBenchmarkRunner(BenchmarkRunner benchmarkRunner) {
+		this.benchmarkRunner = benchmarkRunner;
+	}
+
+	/**
+	 * Benchmarks a function in-process with the default options.
+	 *
+	 * @param fn the function
+	 * @return the benchmark result
+	 */
+	public BenchmarkResult benchmark(Function fn) {
+		return benchmark(fn, null);
+	}
+
+	/**
+	 * Benchmarks a function in-process, e.g.
+	 * {@code jsconsole.benchmark(function(i) { ... }, {warmup: 10, iterations: 100, threads: 2})}.
+	 * The function is called with the iteration index and the thread index.
+	 *
+	 * @param fn      the function
+	 * @param options the options object with the optional warmup (default 10),
+	 *                iterations (default 100) and threads (default 1) per
+	 *                thread
+	 * @return the benchmark result
+	 */
+	public BenchmarkResult benchmark(Function fn, Object options) {
+		if (this.benchmarkRunner == null) {
+			throw new IllegalStateException("Benchmarks are not available");
+		}
+
+		int warmup = 10;
+		int iterations = 100;
+		int threads = 1;
+		Object value = options != null ? ScriptValueConverter.unwrapValue(options) : null;
+		if (value instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) value;
+			warmup = intOption(map, "warmup", warmup);
+			iterations = intOption(map, "iterations", iterations);
+			threads = intOption(map, "threads", threads);
+		}
+		return this.benchmarkRunner.run(fn, warmup, iterations, threads);
+	}
+
+	/**
+	 * Reads an integer option.
+	 *
+	 * @param options      the options
+	 * @param name         the option name
+	 * @param defaultValue the default value
+	 * @return the option value
+	 */
+	private static int intOption(Map<?, ?> options, String name, int defaultValue) {
+		Object value = options.get(name);
+		return value instanceof Number ? ((Number) value).intValue() : defaultValue;
+	}
+
 	/**
 	 * Prints the.
 	 *
 	 * @param obj the obj
 	 */
 	public void print(Object obj) {
+		ThreadResourceUsage.checkAllocationBudget();
+
+		List<String> lines = new ArrayList<>();
 		if (obj != null) {
 			Object value = ScriptValueConverter.unwrapValue(obj);
 
@@ -107,14 +250,19 @@ public class JavascriptConsoleScriptObject {
 				Iterator<?> colIter = col.iterator();
 				int counter = 0;
 				while (colIter.hasNext()) {
-					printOutput.add("" + counter + " : " + formatValue(colIter.next()));
+					lines.add("" + counter + " : " + formatValue(colIter.next()));
 					counter++;
 				}
 			} else {
-				printOutput.add(formatValue(value));
+				lines.add(formatValue(value));
 			}
 		} else {
-			printOutput.add("null");
+			lines.add("null");
+		}
+
+		// print may be called by the worker threads of a multi-threaded benchmark
+		synchronized (printOutput) {
+			printOutput.addAll(lines);
 		}
 	}
 
@@ -259,7 +407,9 @@ public class JavascriptConsoleScriptObject {
 	 */
 	public List<String> getPrintOutput() {
 		// defensive copy
-		return new ArrayList<>(this.printOutput);
+		synchronized (this.printOutput) {
+			return new ArrayList<>(this.printOutput);
+		}
 	}
 
 }
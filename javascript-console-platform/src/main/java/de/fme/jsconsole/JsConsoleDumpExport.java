@@ -0,0 +1,142 @@
+package de.fme.jsconsole;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Describes the result of a streaming dump export, i.e. where the NDJSON lines
+ * of the dumped nodes have been written to and how they can be downloaded.
+ */
+public class JsConsoleDumpExport implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = -2304556812087463301L;
+
+	/** The export id (only set for temporary file exports). */
+	private final String exportId;
+
+	/** The node ref (only set for repository content node exports). */
+	private final String nodeRef;
+
+	/** The number of exported dumps. */
+	private final int count;
+
+	/** The size of the export in bytes. */
+	private final long size;
+
+	/** The download url. */
+	private final String downloadUrl;
+
+	/**
+	 * Instantiates a new js console dump export.
+	 *
+	 * @param exportId    the export id
+	 * @param nodeRef     the node ref
+	 * @param count       the number of exported dumps
+	 * @param size        the size of the export in bytes
+	 * @param downloadUrl the download url
+	 */
+	public JsConsoleDumpExport(final String exportId, final String nodeRef, final int count, final long size,
+			final String downloadUrl) {
+		this.exportId = exportId;
+		this.nodeRef = nodeRef;
+		this.count = count;
+		this.size = size;
+		this.downloadUrl = downloadUrl;
+	}
+
+	/**
+	 * Gets the export id.
+	 *
+	 * @return the export id
+	 */
+	public String getExportId() {
+		return this.exportId;
+	}
+
+	/**
+	 * Gets the node ref.
+	 *
+	 * @return the node ref
+	 */
+	public String getNodeRef() {
+		return this.nodeRef;
+	}
+
+	/**
+	 * Gets the number of exported dumps.
+	 *
+	 * @return the count
+	 */
+	public int getCount() {
+		return this.count;
+	}
+
+	/**
+	 * Gets the size of the export in bytes.
+	 *
+	 * @return the size
+	 */
+	public long getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Gets the download url.
+	 *
+	 * @return the download url
+	 */
+	public String getDownloadUrl() {
+		return this.downloadUrl;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + this.count;
+		result = prime * result + ((this.exportId == null) ? 0 : this.exportId.hashCode());
+		result = prime * result + ((this.nodeRef == null) ? 0 : this.nodeRef.hashCode());
+		result = prime * result + ((this.downloadUrl == null) ? 0 : this.downloadUrl.hashCode());
+		result = prime * result + (int) (this.size ^ (this.size >>> 32));
+		return result;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || this.getClass() != obj.getClass()) {
+			return false;
+		}
+		final JsConsoleDumpExport other = (JsConsoleDumpExport) obj;
+		if (this.count != other.count || this.size != other.size) {
+			return false;
+		}
+		if (!Objects.equals(this.exportId, other.exportId) || !Objects.equals(this.nodeRef, other.nodeRef)) {
+			return false;
+		}
+		if (this.downloadUrl == null) {
+			return other.downloadUrl == null;
+		}
+		return this.downloadUrl.equals(other.downloadUrl);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "Dump export of " + this.count + " node(s), " + this.size + " bytes: " + this.downloadUrl;
+	}
+}
@@ -0,0 +1,134 @@
+package de.fme.jsconsole;
+
+import java.io.File;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import org.alfresco.util.TempFileProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Manages the temporary files used to hand large JavaScript Console outputs
+ * (e.g. NDJSON dump exports) to the client via a download link instead of
+ * embedding them inline in the execution result JSON.
+ * <p>
+ * By default exports are stored in the node-local long life temp directory, so
+ * in a cluster the download of an export only succeeds if it is served by the
+ * node which ran the script (e.g. with sticky sessions). For clusters without
+ * session affinity the export directory has to be set to storage shared by all
+ * nodes (jsconsole.export.directory).
+ */
+public class JsConsoleExportStore implements InitializingBean {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(JsConsoleExportStore.class);
+
+	/** The Constant EXPORT_DIRECTORY_KEY. */
+	private static final String EXPORT_DIRECTORY_KEY = "jsconsole-exports";
+
+	/** The Constant EXPORT_ID_PATTERN. */
+	private static final Pattern EXPORT_ID_PATTERN = Pattern.compile("^[0-9a-f\\-]{36}\\.[a-z0-9]+$");
+
+	/** The max age of export files in seconds. */
+	private long maxAgeSeconds = 86400;
+
+	/** The configured export directory (empty for the node-local temp dir). */
+	private String exportDirectoryPath;
+
+	/** The export directory. */
+	private File exportDirectory;
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		if (this.exportDirectoryPath == null || this.exportDirectoryPath.trim().isEmpty()) {
+			this.exportDirectory = TempFileProvider.getLongLifeTempDir(EXPORT_DIRECTORY_KEY);
+			LOGGER.info("Storing exports in the node-local directory {} - in a cluster without sticky sessions "
+					+ "set jsconsole.export.directory to shared storage", this.exportDirectory);
+		} else {
+			// a dedicated subdirectory, as expired exports are removed from it
+			this.exportDirectory = new File(this.exportDirectoryPath.trim(), EXPORT_DIRECTORY_KEY);
+			if (!this.exportDirectory.isDirectory() && !this.exportDirectory.mkdirs()) {
+				throw new IllegalStateException("Unable to create export directory " + this.exportDirectory);
+			}
+		}
+	}
+
+	/**
+	 * Creates a new, empty export file. Any export files older than the
+	 * configured max age are removed as part of this call.
+	 *
+	 * @param extension the file extension of the export (e.g. ndjson)
+	 * @return the id of the new export
+	 */
+	public String createExport(final String extension) {
+		this.removeExpiredExports();
+		return UUID.randomUUID().toString() + "." + extension;
+	}
+
+	/**
+	 * Gets the file backing an export.
+	 *
+	 * @param exportId the export id
+	 * @return the export file - may not exist yet if the export is still being
+	 *         written or has already expired
+	 */
+	public File getExportFile(final String exportId) {
+		if (exportId == null || !EXPORT_ID_PATTERN.matcher(exportId).matches()) {
+			throw new IllegalArgumentException("Invalid export id: " + exportId);
+		}
+		return new File(this.exportDirectory, exportId);
+	}
+
+	/**
+	 * Gets the relative (web script service) download URL of an export.
+	 *
+	 * @param exportId the export id
+	 * @return the download URL
+	 */
+	public String getDownloadUrl(final String exportId) {
+		return "de/fme/jsconsole/export/" + exportId;
+	}
+
+	/**
+	 * Removes export files older than the configured max age. Only files named
+	 * like exports are removed.
+	 */
+	protected void removeExpiredExports() {
+		final long threshold = System.currentTimeMillis() - (this.maxAgeSeconds * 1000);
+		final File[] exportFiles = this.exportDirectory.listFiles();
+		if (exportFiles != null) {
+			for (final File exportFile : exportFiles) {
+				if (exportFile.isFile() && EXPORT_ID_PATTERN.matcher(exportFile.getName()).matches()
+						&& exportFile.lastModified() < threshold && !exportFile.delete()) {
+					LOGGER.debug("Failed to remove expired export file {}", exportFile);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sets the export directory. Exports are stored in a jsconsole-exports
+	 * subdirectory of it. An empty path stores exports in the node-local long
+	 * life temp directory.
+	 *
+	 * @param exportDirectoryPath the exportDirectoryPath to set
+	 */
+	public void setExportDirectory(final String exportDirectoryPath) {
+		this.exportDirectoryPath = exportDirectoryPath;
+	}
+
+	/**
+	 * Sets the max age of export files in seconds.
+	 *
+	 * @param maxAgeSeconds the new max age in seconds
+	 */
+	public void setMaxAgeSeconds(final long maxAgeSeconds) {
+		this.maxAgeSeconds = maxAgeSeconds;
+	}
+}
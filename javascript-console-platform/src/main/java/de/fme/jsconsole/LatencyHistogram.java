@@ -0,0 +1,162 @@
+package de.fme.jsconsole;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative long values (e.g. durations in
+ * nanoseconds or counts) using HDR-style log-linear buckets: each power of two
+ * range is split into a fixed number of linear sub-buckets, so that the
+ * relative error of the reported percentiles is bounded (12.5% with the 8
+ * sub-buckets used here) independent of the magnitude of the values. Recording
+ * a value only involves a few atomic increments, so the histogram can be
+ * updated concurrently from any number of threads.
+ */
+public class LatencyHistogram {
+
+	/** The number of bits used for the linear sub-buckets. */
+	private static final int SUB_BUCKET_BITS = 3;
+
+	/** The number of linear sub-buckets per power of two. */
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	/** The Constant SUB_BUCKET_MASK. */
+	private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+
+	/** The total number of buckets covering all non-negative long values. */
+	private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	/** The bucket counts. */
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+	/** The count of values. */
+	private final AtomicLong count = new AtomicLong();
+
+	/** The sum of values. */
+	private final AtomicLong sum = new AtomicLong();
+
+	/** The max value. */
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a value. Negative values are recorded as 0.
+	 *
+	 * @param value the value
+	 */
+	public void record(final long value) {
+		final long effValue = Math.max(0, value);
+		this.buckets.incrementAndGet(bucketIndex(effValue));
+		this.count.incrementAndGet();
+		this.sum.addAndGet(effValue);
+
+		long currentMax = this.max.get();
+		while (effValue > currentMax && !this.max.compareAndSet(currentMax, effValue)) {
+			currentMax = this.max.get();
+		}
+	}
+
+	/**
+	 * Gets the number of recorded values.
+	 *
+	 * @return the count
+	 */
+	public long getCount() {
+		return this.count.get();
+	}
+
+	/**
+	 * Gets the sum of recorded values.
+	 *
+	 * @return the sum
+	 */
+	public long getSum() {
+		return this.sum.get();
+	}
+
+	/**
+	 * Gets the max recorded value.
+	 *
+	 * @return the max
+	 */
+	public long getMax() {
+		return this.max.get();
+	}
+
+	/**
+	 * Gets the (approximate) value at a percentile. The result is the upper bound
+	 * of the bucket containing the percentile, capped by the max recorded value.
+	 *
+	 * @param percentile the percentile (0 - 100)
+	 * @return the value at the percentile (0 if no values have been recorded)
+	 */
+	public long getValueAtPercentile(final double percentile) {
+		long totalCount = 0;
+		for (int idx = 0; idx < BUCKET_COUNT; idx++) {
+			totalCount += this.buckets.get(idx);
+		}
+
+		long value = 0;
+		if (totalCount > 0) {
+			final long targetCount = Math.max(1, (long) Math.ceil(totalCount * Math.min(100, percentile) / 100.0));
+			long runningCount = 0;
+			for (int idx = 0; idx < BUCKET_COUNT; idx++) {
+				runningCount += this.buckets.get(idx);
+				if (runningCount >= targetCount) {
+					value = Math.min(bucketUpperBound(idx), this.max.get());
+					break;
+				}
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Resets the histogram. Values recorded concurrently to a reset may be
+	 * partially retained.
+	 */
+	public void reset() {
+		for (int idx = 0; idx < BUCKET_COUNT; idx++) {
+			this.buckets.set(idx, 0);
+		}
+		this.count.set(0);
+		this.sum.set(0);
+		this.max.set(0);
+	}
+
+	/**
+	 * Determines the bucket index of a value.
+	 *
+	 * @param value the (non-negative) value
+	 * @return the bucket index
+	 */
+	protected static int bucketIndex(final long value) {
+		final int index;
+		if (value < SUB_BUCKET_COUNT) {
+			index = (int) value;
+		} else {
+			final int exponent = 63 - Long.numberOfLeadingZeros(value);
+			final int shift = exponent - SUB_BUCKET_BITS;
+			index = ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & SUB_BUCKET_MASK);
+		}
+		return index;
+	}
+
+	/**
+	 * Determines the (inclusive) upper bound of the values in a bucket.
+	 *
+	 * @param index the bucket index
+	 * @return the upper bound
+	 */
+	protected static long bucketUpperBound(final int index) {
+		final long upperBound;
+		if (index < SUB_BUCKET_COUNT) {
+			upperBound = index;
+		} else {
+			final int shift = (index >> SUB_BUCKET_BITS) - 1;
+			final long subBucket = (index & SUB_BUCKET_MASK) | SUB_BUCKET_COUNT;
+			final long nextLowerBound = (subBucket + 1) << shift;
+			upperBound = nextLowerBound <= 0 ? Long.MAX_VALUE : nextLowerBound - 1;
+		}
+		return upperBound;
+	}
+}
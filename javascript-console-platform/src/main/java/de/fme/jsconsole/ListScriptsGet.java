@@ -0,0 +1,96 @@
+package de.fme.jsconsole;
+
+import java.io.IOException;
+
+import org.alfresco.repo.content.MimetypeMap;
+import org.alfresco.util.PropertyCheck;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.extensions.webscripts.AbstractWebScript;
+import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+import org.springframework.extensions.webscripts.WebScriptResponse;
+
+/**
+ * Web script to list the scripts of the script library (Data Dictionary/Scripts)
+ * for the script menus of the console. The listing is served from the
+ * {@link ScriptLibraryIndex} with an ETag, so clients revalidating an unchanged
+ * listing get a 304 without a body.
+ */
+public class ListScriptsGet extends AbstractWebScript implements InitializingBean {
+
+	/** The script library index. */
+	private ScriptLibraryIndex scriptLibraryIndex;
+
+	/** The response compression (null to not compress responses). */
+	private ResponseCompression responseCompression;
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		PropertyCheck.mandatory(this, "scriptLibraryIndex", this.scriptLibraryIndex);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void execute(final WebScriptRequest request, final WebScriptResponse response) throws IOException {
+		final ScriptLibraryIndex.Listing listing = this.scriptLibraryIndex.getListing();
+		final String etag = "\"" + listing.getEtag() + "\"";
+
+		response.setHeader("ETag", etag);
+		response.setHeader("Cache-Control", "no-cache");
+		if (matches(request.getHeader("If-None-Match"), etag)) {
+			response.setStatus(Status.STATUS_NOT_MODIFIED);
+			return;
+		}
+
+		response.setContentEncoding("UTF-8");
+		response.setContentType(MimetypeMap.MIMETYPE_JSON);
+		ResponseCompression.write(this.responseCompression, request, response,
+				"{\"scripts\":" + listing.getJson() + "}");
+	}
+
+	/**
+	 * Checks if an If-None-Match header matches an ETag. Weak validators match
+	 * as well, since compression does not change the listing.
+	 *
+	 * @param ifNoneMatch the If-None-Match header (may be null)
+	 * @param etag        the quoted ETag
+	 * @return true, if the header matches
+	 */
+	static boolean matches(final String ifNoneMatch, final String etag) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (final String candidate : ifNoneMatch.split(",")) {
+			final String tag = candidate.trim();
+			if ("*".equals(tag) || etag.equals(tag.startsWith("W/") ? tag.substring(2) : tag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sets the script library index.
+	 *
+	 * @param scriptLibraryIndex the scriptLibraryIndex to set
+	 */
+	public final void setScriptLibraryIndex(final ScriptLibraryIndex scriptLibraryIndex) {
+		this.scriptLibraryIndex = scriptLibraryIndex;
+	}
+
+	/**
+	 * Sets the response compression.
+	 *
+	 * @param responseCompression the responseCompression to set
+	 */
+	public final void setResponseCompression(final ResponseCompression responseCompression) {
+		this.responseCompression = responseCompression;
+	}
+}
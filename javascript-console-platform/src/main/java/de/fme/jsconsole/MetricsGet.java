@@ -0,0 +1,223 @@
+package de.fme.jsconsole;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.alfresco.util.PropertyCheck;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.extensions.webscripts.AbstractWebScript;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+import org.springframework.extensions.webscripts.WebScriptResponse;
+
+/**
+ * Web script to expose the aggregated JavaScript Console execution metrics in
+ * the Prometheus text exposition format, e.g. to alert on console-induced load.
+ */
+public class MetricsGet extends AbstractWebScript implements InitializingBean {
+
+	/** The Constant CONTENT_TYPE. */
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4";
+
+	/** The quantiles reported for each summary. */
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+
+	/** The execution metrics. */
+	private ExecutionMetrics executionMetrics;
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		PropertyCheck.mandatory(this, "executionMetrics", this.executionMetrics);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void execute(final WebScriptRequest request, final WebScriptResponse response) throws IOException {
+		response.setContentEncoding("UTF-8");
+		response.setContentType(CONTENT_TYPE);
+
+		final Map<ExecutionMetrics.MetricsKey, ExecutionMetrics.MetricSet> metrics = this.executionMetrics
+				.getMetrics();
+		final Writer writer = response.getWriter();
+
+		writeSummary(writer, "jsconsole_script_duration_seconds", "Time spent executing console scripts", metrics,
+				MetricType.SCRIPT_TIME);
+		writeSummary(writer, "jsconsole_template_duration_seconds", "Time spent processing console templates",
+				metrics, MetricType.TEMPLATE_TIME);
+		writeSummary(writer, "jsconsole_execution_duration_seconds", "End-to-end time of console executions",
+				metrics, MetricType.END_TO_END_TIME);
+		writeSummary(writer, "jsconsole_script_cpu_seconds", "Thread CPU time spent executing console scripts",
+				metrics, MetricType.SCRIPT_CPU_TIME);
+		writeSummary(writer, "jsconsole_script_allocated_bytes", "Bytes allocated by console scripts", metrics,
+				MetricType.SCRIPT_ALLOCATED_BYTES);
+		writeSummary(writer, "jsconsole_print_output_lines", "Print output lines of console executions", metrics,
+				MetricType.PRINT_OUTPUT_LINES);
+		writeSummary(writer, "jsconsole_dumps", "Node dumps of console executions", metrics, MetricType.DUMPS);
+
+		writeCounter(writer, "jsconsole_compressed_responses_total", "Compressed console responses",
+				this.executionMetrics.getCompressedResponses());
+		writeCounter(writer, "jsconsole_compression_input_bytes_total", "Uncompressed bytes of compressed responses",
+				this.executionMetrics.getCompressionInputBytes());
+		writeCounter(writer, "jsconsole_compression_output_bytes_total", "Compressed bytes of compressed responses",
+				this.executionMetrics.getCompressionOutputBytes());
+
+		writer.flush();
+	}
+
+	/**
+	 * Writes a summary metric for all metric sets.
+	 *
+	 * @param writer  the writer
+	 * @param name    the metric name
+	 * @param help    the metric help text
+	 * @param metrics the metric sets
+	 * @param type    the type of metric to write
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	protected static void writeSummary(final Writer writer, final String name, final String help,
+			final Map<ExecutionMetrics.MetricsKey, ExecutionMetrics.MetricSet> metrics, final MetricType type)
+			throws IOException {
+		writer.write("# HELP " + name + " " + help + "\n");
+		writer.write("# TYPE " + name + " summary\n");
+
+		for (final Entry<ExecutionMetrics.MetricsKey, ExecutionMetrics.MetricSet> entry : metrics.entrySet()) {
+			final ExecutionMetrics.MetricsKey key = entry.getKey();
+			final LatencyHistogram histogram = type.getHistogram(entry.getValue());
+			final String labels = "user=\"" + escapeLabelValue(key.getUser()) + "\",transaction=\""
+					+ escapeLabelValue(key.getTransactionMode()) + "\",outcome=\""
+					+ escapeLabelValue(key.getOutcome()) + "\"";
+
+			for (final double quantile : QUANTILES) {
+				writer.write(name + "{" + labels + ",quantile=\"" + quantile + "\"} "
+						+ type.scale(histogram.getValueAtPercentile(quantile * 100)) + "\n");
+			}
+			writer.write(name + "_sum{" + labels + "} " + type.scale(histogram.getSum()) + "\n");
+			writer.write(name + "_count{" + labels + "} " + histogram.getCount() + "\n");
+		}
+	}
+
+	/**
+	 * Writes a counter metric.
+	 *
+	 * @param writer the writer
+	 * @param name   the metric name
+	 * @param help   the metric help text
+	 * @param value  the value
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	protected static void writeCounter(final Writer writer, final String name, final String help, final long value)
+			throws IOException {
+		writer.write("# HELP " + name + " " + help + "\n");
+		writer.write("# TYPE " + name + " counter\n");
+		writer.write(name + " " + value + "\n");
+	}
+
+	/**
+	 * Escapes a label value for the Prometheus text exposition format.
+	 *
+	 * @param value the value
+	 * @return the escaped value
+	 */
+	protected static String escapeLabelValue(final String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	/**
+	 * Sets the execution metrics.
+	 *
+	 * @param executionMetrics the executionMetrics to set
+	 */
+	public final void setExecutionMetrics(final ExecutionMetrics executionMetrics) {
+		this.executionMetrics = executionMetrics;
+	}
+
+	/**
+	 * The types of metrics contained in a metric set.
+	 */
+	protected enum MetricType {
+
+		/** The script time. */
+		SCRIPT_TIME(true),
+
+		/** The template time. */
+		TEMPLATE_TIME(true),
+
+		/** The end to end time. */
+		END_TO_END_TIME(true),
+
+		/** The script CPU time. */
+		SCRIPT_CPU_TIME(true),
+
+		/** The script allocated bytes. */
+		SCRIPT_ALLOCATED_BYTES(false),
+
+		/** The print output lines. */
+		PRINT_OUTPUT_LINES(false),
+
+		/** The dumps. */
+		DUMPS(false);
+
+		/** Whether the metric is recorded in nanoseconds. */
+		private final boolean nanoseconds;
+
+		/**
+		 * Instantiates a new metric type.
+		 *
+		 * @param nanoseconds whether the metric is recorded in nanoseconds
+		 */
+		MetricType(final boolean nanoseconds) {
+			this.nanoseconds = nanoseconds;
+		}
+
+		/**
+		 * Scales a recorded value to the reported unit, i.e. nanoseconds to seconds.
+		 *
+		 * @param value the recorded value
+		 * @return the reported value
+		 */
+		protected String scale(final long value) {
+			return this.nanoseconds ? String.valueOf(value / 1000000000.0) : String.valueOf(value);
+		}
+
+		/**
+		 * Gets the histogram of this type from a metric set.
+		 *
+		 * @param metricSet the metric set
+		 * @return the histogram
+		 */
+		protected LatencyHistogram getHistogram(final ExecutionMetrics.MetricSet metricSet) {
+			final LatencyHistogram histogram;
+			switch (this) {
+			case SCRIPT_TIME:
+				histogram = metricSet.getScriptTime();
+				break;
+			case TEMPLATE_TIME:
+				histogram = metricSet.getTemplateTime();
+				break;
+			case END_TO_END_TIME:
+				histogram = metricSet.getEndToEndTime();
+				break;
+			case SCRIPT_CPU_TIME:
+				histogram = metricSet.getScriptCpuTime();
+				break;
+			case SCRIPT_ALLOCATED_BYTES:
+				histogram = metricSet.getScriptAllocatedBytes();
+				break;
+			case PRINT_OUTPUT_LINES:
+				histogram = metricSet.getPrintOutputLines();
+				break;
+			default:
+				histogram = metricSet.getDumps();
+			}
+			return histogram;
+		}
+	}
+}
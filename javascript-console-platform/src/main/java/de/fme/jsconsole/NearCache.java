@@ -0,0 +1,293 @@
+package de.fme.jsconsole;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.alfresco.repo.cache.SimpleCache;
+
+/**
+ * A two-tier cache which fronts a (potentially fully-distributed) backing cache
+ * with a bounded, node-local L1 near cache. Writes go through to the backing
+ * cache, removals invalidate both tiers and reads are served from the near
+ * cache whenever possible. The near cache is not invalidated by other cluster
+ * nodes, so it may only front caches whose keys are written once and never
+ * rewritten, like the final results of the result channels. A key removed on
+ * another node may still be served from here until its entry expires after
+ * the configurable time to live, but never with a different value.
+ */
+public class NearCache<K extends Serializable, V> implements SimpleCache<K, V> {
+
+	/** The backing cache. */
+	private final SimpleCache<K, V> backingCache;
+
+	/** The near cache max items. */
+	private final int maxItems;
+
+	/** The near cache time to live in milliseconds. */
+	private final long timeToLiveMillis;
+
+	/** The near cache. */
+	private final Map<K, NearCacheEntry<V>> nearCache;
+
+	/** The near cache hits. */
+	private final AtomicLong nearHits = new AtomicLong();
+
+	/** The near cache misses. */
+	private final AtomicLong nearMisses = new AtomicLong();
+
+	/** The backing cache hits. */
+	private final AtomicLong backingHits = new AtomicLong();
+
+	/** The backing cache misses. */
+	private final AtomicLong backingMisses = new AtomicLong();
+
+	/** The near cache evictions. */
+	private final AtomicLong nearEvictions = new AtomicLong();
+
+	/**
+	 * Instantiates a new near cache.
+	 *
+	 * @param backingCache      the backing cache
+	 * @param maxItems          the max number of entries in the near cache
+	 * @param timeToLiveSeconds the time to live of near cache entries in seconds
+	 *                          (0 to disable expiry)
+	 */
+	public NearCache(final SimpleCache<K, V> backingCache, final int maxItems, final int timeToLiveSeconds) {
+		this.backingCache = backingCache;
+		this.maxItems = maxItems;
+		this.timeToLiveMillis = timeToLiveSeconds * 1000L;
+		this.nearCache = new LinkedHashMap<K, NearCacheEntry<V>>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 2346409744826404386L;
+
+			/**
+			 *
+			 * {@inheritDoc}
+			 */
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<K, NearCacheEntry<V>> eldest) {
+				final boolean evict = this.size() > NearCache.this.maxItems;
+				if (evict) {
+					NearCache.this.nearEvictions.incrementAndGet();
+				}
+				return evict;
+			}
+		};
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean contains(final K key) {
+		return this.getFromNearCache(key) != null || this.backingCache.contains(key);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Collection<K> getKeys() {
+		return this.backingCache.getKeys();
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public V get(final K key) {
+		V value = this.getFromNearCache(key);
+		if (value != null) {
+			this.nearHits.incrementAndGet();
+		} else {
+			this.nearMisses.incrementAndGet();
+			value = this.backingCache.get(key);
+			if (value != null) {
+				this.backingHits.incrementAndGet();
+				this.putIntoNearCache(key, value);
+			} else {
+				this.backingMisses.incrementAndGet();
+			}
+		}
+		return value;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void put(final K key, final V value) {
+		this.backingCache.put(key, value);
+		if (value != null) {
+			this.putIntoNearCache(key, value);
+		} else {
+			this.removeFromNearCache(key);
+		}
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void remove(final K key) {
+		this.removeFromNearCache(key);
+		this.backingCache.remove(key);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void clear() {
+		synchronized (this.nearCache) {
+			this.nearCache.clear();
+		}
+		this.backingCache.clear();
+	}
+
+	/**
+	 * Gets the backing cache.
+	 *
+	 * @return the backing cache
+	 */
+	public SimpleCache<K, V> getBackingCache() {
+		return this.backingCache;
+	}
+
+	/**
+	 * Gets the current number of entries in the near cache.
+	 *
+	 * @return the near cache size
+	 */
+	public int getNearCacheSize() {
+		synchronized (this.nearCache) {
+			return this.nearCache.size();
+		}
+	}
+
+	/**
+	 * Gets the number of near cache hits.
+	 *
+	 * @return the near cache hits
+	 */
+	public long getNearHits() {
+		return this.nearHits.get();
+	}
+
+	/**
+	 * Gets the number of near cache misses.
+	 *
+	 * @return the near cache misses
+	 */
+	public long getNearMisses() {
+		return this.nearMisses.get();
+	}
+
+	/**
+	 * Gets the number of backing cache hits, i.e. near cache misses which could
+	 * be served by the backing cache.
+	 *
+	 * @return the backing cache hits
+	 */
+	public long getBackingHits() {
+		return this.backingHits.get();
+	}
+
+	/**
+	 * Gets the number of backing cache misses.
+	 *
+	 * @return the backing cache misses
+	 */
+	public long getBackingMisses() {
+		return this.backingMisses.get();
+	}
+
+	/**
+	 * Gets the number of entries evicted from the near cache due to its size
+	 * limit.
+	 *
+	 * @return the near cache evictions
+	 */
+	public long getNearEvictions() {
+		return this.nearEvictions.get();
+	}
+
+	/**
+	 * Gets a value from the near cache, dropping it if it has expired.
+	 *
+	 * @param key the key
+	 * @return the value or {@code null} if the near cache does not contain a
+	 *         valid entry
+	 */
+	protected V getFromNearCache(final K key) {
+		synchronized (this.nearCache) {
+			final NearCacheEntry<V> entry = this.nearCache.get(key);
+			V value = null;
+			if (entry != null) {
+				if (this.timeToLiveMillis > 0 && entry.expiresAt < System.currentTimeMillis()) {
+					this.nearCache.remove(key);
+				} else {
+					value = entry.value;
+				}
+			}
+			return value;
+		}
+	}
+
+	/**
+	 * Puts a value into the near cache.
+	 *
+	 * @param key   the key
+	 * @param value the value
+	 */
+	protected void putIntoNearCache(final K key, final V value) {
+		synchronized (this.nearCache) {
+			this.nearCache.put(key, new NearCacheEntry<>(value, System.currentTimeMillis() + this.timeToLiveMillis));
+		}
+	}
+
+	/**
+	 * Removes a value from the near cache.
+	 *
+	 * @param key the key
+	 */
+	protected void removeFromNearCache(final K key) {
+		synchronized (this.nearCache) {
+			this.nearCache.remove(key);
+		}
+	}
+
+	/**
+	 * A single entry of the near cache.
+	 *
+	 * @param <V> the value type
+	 */
+	private static class NearCacheEntry<V> {
+
+		/** The value. */
+		private final V value;
+
+		/** The expiry timestamp. */
+		private final long expiresAt;
+
+		/**
+		 * Instantiates a new near cache entry.
+		 *
+		 * @param value     the value
+		 * @param expiresAt the expiry timestamp
+		 */
+		private NearCacheEntry(final V value, final long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
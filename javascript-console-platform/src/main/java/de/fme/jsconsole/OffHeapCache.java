@@ -0,0 +1,402 @@
+package de.fme.jsconsole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.error.AlfrescoRuntimeException;
+import org.alfresco.repo.cache.SimpleCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A node-local cache which keeps its values serialized in direct (off-heap)
+ * {@link ByteBuffer} slabs, so that e.g. the print output of large script runs
+ * does not add to the repository heap and GC pauses. The slabs are divided into
+ * fixed-size blocks, each value occupying as many (not necessarily contiguous)
+ * blocks as required. Only the keys and small block index records stay on the
+ * heap. The total number of bytes in the slabs is capped and the least
+ * recently used entries are evicted when the cap is reached.
+ *
+ * <p>
+ * <b>Note:</b> This cache is not shared within a cluster, so it should only be
+ * used for single node installations or if polls for the result of a script
+ * execution are routed to the executing node (sticky sessions).
+ * </p>
+ */
+public class OffHeapCache<K extends Serializable, V extends Serializable> implements SimpleCache<K, V> {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapCache.class);
+
+	/** The block size in bytes. */
+	private final int blockSize;
+
+	/** The number of blocks per slab. */
+	private final int blocksPerSlab;
+
+	/** The max number of blocks. */
+	private final int maxBlocks;
+
+	/** The time to live of entries in milliseconds. */
+	private final long timeToLiveMillis;
+
+	/** The allocated slabs. */
+	private final List<ByteBuffer> slabs = new ArrayList<>();
+
+	/** The indices of freed blocks. */
+	private int[] freeBlocks = new int[64];
+
+	/** The number of freed blocks. */
+	private int freeBlockCount;
+
+	/** The number of blocks which have been allocated (used or freed). */
+	private int allocatedBlocks;
+
+	/** The entry records in LRU order. */
+	private final LinkedHashMap<K, EntryRecord> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/** The number of bytes used by values. */
+	private long usedBytes;
+
+	/** The number of evictions. */
+	private long evictions;
+
+	/**
+	 * Instantiates a new off heap cache.
+	 *
+	 * @param maxBytes          the max number of bytes to store in slabs
+	 * @param slabSize          the size of a single slab in bytes
+	 * @param blockSize         the size of a single allocation block in bytes
+	 * @param timeToLiveSeconds the time to live of entries in seconds (0 to
+	 *                          disable expiry)
+	 */
+	public OffHeapCache(final long maxBytes, final int slabSize, final int blockSize, final int timeToLiveSeconds) {
+		if (blockSize <= 0 || slabSize < blockSize || maxBytes < slabSize) {
+			throw new IllegalArgumentException(
+					"blockSize must be positive, slabSize at least blockSize and maxBytes at least slabSize");
+		}
+		this.blockSize = blockSize;
+		this.blocksPerSlab = slabSize / blockSize;
+		this.maxBlocks = (int) Math.min(Integer.MAX_VALUE, (maxBytes / slabSize) * this.blocksPerSlab);
+		this.timeToLiveMillis = timeToLiveSeconds * 1000L;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized boolean contains(final K key) {
+		return this.getValidRecord(key) != null;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized Collection<K> getKeys() {
+		return new ArrayList<>(this.entries.keySet());
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get(final K key) {
+		final byte[] bytes;
+		synchronized (this) {
+			final EntryRecord entry = this.getValidRecord(key);
+			bytes = entry != null ? this.readBlocks(entry) : null;
+		}
+
+		V value = null;
+		if (bytes != null) {
+			try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+				value = (V) ois.readObject();
+			} catch (final IOException | ClassNotFoundException ex) {
+				throw new AlfrescoRuntimeException("Failed to deserialize off-heap cache value", ex);
+			}
+		}
+		return value;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void put(final K key, final V value) {
+		if (value == null) {
+			this.remove(key);
+			return;
+		}
+
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+			oos.writeObject(value);
+		} catch (final IOException ioex) {
+			throw new AlfrescoRuntimeException("Failed to serialize off-heap cache value", ioex);
+		}
+		final byte[] bytes = bos.toByteArray();
+		final int requiredBlocks = (bytes.length + this.blockSize - 1) / this.blockSize;
+
+		synchronized (this) {
+			this.removeRecord(key);
+
+			if (requiredBlocks > this.maxBlocks) {
+				LOGGER.warn("Value of {} bytes for key {} exceeds the off-heap cache capacity and is not cached",
+						bytes.length, key);
+				return;
+			}
+
+			while (this.getAvailableBlocks() < requiredBlocks) {
+				this.evictEldest();
+			}
+
+			final int[] blocks = new int[requiredBlocks];
+			for (int idx = 0; idx < requiredBlocks; idx++) {
+				blocks[idx] = this.allocateBlock();
+			}
+			this.writeBlocks(blocks, bytes);
+
+			this.entries.put(key, new EntryRecord(blocks, bytes.length, System.currentTimeMillis()));
+			this.usedBytes += bytes.length;
+		}
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void remove(final K key) {
+		this.removeRecord(key);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void clear() {
+		final Iterator<EntryRecord> records = this.entries.values().iterator();
+		while (records.hasNext()) {
+			this.releaseRecord(records.next());
+			records.remove();
+		}
+	}
+
+	/**
+	 * Gets the number of bytes used by the serialized values.
+	 *
+	 * @return the used bytes
+	 */
+	public synchronized long getUsedBytes() {
+		return this.usedBytes;
+	}
+
+	/**
+	 * Gets the number of bytes currently allocated in direct slabs.
+	 *
+	 * @return the allocated bytes
+	 */
+	public synchronized long getAllocatedBytes() {
+		return (long) this.slabs.size() * this.blocksPerSlab * this.blockSize;
+	}
+
+	/**
+	 * Gets the max number of bytes which can be stored.
+	 *
+	 * @return the capacity in bytes
+	 */
+	public long getCapacity() {
+		return (long) this.maxBlocks * this.blockSize;
+	}
+
+	/**
+	 * Gets the number of entries.
+	 *
+	 * @return the size
+	 */
+	public synchronized int getSize() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Gets the number of entries evicted due to the byte cap.
+	 *
+	 * @return the evictions
+	 */
+	public synchronized long getEvictions() {
+		return this.evictions;
+	}
+
+	/**
+	 * Gets the record of a key, dropping it if it has expired. Must be called
+	 * while holding the lock on this instance.
+	 *
+	 * @param key the key
+	 * @return the record or {@code null} if there is no valid entry
+	 */
+	private EntryRecord getValidRecord(final K key) {
+		EntryRecord entry = this.entries.get(key);
+		if (entry != null && this.timeToLiveMillis > 0
+				&& entry.created + this.timeToLiveMillis < System.currentTimeMillis()) {
+			this.removeRecord(key);
+			entry = null;
+		}
+		return entry;
+	}
+
+	/**
+	 * Removes the record of a key and releases its blocks. Must be called while
+	 * holding the lock on this instance.
+	 *
+	 * @param key the key
+	 */
+	private void removeRecord(final K key) {
+		final EntryRecord entry = this.entries.remove(key);
+		if (entry != null) {
+			this.releaseRecord(entry);
+		}
+	}
+
+	/**
+	 * Evicts the least recently used entry. Must be called while holding the lock
+	 * on this instance.
+	 */
+	private void evictEldest() {
+		final Iterator<EntryRecord> records = this.entries.values().iterator();
+		this.releaseRecord(records.next());
+		records.remove();
+		this.evictions++;
+	}
+
+	/**
+	 * Releases the blocks of a record. Must be called while holding the lock on
+	 * this instance.
+	 *
+	 * @param entry the record
+	 */
+	private void releaseRecord(final EntryRecord entry) {
+		for (final int block : entry.blocks) {
+			if (this.freeBlockCount == this.freeBlocks.length) {
+				final int[] newFreeBlocks = new int[this.freeBlocks.length * 2];
+				System.arraycopy(this.freeBlocks, 0, newFreeBlocks, 0, this.freeBlockCount);
+				this.freeBlocks = newFreeBlocks;
+			}
+			this.freeBlocks[this.freeBlockCount++] = block;
+		}
+		this.usedBytes -= entry.length;
+	}
+
+	/**
+	 * Gets the number of blocks available for allocation without eviction. Must
+	 * be called while holding the lock on this instance.
+	 *
+	 * @return the available blocks
+	 */
+	private int getAvailableBlocks() {
+		return this.freeBlockCount + (this.maxBlocks - this.allocatedBlocks);
+	}
+
+	/**
+	 * Allocates a block, preferring previously freed blocks and allocating a new
+	 * slab if required. Must be called while holding the lock on this instance.
+	 *
+	 * @return the block index
+	 */
+	private int allocateBlock() {
+		final int block;
+		if (this.freeBlockCount > 0) {
+			block = this.freeBlocks[--this.freeBlockCount];
+		} else {
+			block = this.allocatedBlocks++;
+			if (block / this.blocksPerSlab >= this.slabs.size()) {
+				this.slabs.add(ByteBuffer.allocateDirect(this.blocksPerSlab * this.blockSize));
+			}
+		}
+		return block;
+	}
+
+	/**
+	 * Writes bytes into blocks. Must be called while holding the lock on this
+	 * instance.
+	 *
+	 * @param blocks the blocks
+	 * @param bytes  the bytes
+	 */
+	private void writeBlocks(final int[] blocks, final byte[] bytes) {
+		int offset = 0;
+		for (final int block : blocks) {
+			final int length = Math.min(this.blockSize, bytes.length - offset);
+			final ByteBuffer slab = this.slabs.get(block / this.blocksPerSlab).duplicate();
+			slab.position((block % this.blocksPerSlab) * this.blockSize);
+			slab.put(bytes, offset, length);
+			offset += length;
+		}
+	}
+
+	/**
+	 * Reads the bytes of a record. Must be called while holding the lock on this
+	 * instance.
+	 *
+	 * @param entry the record
+	 * @return the bytes
+	 */
+	private byte[] readBlocks(final EntryRecord entry) {
+		final byte[] bytes = new byte[entry.length];
+		int offset = 0;
+		for (final int block : entry.blocks) {
+			final int length = Math.min(this.blockSize, entry.length - offset);
+			final ByteBuffer slab = this.slabs.get(block / this.blocksPerSlab).duplicate();
+			slab.position((block % this.blocksPerSlab) * this.blockSize);
+			slab.get(bytes, offset, length);
+			offset += length;
+		}
+		return bytes;
+	}
+
+	/**
+	 * The on-heap record of an entry, referencing the blocks holding its
+	 * serialized value.
+	 */
+	private static class EntryRecord {
+
+		/** The blocks. */
+		private final int[] blocks;
+
+		/** The length of the serialized value. */
+		private final int length;
+
+		/** The creation timestamp. */
+		private final long created;
+
+		/**
+		 * Instantiates a new entry record.
+		 *
+		 * @param blocks  the blocks
+		 * @param length  the length of the serialized value
+		 * @param created the creation timestamp
+		 */
+		private EntryRecord(final int[] blocks, final int length, final long created) {
+			this.blocks = blocks;
+			this.length = length;
+			this.created = created;
+		}
+	}
+}
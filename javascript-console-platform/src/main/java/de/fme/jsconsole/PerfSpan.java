@@ -0,0 +1,321 @@
+package de.fme.jsconsole;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import org.alfresco.util.ParameterCheck;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A hierarchical timing span for performance monitoring based on
+ * {@link System#nanoTime()}, which also records the CPU time and allocated bytes
+ * of the current thread (if supported by the JVM). Start a root span via {@link #start(String)},
+ * nested phases via {@link #startChild(String)} and stop each span via
+ * {@link #stop()}. The resulting span tree can be transferred to the client as
+ * JSON via {@link #toJson()}.
+ */
+public class PerfSpan implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = -6101934771387364525L;
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(PerfSpan.class);
+
+	/** The name. */
+	private final String name;
+
+	/** The start time in nanoseconds. */
+	private final long startNanos;
+
+	/** The duration in nanoseconds (-1 while the span is running). */
+	private long durationNanos = -1;
+
+	/** The thread CPU time at start in nanoseconds (-1 if not supported). */
+	private final long startCpuNanos;
+
+	/** The thread CPU time of the span in nanoseconds (-1 if unknown). */
+	private long cpuNanos = -1;
+
+	/** The thread allocated bytes at start (-1 if not supported). */
+	private final long startAllocatedBytes;
+
+	/** The bytes allocated by the thread during the span (-1 if unknown). */
+	private long allocatedBytes = -1;
+
+	/** The child spans. */
+	private final List<PerfSpan> children = new ArrayList<>();
+
+	/**
+	 * Instantiates a new perf span.
+	 *
+	 * @param name the name
+	 */
+	protected PerfSpan(final String name) {
+		ParameterCheck.mandatoryString("name", name);
+		this.name = name;
+		this.startCpuNanos = ThreadResourceUsage.getCurrentThreadCpuNanos();
+		this.startAllocatedBytes = ThreadResourceUsage.getCurrentThreadAllocatedBytes();
+		this.startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Starts a new root span.
+	 *
+	 * @param name the name of the span
+	 * @return the started span
+	 */
+	public static PerfSpan start(final String name) {
+		return new PerfSpan(name);
+	}
+
+	/**
+	 * Starts a new span nested in this span.
+	 *
+	 * @param childName the name of the child span
+	 * @return the started child span
+	 */
+	public PerfSpan startChild(final String childName) {
+		final PerfSpan child = new PerfSpan(childName);
+		synchronized (this.children) {
+			this.children.add(child);
+		}
+		return child;
+	}
+
+	/**
+	 * Stops this span. Stopping an already stopped span has no effect. Spans
+	 * must be stopped on the thread which started them for the CPU time and
+	 * allocated bytes to be meaningful.
+	 *
+	 * @return the duration of this span in nanoseconds
+	 */
+	public long stop() {
+		if (this.durationNanos < 0) {
+			this.durationNanos = System.nanoTime() - this.startNanos;
+			if (this.startCpuNanos >= 0) {
+				this.cpuNanos = ThreadResourceUsage.getCurrentThreadCpuNanos() - this.startCpuNanos;
+			}
+			if (this.startAllocatedBytes >= 0) {
+				this.allocatedBytes = ThreadResourceUsage.getCurrentThreadAllocatedBytes() - this.startAllocatedBytes;
+			}
+			LOGGER.debug("Took {} ms (CPU {} ms, {} bytes allocated) for {}", toMillis(this.durationNanos),
+					toMillis(this.cpuNanos), this.allocatedBytes, this.name);
+		}
+		return this.durationNanos;
+	}
+
+	/**
+	 * Gets the name.
+	 *
+	 * @return the name
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Checks if this span has been stopped.
+	 *
+	 * @return true, if stopped
+	 */
+	public boolean isStopped() {
+		return this.durationNanos >= 0;
+	}
+
+	/**
+	 * Gets the duration in nanoseconds. For a span which is still running this is
+	 * the time elapsed so far.
+	 *
+	 * @return the duration in nanoseconds
+	 */
+	public long getDurationNanos() {
+		return this.durationNanos >= 0 ? this.durationNanos : System.nanoTime() - this.startNanos;
+	}
+
+	/**
+	 * Gets the duration in milliseconds with microsecond precision.
+	 *
+	 * @return the duration in milliseconds
+	 */
+	public double getDurationMillis() {
+		return toMillis(this.getDurationNanos());
+	}
+
+	/**
+	 * Gets the thread CPU time of this (stopped) span in nanoseconds.
+	 *
+	 * @return the CPU time in nanoseconds or -1 if unknown
+	 */
+	public long getCpuNanos() {
+		return this.cpuNanos;
+	}
+
+	/**
+	 * Gets the bytes allocated by the thread during this (stopped) span.
+	 *
+	 * @return the allocated bytes or -1 if unknown
+	 */
+	public long getAllocatedBytes() {
+		return this.allocatedBytes;
+	}
+
+	/**
+	 * Gets the child spans.
+	 *
+	 * @return the child spans
+	 */
+	public List<PerfSpan> getChildren() {
+		synchronized (this.children) {
+			return Collections.unmodifiableList(new ArrayList<>(this.children));
+		}
+	}
+
+	/**
+	 * Sums up the durations of all spans with a specific name in the tree below
+	 * this span (e.g. multiple script spans in case of transaction retries).
+	 *
+	 * @param spanName the span name
+	 * @return the total duration in milliseconds
+	 */
+	public double getTotalMillis(final String spanName) {
+		return toMillis(this.getTotalNanos(spanName));
+	}
+
+	/**
+	 * Sums up the durations of all spans with a specific name in the tree below
+	 * this span.
+	 *
+	 * @param spanName the span name
+	 * @return the total duration in nanoseconds
+	 */
+	public long getTotalNanos(final String spanName) {
+		return this.getTotal(spanName, PerfSpan::getDurationNanos);
+	}
+
+	/**
+	 * Sums up the thread CPU time of all spans with a specific name in the tree
+	 * below this span.
+	 *
+	 * @param spanName the span name
+	 * @return the total CPU time in nanoseconds (0 if unknown)
+	 */
+	public long getTotalCpuNanos(final String spanName) {
+		return this.getTotal(spanName, span -> Math.max(0, span.cpuNanos));
+	}
+
+	/**
+	 * Sums up the allocated bytes of all spans with a specific name in the tree
+	 * below this span.
+	 *
+	 * @param spanName the span name
+	 * @return the total allocated bytes (0 if unknown)
+	 */
+	public long getTotalAllocatedBytes(final String spanName) {
+		return this.getTotal(spanName, span -> Math.max(0, span.allocatedBytes));
+	}
+
+	/**
+	 * Sums up a value of all spans with a specific name in the tree below this
+	 * span.
+	 *
+	 * @param spanName the span name
+	 * @param value    the function providing the value of a span
+	 * @return the total
+	 */
+	protected long getTotal(final String spanName, final ToLongFunction<PerfSpan> value) {
+		long total = 0;
+		for (final PerfSpan child : this.getChildren()) {
+			if (child.name.equals(spanName)) {
+				total += value.applyAsLong(child);
+			} else {
+				total += child.getTotal(spanName, value);
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Generates the JSON structure of this span and its children.
+	 *
+	 * @return the JSON object
+	 * @throws JSONException if an error occurs preparing the JSON structure
+	 */
+	public JSONObject toJson() throws JSONException {
+		final JSONObject json = new JSONObject();
+		json.put("name", this.name);
+		json.put("duration", this.getDurationMillis());
+		if (this.cpuNanos >= 0) {
+			json.put("cpu", toMillis(this.cpuNanos));
+		}
+		if (this.allocatedBytes >= 0) {
+			json.put("allocated", this.allocatedBytes);
+		}
+		final List<PerfSpan> childSpans = this.getChildren();
+		if (!childSpans.isEmpty()) {
+			final JSONArray childrenJson = new JSONArray();
+			for (final PerfSpan child : childSpans) {
+				childrenJson.put(child.toJson());
+			}
+			json.put("children", childrenJson);
+		}
+		return json;
+	}
+
+	/**
+	 * Converts nanoseconds to milliseconds with microsecond precision.
+	 *
+	 * @param nanos the nanoseconds
+	 * @return the milliseconds
+	 */
+	public static double toMillis(final long nanos) {
+		return Math.round(nanos / 1000.0) / 1000.0;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + this.name.hashCode();
+		result = prime * result + (int) (this.startNanos ^ (this.startNanos >>> 32));
+		result = prime * result + (int) (this.durationNanos ^ (this.durationNanos >>> 32));
+		return result;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || this.getClass() != obj.getClass()) {
+			return false;
+		}
+		final PerfSpan other = (PerfSpan) obj;
+		return this.name.equals(other.name) && this.startNanos == other.startNanos
+				&& this.durationNanos == other.durationNanos && this.getChildren().equals(other.getChildren());
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return this.name + ": " + this.getDurationMillis() + " ms";
+	}
+}
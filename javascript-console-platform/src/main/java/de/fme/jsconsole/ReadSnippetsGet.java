@@ -0,0 +1,80 @@
+package de.fme.jsconsole;
+
+import java.io.IOException;
+import java.time.ZoneOffset;
+
+import org.alfresco.repo.content.MimetypeMap;
+import org.alfresco.util.PropertyCheck;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.extensions.webscripts.AbstractWebScript;
+import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+import org.springframework.extensions.webscripts.WebScriptResponse;
+
+/**
+ * Web script to list the JSON snippets of the snippets folder. The snippets
+ * are served from the {@link SnippetService} with an ETag and Last-Modified,
+ * so clients revalidating unchanged snippets get a 304 without a body.
+ */
+public class ReadSnippetsGet extends AbstractWebScript implements InitializingBean {
+
+	/** The snippet service. */
+	private SnippetService snippetService;
+
+	/** The response compression (null to not compress responses). */
+	private ResponseCompression responseCompression;
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		PropertyCheck.mandatory(this, "snippetService", this.snippetService);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void execute(final WebScriptRequest request, final WebScriptResponse response) throws IOException {
+		final SnippetService.Snippets snippets = this.snippetService.getSnippets();
+		final String etag = "\"" + snippets.getEtag() + "\"";
+		final String lastModified = ApiCommandsGet.HTTP_DATE
+				.format(snippets.getLastModified().toInstant().atZone(ZoneOffset.UTC));
+
+		response.setHeader("ETag", etag);
+		response.setHeader("Last-Modified", lastModified);
+		response.setHeader("Cache-Control", "no-cache");
+		final String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null ? ListScriptsGet.matches(ifNoneMatch, etag)
+				: lastModified.equals(request.getHeader("If-Modified-Since"))) {
+			response.setStatus(Status.STATUS_NOT_MODIFIED);
+			return;
+		}
+
+		response.setContentEncoding("UTF-8");
+		response.setContentType(MimetypeMap.MIMETYPE_JSON);
+		ResponseCompression.write(this.responseCompression, request, response,
+				"{\"scripts\":" + snippets.getJson() + "}");
+	}
+
+	/**
+	 * Sets the snippet service.
+	 *
+	 * @param snippetService the snippetService to set
+	 */
+	public final void setSnippetService(final SnippetService snippetService) {
+		this.snippetService = snippetService;
+	}
+
+	/**
+	 * Sets the response compression.
+	 *
+	 * @param responseCompression the responseCompression to set
+	 */
+	public final void setResponseCompression(final ResponseCompression responseCompression) {
+		this.responseCompression = responseCompression;
+	}
+}
@@ -0,0 +1,94 @@
+package de.fme.jsconsole;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Interceptor counting and timing the calls of public repository service
+ * methods (e.g. NodeService, SearchService, ContentService). The interceptor
+ * is only active on threads for which accounting has been started via
+ * {@link #startAccounting()}, i.e. threads running a JavaScript Console
+ * execution - on all other threads it just delegates to the service. Only the
+ * outermost service call is accounted, so time spent in services called by
+ * other services is attributed to the calling service method.
+ */
+public class RepositoryCallInterceptor implements MethodInterceptor {
+
+	/** The accounting context of the current thread. */
+	private static final ThreadLocal<AccountingContext> CONTEXT = new ThreadLocal<>();
+
+	/**
+	 * Starts the accounting of repository calls for the current thread.
+	 */
+	public static void startAccounting() {
+		CONTEXT.set(new AccountingContext());
+	}
+
+	/**
+	 * Stops the accounting of repository calls for the current thread.
+	 *
+	 * @param topN the max number of methods to return
+	 * @return the statistics of the methods with the highest total time, sorted
+	 *         by descending total time
+	 */
+	public static List<RepositoryCallStatistics> stopAccounting(final int topN) {
+		final AccountingContext context = CONTEXT.get();
+		CONTEXT.remove();
+
+		final List<RepositoryCallStatistics> statistics = new ArrayList<>();
+		if (context != null) {
+			statistics.addAll(context.statistics.values());
+			statistics.sort(Comparator.comparingLong(RepositoryCallStatistics::getTotalNanos).reversed());
+			if (statistics.size() > topN) {
+				statistics.subList(topN, statistics.size()).clear();
+			}
+		}
+		return statistics;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object invoke(final MethodInvocation invocation) throws Throwable {
+		final AccountingContext context = CONTEXT.get();
+		if (context == null || context.depth > 0) {
+			return invocation.proceed();
+		}
+
+		// service calls are a regular checkpoint of scripts
+		ThreadResourceUsage.checkAllocationBudget();
+
+		context.depth++;
+		final long start = System.nanoTime();
+		try {
+			return invocation.proceed();
+		} finally {
+			final long nanos = System.nanoTime() - start;
+			context.depth--;
+
+			final String method = invocation.getMethod().getDeclaringClass().getSimpleName() + "."
+					+ invocation.getMethod().getName();
+			context.statistics.computeIfAbsent(method, RepositoryCallStatistics::new).recordCall(nanos);
+		}
+	}
+
+	/**
+	 * The accounting state of a single thread.
+	 */
+	private static class AccountingContext {
+
+		/** The current nesting depth of service calls. */
+		private int depth;
+
+		/** The statistics by method. */
+		private final Map<String, RepositoryCallStatistics> statistics = new HashMap<>();
+	}
+}
@@ -0,0 +1,121 @@
+package de.fme.jsconsole;
+
+import java.io.Serializable;
+
+/**
+ * The aggregated calls of a single repository service method during a
+ * JavaScript Console execution.
+ */
+public class RepositoryCallStatistics implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 3208675473411840196L;
+
+	/** The method, e.g. NodeService.getProperty. */
+	private final String method;
+
+	/** The number of calls. */
+	private long calls;
+
+	/** The total time of all calls in nanoseconds. */
+	private long totalNanos;
+
+	/** The max time of a single call in nanoseconds. */
+	private long maxNanos;
+
+	/**
+	 * Instantiates a new repository call statistics.
+	 *
+	 * @param method the method
+	 */
+	public RepositoryCallStatistics(final String method) {
+		this.method = method;
+	}
+
+	/**
+	 * Records a single call.
+	 *
+	 * @param nanos the time of the call in nanoseconds
+	 */
+	public void recordCall(final long nanos) {
+		this.calls++;
+		this.totalNanos += nanos;
+		this.maxNanos = Math.max(this.maxNanos, nanos);
+	}
+
+	/**
+	 * Gets the method.
+	 *
+	 * @return the method
+	 */
+	public String getMethod() {
+		return this.method;
+	}
+
+	/**
+	 * Gets the number of calls.
+	 *
+	 * @return the calls
+	 */
+	public long getCalls() {
+		return this.calls;
+	}
+
+	/**
+	 * Gets the total time of all calls in nanoseconds.
+	 *
+	 * @return the total nanos
+	 */
+	public long getTotalNanos() {
+		return this.totalNanos;
+	}
+
+	/**
+	 * Gets the max time of a single call in nanoseconds.
+	 *
+	 * @return the max nanos
+	 */
+	public long getMaxNanos() {
+		return this.maxNanos;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + this.method.hashCode();
+		result = prime * result + (int) (this.calls ^ (this.calls >>> 32));
+		result = prime * result + (int) (this.totalNanos ^ (this.totalNanos >>> 32));
+		return result;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || this.getClass() != obj.getClass()) {
+			return false;
+		}
+		final RepositoryCallStatistics other = (RepositoryCallStatistics) obj;
+		return this.method.equals(other.method) && this.calls == other.calls && this.totalNanos == other.totalNanos
+				&& this.maxNanos == other.maxNanos;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return this.method + ": " + this.calls + " call(s), " + PerfSpan.toMillis(this.totalNanos) + " ms";
+	}
+}
@@ -0,0 +1,364 @@
+package de.fme.jsconsole;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptException;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+import org.springframework.extensions.webscripts.WebScriptResponse;
+
+/**
+ * Negotiates gzip or deflate compression of JavaScript Console JSON responses
+ * with the Accept-Encoding request header and decodes compressed request
+ * bodies (Content-Encoding gzip or deflate). Responses below the min size are
+ * sent uncompressed. The bytes saved by compression are recorded in the
+ * {@link ExecutionMetrics}.
+ */
+public class ResponseCompression {
+
+	/** The gzip content coding. */
+	public static final String GZIP = "gzip";
+
+	/** The deflate (zlib) content coding. */
+	public static final String DEFLATE = "deflate";
+
+	/** The identity content coding. */
+	private static final String IDENTITY = "identity";
+
+	/** Whether responses are compressed. */
+	private boolean enabled = true;
+
+	/** The compression level (1-9, or -1 for the default level). */
+	private int level = Deflater.DEFAULT_COMPRESSION;
+
+	/** The min size of a response in characters to be compressed. */
+	private int minSize = 1024;
+
+	/** The execution metrics (null to not record the saved bytes). */
+	private ExecutionMetrics executionMetrics;
+
+	/**
+	 * Writes a JSON response, compressed with the encoding negotiated with the
+	 * request if the response is large enough. The content type has to be set by
+	 * the caller.
+	 *
+	 * @param request  the request
+	 * @param response the response
+	 * @param json     the JSON
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void writeJson(final WebScriptRequest request, final WebScriptResponse response, final String json)
+			throws IOException {
+		final String encoding = this.enabled && json.length() >= this.minSize
+				? negotiate(request.getHeader("Accept-Encoding"))
+				: null;
+		response.setHeader("Vary", "Accept-Encoding");
+		if (encoding == null) {
+			response.getWriter().write(json);
+			return;
+		}
+
+		response.setHeader("Content-Encoding", encoding);
+		// only the outermost stream around the response stream keeps it open on close
+		final CountingOutputStream compressed = new CountingOutputStream(response.getOutputStream(), true);
+		final DeflaterOutputStream deflater = GZIP.equals(encoding) ? new LevelGZIPOutputStream(compressed, this.level)
+				: new LevelDeflaterOutputStream(compressed, this.level);
+		final CountingOutputStream uncompressed = new CountingOutputStream(deflater, false);
+		// closing finishes the compression and releases the deflater, but keeps the response open
+		try (Writer writer = new OutputStreamWriter(uncompressed, StandardCharsets.UTF_8)) {
+			writer.write(json);
+		}
+
+		if (this.executionMetrics != null) {
+			this.executionMetrics.recordResponseCompression(uncompressed.getCount(), compressed.getCount());
+		}
+	}
+
+	/**
+	 * Writes a JSON response, compressed if a response compression is given.
+	 *
+	 * @param compression the response compression (null to write uncompressed)
+	 * @param request     the request (null to write uncompressed)
+	 * @param response    the response
+	 * @param json        the JSON
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void write(final ResponseCompression compression, final WebScriptRequest request,
+			final WebScriptResponse response, final String json) throws IOException {
+		if (compression != null && request != null) {
+			compression.writeJson(request, response, json);
+		} else {
+			response.getWriter().write(json);
+		}
+	}
+
+	/**
+	 * Decodes a request body according to the Content-Encoding request header.
+	 *
+	 * @param request the request
+	 * @param body    the (possibly compressed) request body
+	 * @return the decoded request body
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static InputStream decodeRequestBody(final WebScriptRequest request, final InputStream body)
+			throws IOException {
+		final String contentEncoding = request.getHeader("Content-Encoding");
+		if (contentEncoding == null || contentEncoding.trim().isEmpty()
+				|| IDENTITY.equalsIgnoreCase(contentEncoding.trim())) {
+			return body;
+		}
+		final String encoding = contentEncoding.trim().toLowerCase(Locale.ENGLISH);
+		if (GZIP.equals(encoding) || "x-gzip".equals(encoding)) {
+			return new GZIPInputStream(body);
+		}
+		if (DEFLATE.equals(encoding)) {
+			return new InflaterInputStream(body);
+		}
+		throw new WebScriptException(Status.STATUS_UNSUPPORTED_MEDIA_TYPE,
+				"Unsupported request content encoding " + contentEncoding);
+	}
+
+	/**
+	 * Negotiates the response encoding with an Accept-Encoding header, preferring
+	 * gzip over deflate.
+	 *
+	 * @param acceptEncoding the Accept-Encoding header (may be null)
+	 * @return gzip, deflate or null if neither is accepted
+	 */
+	protected static String negotiate(final String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return null;
+		}
+
+		float gzip = -1;
+		float deflate = -1;
+		float any = -1;
+		for (final String element : acceptEncoding.split(",")) {
+			final String[] parameters = element.split(";");
+			final String coding = parameters[0].trim().toLowerCase(Locale.ENGLISH);
+			float quality = 1;
+			for (int i = 1; i < parameters.length; i++) {
+				final String parameter = parameters[i].trim();
+				if (parameter.startsWith("q=")) {
+					try {
+						quality = Float.parseFloat(parameter.substring(2).trim());
+					} catch (final NumberFormatException nfe) {
+						quality = 0;
+					}
+				}
+			}
+			if (GZIP.equals(coding) || "x-gzip".equals(coding)) {
+				gzip = quality;
+			} else if (DEFLATE.equals(coding)) {
+				deflate = quality;
+			} else if ("*".equals(coding)) {
+				any = quality;
+			}
+		}
+
+		if (gzip < 0) {
+			gzip = any;
+		}
+		if (deflate < 0) {
+			deflate = any;
+		}
+		if (gzip > 0 && gzip >= deflate) {
+			return GZIP;
+		}
+		return deflate > 0 ? DEFLATE : null;
+	}
+
+	/**
+	 * Sets whether responses are compressed.
+	 *
+	 * @param enabled the enabled to set
+	 */
+	public void setEnabled(final boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Sets the compression level (1-9, or -1 for the default level).
+	 *
+	 * @param level the level to set
+	 */
+	public void setLevel(final int level) {
+		this.level = level;
+	}
+
+	/**
+	 * Sets the min size of a response in characters to be compressed.
+	 *
+	 * @param minSize the minSize to set
+	 */
+	public void setMinSize(final int minSize) {
+		this.minSize = minSize;
+	}
+
+	/**
+	 * Sets the execution metrics.
+	 *
+	 * @param executionMetrics the executionMetrics to set
+	 */
+	public void setExecutionMetrics(final ExecutionMetrics executionMetrics) {
+		this.executionMetrics = executionMetrics;
+	}
+
+	/**
+	 * A gzip output stream with a configurable compression level.
+	 */
+	private static final class LevelGZIPOutputStream extends GZIPOutputStream {
+
+		/**
+		 * Instantiates a new gzip output stream.
+		 *
+		 * @param out   the output stream
+		 * @param level the compression level
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		private LevelGZIPOutputStream(final OutputStream out, final int level) throws IOException {
+			super(out, 8192);
+			this.def.setLevel(level);
+		}
+
+		/**
+		 * Finishes the compression and releases the deflater, but leaves the
+		 * underlying stream open.
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		@Override
+		public void close() throws IOException {
+			finishAndEnd(this, this.def, this.out);
+		}
+	}
+
+	/**
+	 * A deflate (zlib) output stream with a configurable compression level.
+	 */
+	private static final class LevelDeflaterOutputStream extends DeflaterOutputStream {
+
+		/**
+		 * Instantiates a new deflate output stream.
+		 *
+		 * @param out   the output stream
+		 * @param level the compression level
+		 */
+		private LevelDeflaterOutputStream(final OutputStream out, final int level) {
+			super(out);
+			this.def.setLevel(level);
+		}
+
+		/**
+		 * Finishes the compression and releases the deflater, but leaves the
+		 * underlying stream open.
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		@Override
+		public void close() throws IOException {
+			finishAndEnd(this, this.def, this.out);
+		}
+	}
+
+	/**
+	 * Finishes a deflater output stream and releases its native deflater, which
+	 * is safe to call more than once. The underlying stream is flushed, not
+	 * closed.
+	 *
+	 * @param stream   the deflater output stream
+	 * @param deflater the deflater of the stream
+	 * @param out      the underlying stream
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static void finishAndEnd(final DeflaterOutputStream stream, final Deflater deflater,
+			final OutputStream out) throws IOException {
+		try {
+			if (!deflater.finished()) {
+				stream.finish();
+			}
+			out.flush();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Counts the bytes written to an output stream. Closing either closes the
+	 * underlying stream or, if it is to be kept open (e.g. the response stream),
+	 * only flushes it.
+	 */
+	private static final class CountingOutputStream extends FilterOutputStream {
+
+		/** Whether the underlying stream is kept open on close. */
+		private final boolean keepOpen;
+
+		/** The number of bytes written. */
+		private long count;
+
+		/**
+		 * Instantiates a new counting output stream.
+		 *
+		 * @param out      the output stream
+		 * @param keepOpen whether the output stream is kept open on close
+		 */
+		private CountingOutputStream(final OutputStream out, final boolean keepOpen) {
+			super(out);
+			this.keepOpen = keepOpen;
+		}
+
+		/**
+		 *
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void write(final int b) throws IOException {
+			this.out.write(b);
+			this.count++;
+		}
+
+		/**
+		 *
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			this.out.write(b, off, len);
+			this.count += len;
+		}
+
+		/**
+		 *
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void close() throws IOException {
+			if (this.keepOpen) {
+				this.out.flush();
+			} else {
+				this.out.close();
+			}
+		}
+
+		/**
+		 * Gets the number of bytes written.
+		 *
+		 * @return the count
+		 */
+		private long getCount() {
+			return this.count;
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package de.fme.jsconsole;
+
+import java.io.Serializable;
+
+/**
+ * Lifecycle information about a result channel, i.e. the channel an
+ * asynchronously polled JavaScript Console execution writes its print output
+ * and result to. Instances are immutable so they can safely be shared via
+ * (distributed) caches.
+ */
+public class ResultChannelInfo implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 6157046339584736721L;
+
+	/**
+	 * The state of a result channel.
+	 */
+	public enum State {
+
+		/** The script is still being executed. */
+		RUNNING,
+
+		/** The script has completed and its result is waiting to be collected. */
+		COMPLETED,
+
+		/** The script has failed and the error marker is waiting to be collected. */
+		FAILED;
+	}
+
+	/** The channel. */
+	private final String channel;
+
+	/** The user running the script. */
+	private final String user;
+
+	/** The creation timestamp. */
+	private final long created;
+
+	/** The timestamp of the last poll (0 if never polled). */
+	private final long lastPoll;
+
+	/** The timestamp of the last state change. */
+	private final long lastStateChange;
+
+	/** The state. */
+	private final State state;
+
+	/**
+	 * Instantiates a new result channel info.
+	 *
+	 * @param channel         the channel
+	 * @param user            the user running the script
+	 * @param created         the creation timestamp
+	 * @param lastPoll        the timestamp of the last poll
+	 * @param lastStateChange the timestamp of the last state change
+	 * @param state           the state
+	 */
+	public ResultChannelInfo(final String channel, final String user, final long created, final long lastPoll,
+			final long lastStateChange, final State state) {
+		this.channel = channel;
+		this.user = user;
+		this.created = created;
+		this.lastPoll = lastPoll;
+		this.lastStateChange = lastStateChange;
+		this.state = state;
+	}
+
+	/**
+	 * Creates a copy of this instance with an updated poll timestamp.
+	 *
+	 * @param pollTime the poll timestamp
+	 * @return the updated info
+	 */
+	public ResultChannelInfo withPoll(final long pollTime) {
+		return new ResultChannelInfo(this.channel, this.user, this.created, pollTime, this.lastStateChange,
+				this.state);
+	}
+
+	/**
+	 * Creates a copy of this instance with an updated state.
+	 *
+	 * @param newState   the new state
+	 * @param changeTime the timestamp of the state change
+	 * @return the updated info
+	 */
+	public ResultChannelInfo withState(final State newState, final long changeTime) {
+		return new ResultChannelInfo(this.channel, this.user, this.created, this.lastPoll, changeTime, newState);
+	}
+
+	/**
+	 * Gets the timestamp of the last activity on the channel, i.e. the latest of
+	 * creation, last poll and last state change.
+	 *
+	 * @return the last activity timestamp
+	 */
+	public long getLastActivity() {
+		return Math.max(this.created, Math.max(this.lastPoll, this.lastStateChange));
+	}
+
+	/**
+	 * Gets the channel.
+	 *
+	 * @return the channel
+	 */
+	public String getChannel() {
+		return this.channel;
+	}
+
+	/**
+	 * Gets the user running the script.
+	 *
+	 * @return the user
+	 */
+	public String getUser() {
+		return this.user;
+	}
+
+	/**
+	 * Gets the creation timestamp.
+	 *
+	 * @return the created
+	 */
+	public long getCreated() {
+		return this.created;
+	}
+
+	/**
+	 * Gets the timestamp of the last poll.
+	 *
+	 * @return the last poll (0 if never polled)
+	 */
+	public long getLastPoll() {
+		return this.lastPoll;
+	}
+
+	/**
+	 * Gets the timestamp of the last state change.
+	 *
+	 * @return the last state change
+	 */
+	public long getLastStateChange() {
+		return this.lastStateChange;
+	}
+
+	/**
+	 * Gets the state.
+	 *
+	 * @return the state
+	 */
+	public State getState() {
+		return this.state;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "ResultChannelInfo [channel=" + this.channel + ", user=" + this.user + ", created=" + this.created
+				+ ", lastPoll=" + this.lastPoll + ", lastStateChange=" + this.lastStateChange + ", state="
+				+ this.state + "]";
+	}
+}
@@ -0,0 +1,271 @@
+package de.fme.jsconsole;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.repo.cache.SimpleCache;
+import org.alfresco.util.Pair;
+import org.alfresco.util.PropertyCheck;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Tracks the lifecycle of result channels (creation, polls, completion) and
+ * frees the print output chunks and results of channels which have been
+ * abandoned by their client (e.g. because the browser tab has been closed)
+ * long before the caches would expire them on their own. The state of a
+ * channel is only written on creation and completion, while polls only write
+ * the last poll time kept in a separate cache, so a poll on one cluster node
+ * never overwrites the completion recorded on another node.
+ */
+public class ResultChannelRegistry implements InitializingBean, DisposableBean {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(ResultChannelRegistry.class);
+
+	/** The channel cache. */
+	private SimpleCache<String, ResultChannelInfo> channelCache;
+
+	/** The cache of the last poll time by channel. */
+	private SimpleCache<String, Long> channelPollCache;
+
+	/** The print output cache. */
+	private SimpleCache<Pair<String, Integer>, List<String>> printOutputCache;
+
+	/** The result cache. */
+	private SimpleCache<String, JavascriptConsoleResultBase> resultCache;
+
+	/** The time without any activity after which a channel is considered abandoned. */
+	private int abandonedTimeoutSeconds = 300;
+
+	/** The interval of the reaper runs in seconds (0 to disable the reaper). */
+	private int reaperIntervalSeconds = 60;
+
+	/** The reaper executor. */
+	private ScheduledExecutorService reaperExecutor;
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		PropertyCheck.mandatory(this, "channelCache", this.channelCache);
+		PropertyCheck.mandatory(this, "channelPollCache", this.channelPollCache);
+		PropertyCheck.mandatory(this, "printOutputCache", this.printOutputCache);
+		PropertyCheck.mandatory(this, "resultCache", this.resultCache);
+
+		if (this.reaperIntervalSeconds > 0) {
+			this.reaperExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				final Thread thread = new Thread(runnable, "jsconsole-channel-reaper");
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.reaperExecutor.scheduleWithFixedDelay(this::reapAbandonedChannels, this.reaperIntervalSeconds,
+					this.reaperIntervalSeconds, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void destroy() {
+		if (this.reaperExecutor != null) {
+			this.reaperExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Registers a new channel for a script execution which is about to start.
+	 *
+	 * @param channel the channel
+	 * @param user    the user running the script
+	 */
+	public void channelCreated(final String channel, final String user) {
+		final long now = System.currentTimeMillis();
+		this.channelCache.put(channel,
+				new ResultChannelInfo(channel, user, now, 0, now, ResultChannelInfo.State.RUNNING));
+	}
+
+	/**
+	 * Checks if a channel is registered, i.e. its script execution is running or
+	 * its output has not been purged yet.
+	 *
+	 * @param channel the channel
+	 * @return true, if the channel is registered
+	 */
+	public boolean isRegistered(final String channel) {
+		return this.channelCache.contains(channel);
+	}
+
+	/**
+	 * Records the completion of the script execution of a channel.
+	 *
+	 * @param channel the channel
+	 * @param failed  whether the script execution failed
+	 */
+	public void channelCompleted(final String channel, final boolean failed) {
+		final ResultChannelInfo info = this.channelCache.get(channel);
+		if (info != null) {
+			this.channelCache.put(channel, info.withState(
+					failed ? ResultChannelInfo.State.FAILED : ResultChannelInfo.State.COMPLETED,
+					System.currentTimeMillis()));
+		}
+	}
+
+	/**
+	 * Records a poll of a channel by the client.
+	 *
+	 * @param channel the channel
+	 */
+	public void channelPolled(final String channel) {
+		if (this.channelCache.contains(channel)) {
+			this.channelPollCache.put(channel, Long.valueOf(System.currentTimeMillis()));
+		}
+	}
+
+	/**
+	 * Removes the print output chunks, the result and the registration of a
+	 * channel.
+	 *
+	 * @param channel the channel
+	 */
+	public void purgeChannel(final String channel) {
+		this.resultCache.remove(channel);
+		for (int chunk = 0; chunk < Integer.MAX_VALUE; chunk++) {
+			final Pair<String, Integer> chunkKey = new Pair<>(channel, Integer.valueOf(chunk));
+			if (this.printOutputCache.contains(chunkKey)) {
+				this.printOutputCache.remove(chunkKey);
+			} else {
+				break;
+			}
+		}
+		this.channelCache.remove(channel);
+		this.channelPollCache.remove(channel);
+	}
+
+	/**
+	 * Gets the info of all live channels including their last poll time.
+	 *
+	 * @return the channel infos
+	 */
+	public List<ResultChannelInfo> getChannels() {
+		final Collection<String> channels = this.channelCache.getKeys();
+		final List<ResultChannelInfo> infos = new ArrayList<>(channels.size());
+		for (final String channel : channels) {
+			final ResultChannelInfo info = this.channelCache.get(channel);
+			if (info != null) {
+				final Long lastPoll = this.channelPollCache.get(channel);
+				infos.add(lastPoll != null ? info.withPoll(lastPoll.longValue()) : info);
+			}
+		}
+		return infos;
+	}
+
+	/**
+	 * Determines the memory footprint of the print output of a channel.
+	 *
+	 * @param channel the channel
+	 * @return a pair of the number of cached chunks and the number of characters
+	 *         in these chunks
+	 */
+	public Pair<Integer, Long> getPrintOutputFootprint(final String channel) {
+		int chunks = 0;
+		long characters = 0;
+		for (int chunk = 0; chunk < Integer.MAX_VALUE; chunk++) {
+			final List<String> chunkOutput = this.printOutputCache.get(new Pair<>(channel, Integer.valueOf(chunk)));
+			if (chunkOutput == null) {
+				break;
+			}
+			chunks++;
+			for (final String line : chunkOutput) {
+				characters += line != null ? line.length() : 0;
+			}
+		}
+		return new Pair<>(Integer.valueOf(chunks), Long.valueOf(characters));
+	}
+
+	/**
+	 * Frees the data of all completed / failed channels which have not been
+	 * collected by a client within the configured timeout. Channels which are
+	 * still running are left alone as their print output must remain complete
+	 * for a client which resumes polling; they become eligible once the script
+	 * completes.
+	 */
+	public void reapAbandonedChannels() {
+		try {
+			final long threshold = System.currentTimeMillis() - (this.abandonedTimeoutSeconds * 1000L);
+			for (final ResultChannelInfo info : this.getChannels()) {
+				if (info.getState() != ResultChannelInfo.State.RUNNING && info.getLastActivity() < threshold) {
+					LOGGER.debug("Reaping abandoned result channel {}", info);
+					this.purgeChannel(info.getChannel());
+				}
+			}
+		} catch (final RuntimeException rex) {
+			LOGGER.warn("Failed to reap abandoned result channels", rex);
+		}
+	}
+
+	/**
+	 * Sets the channel cache.
+	 *
+	 * @param channelCache the channelCache to set
+	 */
+	public final void setChannelCache(final SimpleCache<String, ResultChannelInfo> channelCache) {
+		this.channelCache = channelCache;
+	}
+
+	/**
+	 * Sets the cache of the last poll time by channel.
+	 *
+	 * @param channelPollCache the channelPollCache to set
+	 */
+	public final void setChannelPollCache(final SimpleCache<String, Long> channelPollCache) {
+		this.channelPollCache = channelPollCache;
+	}
+
+	/**
+	 * Sets the print output cache.
+	 *
+	 * @param printOutputCache the printOutputCache to set
+	 */
+	public final void setPrintOutputCache(final SimpleCache<Pair<String, Integer>, List<String>> printOutputCache) {
+		this.printOutputCache = printOutputCache;
+	}
+
+	/**
+	 * Sets the result cache.
+	 *
+	 * @param resultCache the resultCache to set
+	 */
+	public final void setResultCache(final SimpleCache<String, JavascriptConsoleResultBase> resultCache) {
+		this.resultCache = resultCache;
+	}
+
+	/**
+	 * Sets the time without any activity after which a channel is considered
+	 * abandoned.
+	 *
+	 * @param abandonedTimeoutSeconds the abandonedTimeoutSeconds to set
+	 */
+	public final void setAbandonedTimeoutSeconds(final int abandonedTimeoutSeconds) {
+		this.abandonedTimeoutSeconds = abandonedTimeoutSeconds;
+	}
+
+	/**
+	 * Sets the interval of the reaper runs in seconds.
+	 *
+	 * @param reaperIntervalSeconds the reaperIntervalSeconds to set
+	 */
+	public final void setReaperIntervalSeconds(final int reaperIntervalSeconds) {
+		this.reaperIntervalSeconds = reaperIntervalSeconds;
+	}
+}
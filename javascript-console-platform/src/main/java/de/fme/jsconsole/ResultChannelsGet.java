@@ -0,0 +1,89 @@
+package de.fme.jsconsole;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+
+import org.alfresco.repo.content.MimetypeMap;
+import org.alfresco.util.Pair;
+import org.alfresco.util.PropertyCheck;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.extensions.webscripts.AbstractWebScript;
+import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptException;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+import org.springframework.extensions.webscripts.WebScriptResponse;
+
+/**
+ * Web script to list the live result channels together with their lifecycle
+ * state and the memory footprint of their cached print output.
+ */
+public class ResultChannelsGet extends AbstractWebScript implements InitializingBean {
+
+	/** The result channel registry. */
+	private ResultChannelRegistry resultChannelRegistry;
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		PropertyCheck.mandatory(this, "resultChannelRegistry", this.resultChannelRegistry);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void execute(final WebScriptRequest request, final WebScriptResponse response) throws IOException {
+		final List<ResultChannelInfo> channels = this.resultChannelRegistry.getChannels();
+		channels.sort(Comparator.comparingLong(ResultChannelInfo::getCreated));
+
+		response.setContentEncoding("UTF-8");
+		response.setContentType(MimetypeMap.MIMETYPE_JSON);
+
+		try {
+			final JSONArray channelsJson = new JSONArray();
+			long totalCharacters = 0;
+			for (final ResultChannelInfo channel : channels) {
+				final Pair<Integer, Long> footprint = this.resultChannelRegistry
+						.getPrintOutputFootprint(channel.getChannel());
+				totalCharacters += footprint.getSecond().longValue();
+
+				final JSONObject channelJson = new JSONObject();
+				channelJson.put("channel", channel.getChannel());
+				channelJson.put("user", channel.getUser());
+				channelJson.put("state", channel.getState().name());
+				channelJson.put("created", channel.getCreated());
+				channelJson.put("lastPoll", channel.getLastPoll());
+				channelJson.put("lastStateChange", channel.getLastStateChange());
+				channelJson.put("printOutputChunks", footprint.getFirst().intValue());
+				channelJson.put("printOutputCharacters", footprint.getSecond().longValue());
+				// Java strings need (at least) two bytes per character in a serialized form
+				channelJson.put("approximateSize", footprint.getSecond().longValue() * 2);
+				channelsJson.put(channelJson);
+			}
+
+			final JSONObject jsonOutput = new JSONObject();
+			jsonOutput.put("channels", channelsJson);
+			jsonOutput.put("approximateSize", totalCharacters * 2);
+			response.getWriter().write(jsonOutput.toString());
+		} catch (final JSONException e) {
+			throw new WebScriptException(Status.STATUS_INTERNAL_SERVER_ERROR, "Error writing json response.", e);
+		}
+	}
+
+	/**
+	 * Sets the result channel registry.
+	 *
+	 * @param resultChannelRegistry the resultChannelRegistry to set
+	 */
+	public final void setResultChannelRegistry(final ResultChannelRegistry resultChannelRegistry) {
+		this.resultChannelRegistry = resultChannelRegistry;
+	}
+}
@@ -0,0 +1,256 @@
+package de.fme.jsconsole;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * A console script executed repeatedly by the {@link ScheduledScriptService},
+ * together with the timing statistics of its iterations and a rolling window
+ * of its most recent print output.
+ */
+public class ScheduledScript {
+
+	/** The trigger type for a fixed delay between iterations. */
+	public static final String TRIGGER_FIXED_DELAY = "fixedDelay";
+
+	/** The trigger type for a fixed rate of iterations. */
+	public static final String TRIGGER_FIXED_RATE = "fixedRate";
+
+	/** The trigger type for a cron expression. */
+	public static final String TRIGGER_CRON = "cron";
+
+	/** The id, which is also the result channel of the print output. */
+	private final String id;
+
+	/** The user running the script. */
+	private final String user;
+
+	/** The script content including pre- and post-roll. */
+	private final StringScriptContent scriptContent;
+
+	/** The space node ref (null for company home). */
+	private final String spaceNodeRef;
+
+	/** The transaction mode (see {@link ExecutionMetrics}). */
+	private final String transactionMode;
+
+	/** The trigger type. */
+	private final String triggerType;
+
+	/** The trigger value, i.e. the interval in milliseconds or the cron expression. */
+	private final String triggerValue;
+
+	/** The max number of iterations (0 for unlimited). */
+	private final long maxIterations;
+
+	/** The max number of print output lines kept. */
+	private final int maxOutputLines;
+
+	/** The creation time. */
+	private final long created = System.currentTimeMillis();
+
+	/** The iteration time in nanoseconds. */
+	private final LatencyHistogram iterationTime = new LatencyHistogram();
+
+	/** The number of failed iterations. */
+	private final AtomicLong failures = new AtomicLong();
+
+	/** The rolling window of the most recent print output lines. */
+	private final Deque<String> output = new ArrayDeque<>();
+
+	/** The time of the last iteration start (0 if not run yet). */
+	private volatile long lastRun;
+
+	/** The error message of the last failed iteration. */
+	private volatile String lastError;
+
+	/** The scheduled future. */
+	private volatile ScheduledFuture<?> future;
+
+	/**
+	 * Instantiates a new scheduled script.
+	 *
+	 * @param id              the id
+	 * @param user            the user running the script
+	 * @param scriptContent   the script content including pre- and post-roll
+	 * @param spaceNodeRef    the space node ref (null for company home)
+	 * @param transactionMode the transaction mode
+	 * @param triggerType     the trigger type
+	 * @param triggerValue    the trigger value
+	 * @param maxIterations   the max number of iterations (0 for unlimited)
+	 * @param maxOutputLines  the max number of print output lines kept
+	 */
+	public ScheduledScript(final String id, final String user, final StringScriptContent scriptContent,
+			final String spaceNodeRef, final String transactionMode, final String triggerType,
+			final String triggerValue, final long maxIterations, final int maxOutputLines) {
+		this.id = id;
+		this.user = user;
+		this.scriptContent = scriptContent;
+		this.spaceNodeRef = spaceNodeRef;
+		this.transactionMode = transactionMode;
+		this.triggerType = triggerType;
+		this.triggerValue = triggerValue;
+		this.maxIterations = maxIterations;
+		this.maxOutputLines = maxOutputLines;
+	}
+
+	/**
+	 * Records a completed iteration.
+	 *
+	 * @param startMillis the start time of the iteration
+	 * @param nanos       the iteration time in nanoseconds
+	 * @param lines       the print output lines of the iteration
+	 * @param error       the error message (null if the iteration succeeded)
+	 * @return the rolling window of print output lines after the iteration
+	 */
+	public List<String> recordIteration(final long startMillis, final long nanos, final List<String> lines,
+			final String error) {
+		this.lastRun = startMillis;
+		this.iterationTime.record(nanos);
+		if (error != null) {
+			this.failures.incrementAndGet();
+			this.lastError = error;
+		}
+
+		synchronized (this.output) {
+			this.output.add("[#" + this.iterationTime.getCount() + ", " + PerfSpan.toMillis(nanos) + " ms"
+					+ (error != null ? ", failed" : "") + "]");
+			this.output.addAll(lines);
+			if (error != null) {
+				this.output.add(error);
+			}
+			while (this.output.size() > this.maxOutputLines) {
+				this.output.removeFirst();
+			}
+			return new ArrayList<>(this.output);
+		}
+	}
+
+	/**
+	 * Checks if the max number of iterations has been reached.
+	 *
+	 * @return true, if completed
+	 */
+	public boolean isCompleted() {
+		return this.maxIterations > 0 && this.iterationTime.getCount() >= this.maxIterations;
+	}
+
+	/**
+	 * Generates the JSON structure describing the schedule and its statistics.
+	 *
+	 * @return the JSON object
+	 * @throws JSONException if an error occurs preparing the JSON structure
+	 */
+	public JSONObject toJson() throws JSONException {
+		final JSONObject json = new JSONObject();
+		json.put("id", this.id);
+		json.put("resultChannel", this.id);
+		json.put("user", this.user);
+		json.put("spaceNodeRef", this.spaceNodeRef);
+		json.put("transaction", this.transactionMode);
+		json.put("trigger", this.triggerType);
+		json.put("triggerValue", this.triggerValue);
+		json.put("maxIterations", this.maxIterations);
+		json.put("created", this.created);
+		json.put("lastRun", this.lastRun);
+		json.put("lastError", this.lastError);
+		json.put("iterations", this.iterationTime.getCount());
+		json.put("failures", this.failures.get());
+
+		final long count = this.iterationTime.getCount();
+		json.put("mean", count > 0 ? PerfSpan.toMillis(this.iterationTime.getSum() / count) : 0);
+		json.put("p50", PerfSpan.toMillis(this.iterationTime.getValueAtPercentile(50)));
+		json.put("p90", PerfSpan.toMillis(this.iterationTime.getValueAtPercentile(90)));
+		json.put("p99", PerfSpan.toMillis(this.iterationTime.getValueAtPercentile(99)));
+		json.put("max", PerfSpan.toMillis(this.iterationTime.getMax()));
+		return json;
+	}
+
+	/**
+	 * Gets the id.
+	 *
+	 * @return the id
+	 */
+	public String getId() {
+		return this.id;
+	}
+
+	/**
+	 * Gets the user running the script.
+	 *
+	 * @return the user
+	 */
+	public String getUser() {
+		return this.user;
+	}
+
+	/**
+	 * Gets the script content including pre- and post-roll.
+	 *
+	 * @return the script content
+	 */
+	public StringScriptContent getScriptContent() {
+		return this.scriptContent;
+	}
+
+	/**
+	 * Gets the space node ref.
+	 *
+	 * @return the space node ref (null for company home)
+	 */
+	public String getSpaceNodeRef() {
+		return this.spaceNodeRef;
+	}
+
+	/**
+	 * Gets the transaction mode.
+	 *
+	 * @return the transaction mode
+	 */
+	public String getTransactionMode() {
+		return this.transactionMode;
+	}
+
+	/**
+	 * Gets the creation time.
+	 *
+	 * @return the created
+	 */
+	public long getCreated() {
+		return this.created;
+	}
+
+	/**
+	 * Gets the iteration time histogram (nanoseconds).
+	 *
+	 * @return the iteration time
+	 */
+	public LatencyHistogram getIterationTime() {
+		return this.iterationTime;
+	}
+
+	/**
+	 * Gets the scheduled future.
+	 *
+	 * @return the future
+	 */
+	public ScheduledFuture<?> getFuture() {
+		return this.future;
+	}
+
+	/**
+	 * Sets the scheduled future.
+	 *
+	 * @param future the future to set
+	 */
+	public void setFuture(final ScheduledFuture<?> future) {
+		this.future = future;
+	}
+}
@@ -0,0 +1,63 @@
+package de.fme.jsconsole;
+
+import java.io.IOException;
+
+import org.alfresco.repo.content.MimetypeMap;
+import org.alfresco.util.PropertyCheck;
+import org.json.JSONException;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.extensions.webscripts.AbstractWebScript;
+import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptException;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+import org.springframework.extensions.webscripts.WebScriptResponse;
+
+/**
+ * Web script to cancel a scheduled console script. Returns the final
+ * statistics of the schedule.
+ */
+public class ScheduledScriptDelete extends AbstractWebScript implements InitializingBean {
+
+	/** The scheduled script service. */
+	private ScheduledScriptService scheduledScriptService;
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		PropertyCheck.mandatory(this, "scheduledScriptService", this.scheduledScriptService);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void execute(final WebScriptRequest request, final WebScriptResponse response) throws IOException {
+		final String scheduleId = request.getServiceMatch().getTemplateVars().get("scheduleId");
+
+		final ScheduledScript scheduledScript = this.scheduledScriptService.cancel(scheduleId);
+		if (scheduledScript == null) {
+			throw new WebScriptException(Status.STATUS_NOT_FOUND, "The schedule " + scheduleId + " does not exist");
+		}
+
+		response.setContentEncoding("UTF-8");
+		response.setContentType(MimetypeMap.MIMETYPE_JSON);
+		try {
+			response.getWriter().write(scheduledScript.toJson().toString());
+		} catch (final JSONException e) {
+			throw new WebScriptException(Status.STATUS_INTERNAL_SERVER_ERROR, "Error writing json response.", e);
+		}
+	}
+
+	/**
+	 * Sets the scheduled script service.
+	 *
+	 * @param scheduledScriptService the scheduledScriptService to set
+	 */
+	public final void setScheduledScriptService(final ScheduledScriptService scheduledScriptService) {
+		this.scheduledScriptService = scheduledScriptService;
+	}
+}
@@ -0,0 +1,99 @@
+package de.fme.jsconsole;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.alfresco.repo.content.MimetypeMap;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptException;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+import org.springframework.extensions.webscripts.WebScriptResponse;
+
+/**
+ * The final result of a completed or cancelled scheduled script, published in
+ * the result channel of the schedule. Besides the last print output window it
+ * carries the statistics of the schedule, so a client polling the channel can
+ * tell a completed schedule from a failed execution.
+ */
+public class ScheduledScriptResult extends JavascriptConsoleResultBase {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = -2387160512846390541L;
+
+	/** The JSON of the schedule and its statistics. */
+	private final String schedule;
+
+	/**
+	 * Instantiates a new scheduled script result.
+	 *
+	 * @param schedule the JSON of the schedule and its statistics
+	 */
+	public ScheduledScriptResult(final String schedule) {
+		this.schedule = schedule;
+	}
+
+	/**
+	 * Gets the JSON of the schedule and its statistics.
+	 *
+	 * @return the schedule
+	 */
+	public String getSchedule() {
+		return this.schedule;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeJson(final WebScriptRequest request, final WebScriptResponse response,
+			final List<String> printOutput, final ResponseCompression compression) throws IOException {
+		response.setContentEncoding("UTF-8");
+		response.setContentType(MimetypeMap.MIMETYPE_JSON);
+
+		try {
+			final JSONObject jsonOutput = new JSONObject();
+			jsonOutput.put("renderedTemplate", this.getRenderedTemplate());
+			jsonOutput.put("printOutput", printOutput);
+			jsonOutput.put("dumpOutput", new JSONArray());
+			jsonOutput.put("spaceNodeRef", this.getSpaceNodeRef());
+			jsonOutput.put("spacePath", this.getSpacePath());
+			jsonOutput.put("result", new JSONArray());
+			jsonOutput.put("schedule", new JSONObject(this.schedule));
+
+			ResponseCompression.write(compression, request, response, jsonOutput.toString());
+
+		} catch (final JSONException e) {
+			throw new WebScriptException(Status.STATUS_INTERNAL_SERVER_ERROR, "Error writing json response.", e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		return 31 * super.hashCode() + ((this.schedule == null) ? 0 : this.schedule.hashCode());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ScheduledScriptResult) || !super.equals(obj)) {
+			return false;
+		}
+		final ScheduledScriptResult other = (ScheduledScriptResult) obj;
+		if (this.schedule == null) {
+			return other.schedule == null;
+		}
+		return this.schedule.equals(other.schedule);
+	}
+}
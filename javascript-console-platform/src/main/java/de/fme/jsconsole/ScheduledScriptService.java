@@ -0,0 +1,487 @@
+package de.fme.jsconsole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+
+import org.alfresco.repo.cache.SimpleCache;
+import org.alfresco.repo.model.Repository;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.ScriptService;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.Pair;
+import org.alfresco.util.PropertyCheck;
+import org.json.JSONException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.support.CronTrigger;
+
+/**
+ * Runs console scripts repeatedly on the repository server with a fixed delay,
+ * a fixed rate or a cron expression, replacing the client-side "run like
+ * crazy" loop which pays for request parsing, import resolution and compilation
+ * on every iteration and stops when the browser tab sleeps. The script content
+ * of a schedule is cachable, so the script processor compiles it only once.
+ * The print output of each iteration is appended to a rolling window published
+ * in the result channel of the schedule (the schedule id), which can be polled
+ * via the executionResult web script. Schedules are local to the cluster node.
+ */
+public class ScheduledScriptService implements InitializingBean, DisposableBean {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(ScheduledScriptService.class);
+
+	/** The schedules by id. */
+	private final ConcurrentMap<String, ScheduledScript> schedules = new ConcurrentHashMap<>();
+
+	/** The script service. */
+	private ScriptService scriptService;
+
+	/** The transaction service. */
+	private TransactionService transactionService;
+
+	/** The repository helper. */
+	private Repository repositoryHelper;
+
+	/** The dump service. */
+	private DumpService dumpService;
+
+	/** The shared scope with the console helper functions. */
+	private ConsoleScriptScope consoleScriptScope;
+
+	/** The print output cache. */
+	private SimpleCache<Pair<String, Integer>, List<String>> printOutputCache;
+
+	/** The result cache. */
+	private SimpleCache<String, JavascriptConsoleResultBase> resultCache;
+
+	/** The result channel registry. */
+	private ResultChannelRegistry resultChannelRegistry;
+
+	/** The jsconsole pre roll js. */
+	private String jsconsolePreRollJs;
+
+	/** The jsconsole post roll js. */
+	private String jsconsolePostRollJs;
+
+	/** The post roll script. */
+	private String postRollScript = "";
+
+	/** The number of scheduler threads. */
+	private int poolSize = 2;
+
+	/** The max number of concurrent schedules. */
+	private int maxSchedules = 10;
+
+	/** The min interval of fixed delay / fixed rate schedules in milliseconds. */
+	private long minIntervalMillis = 10;
+
+	/** The max number of print output lines kept per schedule. */
+	private int maxOutputLines = 1000;
+
+	/** The task scheduler. */
+	private ThreadPoolTaskScheduler taskScheduler;
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void afterPropertiesSet() throws IOException {
+		PropertyCheck.mandatory(this, "scriptService", this.scriptService);
+		PropertyCheck.mandatory(this, "transactionService", this.transactionService);
+		PropertyCheck.mandatory(this, "repositoryHelper", this.repositoryHelper);
+		PropertyCheck.mandatory(this, "dumpService", this.dumpService);
+		PropertyCheck.mandatory(this, "consoleScriptScope", this.consoleScriptScope);
+		PropertyCheck.mandatory(this, "printOutputCache", this.printOutputCache);
+		PropertyCheck.mandatory(this, "resultCache", this.resultCache);
+		PropertyCheck.mandatory(this, "resultChannelRegistry", this.resultChannelRegistry);
+		PropertyCheck.mandatory(this, "jsconsolePreRollJs", this.jsconsolePreRollJs);
+		PropertyCheck.mandatory(this, "jsconsolePostRollJs", this.jsconsolePostRollJs);
+
+		this.postRollScript = ExecuteWebscript.readScriptFromClasspath(this.jsconsolePostRollJs);
+
+		this.taskScheduler = new ThreadPoolTaskScheduler();
+		this.taskScheduler.setPoolSize(this.poolSize);
+		this.taskScheduler.setThreadNamePrefix("jsconsole-schedule-");
+		this.taskScheduler.setDaemon(true);
+		this.taskScheduler.initialize();
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void destroy() {
+		for (final String id : new ArrayList<>(this.schedules.keySet())) {
+			this.cancel(id);
+		}
+		if (this.taskScheduler != null) {
+			this.taskScheduler.shutdown();
+		}
+	}
+
+	/**
+	 * Schedules a script for repeated execution.
+	 *
+	 * @param user            the user to run the script as
+	 * @param script          the user script
+	 * @param spaceNodeRef    the space node ref (null or empty for company home)
+	 * @param transactionMode the transaction mode (none, readonly or readwrite -
+	 *                        see {@link ExecutionMetrics})
+	 * @param triggerType     the trigger type (see {@link ScheduledScript})
+	 * @param triggerValue    the interval in milliseconds or the cron expression
+	 * @param maxIterations   the max number of iterations (0 for unlimited)
+	 * @param resultChannel   the result channel to use as id (null to generate
+	 *                        one)
+	 * @return the scheduled script
+	 * @throws IllegalArgumentException if the transaction mode is unknown or the
+	 *                                  result channel is already in use
+	 */
+	public ScheduledScript schedule(final String user, final String script, final String spaceNodeRef,
+			final String transactionMode, final String triggerType, final String triggerValue, final long maxIterations,
+			final String resultChannel) {
+		if (!ExecutionMetrics.TRANSACTION_NONE.equals(transactionMode)
+				&& !ExecutionMetrics.TRANSACTION_READ_ONLY.equals(transactionMode)
+				&& !ExecutionMetrics.TRANSACTION_READ_WRITE.equals(transactionMode)) {
+			throw new IllegalArgumentException("Unknown transaction mode " + transactionMode);
+		}
+		final String id = resultChannel != null && !resultChannel.trim().isEmpty() ? resultChannel
+				: UUID.randomUUID().toString();
+		final String content = "<import resource=\"classpath:" + this.jsconsolePreRollJs + "\">\n" + script + "\n"
+				+ this.postRollScript;
+		final ScheduledScript scheduledScript = new ScheduledScript(id, user, new StringScriptContent(content, true),
+				spaceNodeRef != null && !spaceNodeRef.trim().isEmpty() ? spaceNodeRef : null, transactionMode,
+				triggerType, triggerValue, maxIterations, this.maxOutputLines);
+
+		// check the limit and register the schedule atomically, so concurrent requests cannot exceed it
+		synchronized (this.schedules) {
+			if (this.schedules.size() >= this.maxSchedules) {
+				throw new IllegalStateException("Scheduled scripts are limited to " + this.maxSchedules);
+			}
+			// a client supplied channel must not hijack the channel of a running or unpurged execution
+			if (this.schedules.containsKey(id) || this.resultChannelRegistry.isRegistered(id)) {
+				throw new IllegalArgumentException("Result channel " + id + " is already in use");
+			}
+			this.schedules.put(id, scheduledScript);
+		}
+		this.resultChannelRegistry.channelCreated(id, user);
+
+		final Runnable task = () -> this.runIteration(scheduledScript);
+		try {
+			switch (triggerType) {
+			case ScheduledScript.TRIGGER_FIXED_DELAY:
+				scheduledScript.setFuture(
+						this.taskScheduler.scheduleWithFixedDelay(task, this.parseInterval(triggerValue)));
+				break;
+			case ScheduledScript.TRIGGER_FIXED_RATE:
+				scheduledScript
+						.setFuture(this.taskScheduler.scheduleAtFixedRate(task, this.parseInterval(triggerValue)));
+				break;
+			case ScheduledScript.TRIGGER_CRON:
+				scheduledScript.setFuture(this.taskScheduler.schedule(task, new CronTrigger(triggerValue)));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown trigger type " + triggerType);
+			}
+		} catch (final RuntimeException e) {
+			this.schedules.remove(id);
+			this.resultChannelRegistry.purgeChannel(id);
+			throw e;
+		}
+
+		LOGGER.debug("Scheduled script {} ({} {}) for user {}", id, triggerType, triggerValue, user);
+		return scheduledScript;
+	}
+
+	/**
+	 * Cancels a schedule. The result channel of the schedule is completed with a
+	 * {@link ScheduledScriptResult}, so a client polling it receives the final
+	 * print output window together with the statistics of the schedule.
+	 *
+	 * @param id the id
+	 * @return the cancelled schedule (null if there is no schedule with this id)
+	 */
+	public ScheduledScript cancel(final String id) {
+		final ScheduledScript scheduledScript = this.schedules.remove(id);
+		if (scheduledScript != null) {
+			final ScheduledFuture<?> future = scheduledScript.getFuture();
+			if (future != null) {
+				future.cancel(false);
+			}
+			this.resultCache.put(id, this.createResult(scheduledScript));
+			this.resultChannelRegistry.channelCompleted(id, false);
+			LOGGER.debug("Cancelled scheduled script {} after {} iterations", id,
+					scheduledScript.getIterationTime().getCount());
+		}
+		return scheduledScript;
+	}
+
+	/**
+	 * Creates the final result of a completed or cancelled schedule.
+	 *
+	 * @param scheduledScript the scheduled script
+	 * @return the result
+	 */
+	private ScheduledScriptResult createResult(final ScheduledScript scheduledScript) {
+		String schedule;
+		try {
+			schedule = scheduledScript.toJson().toString();
+		} catch (final JSONException e) {
+			LOGGER.warn("Failed to serialize the statistics of scheduled script {}", scheduledScript.getId(), e);
+			schedule = "{}";
+		}
+		final ScheduledScriptResult result = new ScheduledScriptResult(schedule);
+		if (scheduledScript.getSpaceNodeRef() != null) {
+			result.setSpaceNodeRef(scheduledScript.getSpaceNodeRef());
+		}
+		return result;
+	}
+
+	/**
+	 * Gets all schedules, sorted by creation time.
+	 *
+	 * @return the schedules
+	 */
+	public List<ScheduledScript> getSchedules() {
+		final List<ScheduledScript> result = new ArrayList<>(this.schedules.values());
+		result.sort(Comparator.comparingLong(ScheduledScript::getCreated));
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Runs a single iteration of a scheduled script. Never throws, since an
+	 * exception would silently cancel the schedule.
+	 *
+	 * @param scheduledScript the scheduled script
+	 */
+	protected void runIteration(final ScheduledScript scheduledScript) {
+		if (!this.schedules.containsKey(scheduledScript.getId())) {
+			// cancelled before its future was known, e.g. completed in the first iteration
+			final ScheduledFuture<?> future = scheduledScript.getFuture();
+			if (future != null) {
+				future.cancel(false);
+			}
+			return;
+		}
+
+		final long startMillis = System.currentTimeMillis();
+		final long start = System.nanoTime();
+		final List<String> printOutput = new ArrayList<>();
+		String error = null;
+		try {
+			AuthenticationUtil.runAs(() -> {
+				if (ExecutionMetrics.TRANSACTION_NONE.equals(scheduledScript.getTransactionMode())) {
+					this.executeScript(scheduledScript, printOutput);
+				} else {
+					this.transactionService.getRetryingTransactionHelper().doInTransaction(() -> {
+						// clear due to potential retry
+						printOutput.clear();
+						this.executeScript(scheduledScript, printOutput);
+						return null;
+					}, ExecutionMetrics.TRANSACTION_READ_ONLY.equals(scheduledScript.getTransactionMode()));
+				}
+				return null;
+			}, scheduledScript.getUser());
+		} catch (final RuntimeException | StackOverflowError e) {
+			LOGGER.debug("Scheduled script {} failed", scheduledScript.getId(), e);
+			error = e.toString();
+		}
+		final long nanos = System.nanoTime() - start;
+
+		try {
+			final List<String> window = scheduledScript.recordIteration(startMillis, nanos, printOutput, error);
+			this.printOutputCache.put(new Pair<>(scheduledScript.getId(), Integer.valueOf(0)), window);
+		} catch (final RuntimeException e) {
+			LOGGER.warn("Failed to publish print output of scheduled script {}", scheduledScript.getId(), e);
+		}
+
+		if (scheduledScript.isCompleted()) {
+			this.cancel(scheduledScript.getId());
+		}
+	}
+
+	/**
+	 * Executes the script of a schedule in the current transaction.
+	 *
+	 * @param scheduledScript the scheduled script
+	 * @param printOutput     the list to collect the print output in
+	 */
+	protected void executeScript(final ScheduledScript scheduledScript, final List<String> printOutput) {
+		final NodeRef companyHome = this.repositoryHelper.getCompanyHome();
+		final NodeRef person = this.repositoryHelper.getPerson();
+		final NodeRef userHome = person != null ? this.repositoryHelper.getUserHome(person) : null;
+		final NodeRef space = scheduledScript.getSpaceNodeRef() != null
+				? new NodeRef(scheduledScript.getSpaceNodeRef())
+				: companyHome;
+
+		// the space is only resolved on first access (see the pre-roll script)
+		final Map<String, Object> model = this.scriptService.buildDefaultModel(person, companyHome, userHome, null,
+				null, null);
+		final JavascriptConsoleScriptObject javascriptConsole = new JavascriptConsoleScriptObject(printOutput);
+		javascriptConsole.setSpaceNodeRef(space);
+		model.put("jsconsole", javascriptConsole);
+		model.put("space", null);
+		model.put("dumpService", this.dumpService);
+		this.consoleScriptScope.addHelpers(model);
+
+		this.scriptService.executeScript(scheduledScript.getScriptContent(), model);
+	}
+
+	/**
+	 * Parses and validates the interval of a fixed delay / fixed rate schedule.
+	 *
+	 * @param triggerValue the trigger value
+	 * @return the interval in milliseconds
+	 */
+	private long parseInterval(final String triggerValue) {
+		final long interval;
+		try {
+			interval = Long.parseLong(triggerValue);
+		} catch (final NumberFormatException nfe) {
+			throw new IllegalArgumentException("Invalid interval " + triggerValue, nfe);
+		}
+		if (interval < this.minIntervalMillis) {
+			throw new IllegalArgumentException("The interval must be at least " + this.minIntervalMillis + " ms");
+		}
+		return interval;
+	}
+
+	/**
+	 * Sets the script service.
+	 *
+	 * @param scriptService the scriptService to set
+	 */
+	public void setScriptService(final ScriptService scriptService) {
+		this.scriptService = scriptService;
+	}
+
+	/**
+	 * Sets the transaction service.
+	 *
+	 * @param transactionService the transactionService to set
+	 */
+	public void setTransactionService(final TransactionService transactionService) {
+		this.transactionService = transactionService;
+	}
+
+	/**
+	 * Sets the repository helper.
+	 *
+	 * @param repositoryHelper the repositoryHelper to set
+	 */
+	public void setRepositoryHelper(final Repository repositoryHelper) {
+		this.repositoryHelper = repositoryHelper;
+	}
+
+	/**
+	 * Sets the dump service.
+	 *
+	 * @param dumpService the dumpService to set
+	 */
+	public void setDumpService(final DumpService dumpService) {
+		this.dumpService = dumpService;
+	}
+
+	/**
+	 * Sets the shared scope with the console helper functions.
+	 *
+	 * @param consoleScriptScope the consoleScriptScope to set
+	 */
+	public void setConsoleScriptScope(final ConsoleScriptScope consoleScriptScope) {
+		this.consoleScriptScope = consoleScriptScope;
+	}
+
+	/**
+	 * Sets the print output cache.
+	 *
+	 * @param printOutputCache the printOutputCache to set
+	 */
+	public void setPrintOutputCache(final SimpleCache<Pair<String, Integer>, List<String>> printOutputCache) {
+		this.printOutputCache = printOutputCache;
+	}
+
+	/**
+	 * Sets the result cache.
+	 *
+	 * @param resultCache the resultCache to set
+	 */
+	public void setResultCache(final SimpleCache<String, JavascriptConsoleResultBase> resultCache) {
+		this.resultCache = resultCache;
+	}
+
+	/**
+	 * Sets the result channel registry.
+	 *
+	 * @param resultChannelRegistry the resultChannelRegistry to set
+	 */
+	public void setResultChannelRegistry(final ResultChannelRegistry resultChannelRegistry) {
+		this.resultChannelRegistry = resultChannelRegistry;
+	}
+
+	/**
+	 * Sets the jsconsole pre roll js.
+	 *
+	 * @param jsconsolePreRollJs the jsconsolePreRollJs to set
+	 */
+	public void setJsconsolePreRollJs(final String jsconsolePreRollJs) {
+		this.jsconsolePreRollJs = jsconsolePreRollJs;
+	}
+
+	/**
+	 * Sets the jsconsole post roll js.
+	 *
+	 * @param jsconsolePostRollJs the jsconsolePostRollJs to set
+	 */
+	public void setJsconsolePostRollJs(final String jsconsolePostRollJs) {
+		this.jsconsolePostRollJs = jsconsolePostRollJs;
+	}
+
+	/**
+	 * Sets the number of scheduler threads.
+	 *
+	 * @param poolSize the poolSize to set
+	 */
+	public void setPoolSize(final int poolSize) {
+		this.poolSize = poolSize;
+	}
+
+	/**
+	 * Sets the max number of concurrent schedules.
+	 *
+	 * @param maxSchedules the maxSchedules to set
+	 */
+	public void setMaxSchedules(final int maxSchedules) {
+		this.maxSchedules = maxSchedules;
+	}
+
+	/**
+	 * Sets the min interval of fixed delay / fixed rate schedules in milliseconds.
+	 *
+	 * @param minIntervalMillis the minIntervalMillis to set
+	 */
+	public void setMinIntervalMillis(final long minIntervalMillis) {
+		this.minIntervalMillis = minIntervalMillis;
+	}
+
+	/**
+	 * Sets the max number of print output lines kept per schedule.
+	 *
+	 * @param maxOutputLines the maxOutputLines to set
+	 */
+	public void setMaxOutputLines(final int maxOutputLines) {
+		this.maxOutputLines = maxOutputLines;
+	}
+}
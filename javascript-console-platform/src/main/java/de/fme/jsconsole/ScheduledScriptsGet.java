@@ -0,0 +1,66 @@
+package de.fme.jsconsole;
+
+import java.io.IOException;
+
+import org.alfresco.repo.content.MimetypeMap;
+import org.alfresco.util.PropertyCheck;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.extensions.webscripts.AbstractWebScript;
+import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptException;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+import org.springframework.extensions.webscripts.WebScriptResponse;
+
+/**
+ * Web script to list the scheduled console scripts of this node together with
+ * their iteration statistics.
+ */
+public class ScheduledScriptsGet extends AbstractWebScript implements InitializingBean {
+
+	/** The scheduled script service. */
+	private ScheduledScriptService scheduledScriptService;
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		PropertyCheck.mandatory(this, "scheduledScriptService", this.scheduledScriptService);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void execute(final WebScriptRequest request, final WebScriptResponse response) throws IOException {
+		response.setContentEncoding("UTF-8");
+		response.setContentType(MimetypeMap.MIMETYPE_JSON);
+
+		try {
+			final JSONArray schedulesJson = new JSONArray();
+			for (final ScheduledScript scheduledScript : this.scheduledScriptService.getSchedules()) {
+				schedulesJson.put(scheduledScript.toJson());
+			}
+
+			final JSONObject jsonOutput = new JSONObject();
+			jsonOutput.put("schedules", schedulesJson);
+			response.getWriter().write(jsonOutput.toString());
+		} catch (final JSONException e) {
+			throw new WebScriptException(Status.STATUS_INTERNAL_SERVER_ERROR, "Error writing json response.", e);
+		}
+	}
+
+	/**
+	 * Sets the scheduled script service.
+	 *
+	 * @param scheduledScriptService the scheduledScriptService to set
+	 */
+	public final void setScheduledScriptService(final ScheduledScriptService scheduledScriptService) {
+		this.scheduledScriptService = scheduledScriptService;
+	}
+}
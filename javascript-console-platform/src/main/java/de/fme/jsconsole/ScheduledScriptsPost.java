@@ -0,0 +1,94 @@
+package de.fme.jsconsole;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import org.alfresco.repo.content.MimetypeMap;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.util.PropertyCheck;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.extensions.webscripts.AbstractWebScript;
+import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptException;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+import org.springframework.extensions.webscripts.WebScriptResponse;
+
+/**
+ * Web script to schedule a console script for repeated server-side execution
+ * with a fixed delay, a fixed rate or a cron expression. The print output of
+ * the iterations can be polled via the executionResult web script using the
+ * returned result channel.
+ */
+public class ScheduledScriptsPost extends AbstractWebScript implements InitializingBean {
+
+	/** The scheduled script service. */
+	private ScheduledScriptService scheduledScriptService;
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		PropertyCheck.mandatory(this, "scheduledScriptService", this.scheduledScriptService);
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void execute(final WebScriptRequest request, final WebScriptResponse response) throws IOException {
+		final ScheduledScript scheduledScript;
+		try {
+			final JSONObject jsonInput = new JSONObject(new JSONTokener(
+					new InputStreamReader(request.getContent().getInputStream(), StandardCharsets.UTF_8)));
+
+			final String triggerType;
+			if (jsonInput.has(ScheduledScript.TRIGGER_FIXED_DELAY)) {
+				triggerType = ScheduledScript.TRIGGER_FIXED_DELAY;
+			} else if (jsonInput.has(ScheduledScript.TRIGGER_FIXED_RATE)) {
+				triggerType = ScheduledScript.TRIGGER_FIXED_RATE;
+			} else if (jsonInput.has(ScheduledScript.TRIGGER_CRON)) {
+				triggerType = ScheduledScript.TRIGGER_CRON;
+			} else {
+				throw new WebScriptException(Status.STATUS_BAD_REQUEST,
+						"One of fixedDelay, fixedRate or cron has to be specified");
+			}
+
+			final String runas = jsonInput.optString("runas", "");
+			final String user = runas.trim().isEmpty() ? AuthenticationUtil.getFullyAuthenticatedUser() : runas;
+
+			scheduledScript = this.scheduledScriptService.schedule(user, jsonInput.getString("script"),
+					jsonInput.optString("spaceNodeRef", null),
+					jsonInput.optString("transaction", ExecutionMetrics.TRANSACTION_READ_WRITE), triggerType,
+					jsonInput.getString(triggerType), jsonInput.optLong("maxIterations", 0),
+					jsonInput.optString("resultChannel", null));
+		} catch (final JSONException e) {
+			throw new WebScriptException(Status.STATUS_BAD_REQUEST, "Error reading json request body.", e);
+		} catch (final IllegalArgumentException | IllegalStateException e) {
+			throw new WebScriptException(Status.STATUS_BAD_REQUEST, e.getMessage());
+		}
+
+		response.setContentEncoding("UTF-8");
+		response.setContentType(MimetypeMap.MIMETYPE_JSON);
+		try {
+			response.getWriter().write(scheduledScript.toJson().toString());
+		} catch (final JSONException e) {
+			throw new WebScriptException(Status.STATUS_INTERNAL_SERVER_ERROR, "Error writing json response.", e);
+		}
+	}
+
+	/**
+	 * Sets the scheduled script service.
+	 *
+	 * @param scheduledScriptService the scheduledScriptService to set
+	 */
+	public final void setScheduledScriptService(final ScheduledScriptService scheduledScriptService) {
+		this.scheduledScriptService = scheduledScriptService;
+	}
+}
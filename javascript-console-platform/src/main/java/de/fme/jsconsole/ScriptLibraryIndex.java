@@ -0,0 +1,554 @@
+package de.fme.jsconsole;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.node.NodeServicePolicies;
+import org.alfresco.repo.policy.Behaviour.NotificationFrequency;
+import org.alfresco.repo.policy.JavaBehaviour;
+import org.alfresco.repo.policy.PolicyComponent;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.repo.transaction.TransactionalResourceHelper;
+import org.alfresco.service.cmr.dictionary.DictionaryService;
+import org.alfresco.service.cmr.repository.ChildAssociationRef;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.cmr.search.SearchService;
+import org.alfresco.service.namespace.NamespaceService;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.service.namespace.RegexQNamePattern;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.MD5;
+import org.alfresco.util.PropertyCheck;
+import org.alfresco.util.transaction.TransactionListenerAdapter;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Node-local index of the script library (Data Dictionary/Scripts) shown in
+ * the script menus of the JavaScript Console. The index is built once on first
+ * use and then updated incrementally: node policies record the folders whose
+ * children were created, renamed, moved or deleted, and only these folders are
+ * re-read after the transaction committed. The serialized listing and its ETag
+ * are cached until the next change, so unchanged listings can be answered
+ * with 304.
+ * <p>
+ * Changes on other cluster nodes do not trigger the policies of this node, so
+ * the index is rebuilt once it is older than the max age.
+ */
+public class ScriptLibraryIndex implements InitializingBean, NodeServicePolicies.OnCreateNodePolicy,
+		NodeServicePolicies.OnMoveNodePolicy, NodeServicePolicies.OnUpdatePropertiesPolicy,
+		NodeServicePolicies.BeforeDeleteNodePolicy {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(ScriptLibraryIndex.class);
+
+	/** The XPath of the script library folder. */
+	private static final String SCRIPTS_XPATH = "/app:company_home/app:dictionary/app:scripts";
+
+	/** The transactional resource key of the folders changed in a transaction. */
+	private static final String TXN_CHANGED_FOLDERS = ScriptLibraryIndex.class.getName() + ".changedFolders";
+
+	/** The listing of a library without script folder. */
+	private static final Listing EMPTY_LISTING = new Listing("[]", MD5.Digest("[]".getBytes(StandardCharsets.UTF_8)));
+
+	/** The entries by node ref (the root folder and all folders and scripts below it). */
+	private final Map<NodeRef, Entry> entries = new ConcurrentHashMap<>();
+
+	/** The transaction listener applying the changes after commit. */
+	private final ChangeListener changeListener = new ChangeListener();
+
+	/** The lock guarding (re)builds and updates. */
+	private final Object lock = new Object();
+
+	/** The root folder entry (null if not built or there is no script folder). */
+	private volatile Entry root;
+
+	/** The cached listing (null if the index has to be (re)built). */
+	private volatile Listing listing;
+
+	/** The time the index was built. */
+	private volatile long builtAt;
+
+	/** The node service. */
+	private NodeService nodeService;
+
+	/** The dictionary service. */
+	private DictionaryService dictionaryService;
+
+	/** The search service. */
+	private SearchService searchService;
+
+	/** The namespace service. */
+	private NamespaceService namespaceService;
+
+	/** The policy component. */
+	private PolicyComponent policyComponent;
+
+	/** The transaction service. */
+	private TransactionService transactionService;
+
+	/** The max age of the index in milliseconds before it is rebuilt (0 to never rebuild). */
+	private long maxAgeMillis;
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		PropertyCheck.mandatory(this, "nodeService", this.nodeService);
+		PropertyCheck.mandatory(this, "dictionaryService", this.dictionaryService);
+		PropertyCheck.mandatory(this, "searchService", this.searchService);
+		PropertyCheck.mandatory(this, "namespaceService", this.namespaceService);
+		PropertyCheck.mandatory(this, "policyComponent", this.policyComponent);
+		PropertyCheck.mandatory(this, "transactionService", this.transactionService);
+
+		this.policyComponent.bindClassBehaviour(NodeServicePolicies.OnCreateNodePolicy.QNAME,
+				ContentModel.TYPE_CMOBJECT, new JavaBehaviour(this, "onCreateNode", NotificationFrequency.EVERY_EVENT));
+		this.policyComponent.bindClassBehaviour(NodeServicePolicies.OnMoveNodePolicy.QNAME,
+				ContentModel.TYPE_CMOBJECT, new JavaBehaviour(this, "onMoveNode", NotificationFrequency.EVERY_EVENT));
+		this.policyComponent.bindClassBehaviour(NodeServicePolicies.OnUpdatePropertiesPolicy.QNAME,
+				ContentModel.TYPE_CMOBJECT,
+				new JavaBehaviour(this, "onUpdateProperties", NotificationFrequency.EVERY_EVENT));
+		this.policyComponent.bindClassBehaviour(NodeServicePolicies.BeforeDeleteNodePolicy.QNAME,
+				ContentModel.TYPE_CMOBJECT,
+				new JavaBehaviour(this, "beforeDeleteNode", NotificationFrequency.EVERY_EVENT));
+	}
+
+	/**
+	 * Gets the listing of the script library, building the index if necessary.
+	 *
+	 * @return the listing
+	 */
+	public Listing getListing() {
+		final Listing current = this.listing;
+		if (current != null && (this.maxAgeMillis <= 0 || System.currentTimeMillis() - this.builtAt < this.maxAgeMillis)) {
+			return current;
+		}
+
+		synchronized (this.lock) {
+			if (this.listing == null || this.listing == current) {
+				AuthenticationUtil.runAsSystem(() -> this.transactionService.getRetryingTransactionHelper()
+						.doInTransaction(() -> {
+							this.build();
+							return null;
+						}, true, false));
+			}
+			return this.listing;
+		}
+	}
+
+	/**
+	 * Drops the index, so it is rebuilt on next use.
+	 */
+	public void invalidate() {
+		synchronized (this.lock) {
+			this.listing = null;
+		}
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void onCreateNode(final ChildAssociationRef childAssocRef) {
+		this.folderChanged(childAssocRef.getParentRef());
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void onMoveNode(final ChildAssociationRef oldChildAssocRef, final ChildAssociationRef newChildAssocRef) {
+		this.folderChanged(oldChildAssocRef.getParentRef());
+		this.folderChanged(newChildAssocRef.getParentRef());
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void onUpdateProperties(final NodeRef nodeRef, final Map<QName, Serializable> before,
+			final Map<QName, Serializable> after) {
+		final Entry entry = this.entries.get(nodeRef);
+		// only renames change the listing
+		if (entry != null && !Objects.equals(before.get(ContentModel.PROP_NAME), after.get(ContentModel.PROP_NAME))) {
+			this.folderChanged(entry.parent != null ? entry.parent.nodeRef : nodeRef);
+		}
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void beforeDeleteNode(final NodeRef nodeRef) {
+		final Entry entry = this.entries.get(nodeRef);
+		if (entry != null) {
+			this.folderChanged(entry.parent != null ? entry.parent.nodeRef : nodeRef);
+		}
+	}
+
+	/**
+	 * Records a folder of the index whose children changed in the current
+	 * transaction. Changes to folders outside the index are ignored.
+	 *
+	 * @param folder the folder
+	 */
+	private void folderChanged(final NodeRef folder) {
+		final Entry entry = this.entries.get(folder);
+		if (entry == null || !entry.folder) {
+			return;
+		}
+		final Set<NodeRef> changedFolders = TransactionalResourceHelper.getSet(TXN_CHANGED_FOLDERS);
+		if (changedFolders.isEmpty()) {
+			AlfrescoTransactionSupport.bindListener(this.changeListener);
+		}
+		changedFolders.add(folder);
+	}
+
+	/**
+	 * Re-reads the children of changed folders and updates the listing.
+	 *
+	 * @param changedFolders the changed folders
+	 */
+	private void update(final Set<NodeRef> changedFolders) {
+		synchronized (this.lock) {
+			if (this.listing == null) {
+				// built from scratch on next use
+				return;
+			}
+			for (final NodeRef folder : changedFolders) {
+				final Entry entry = this.entries.get(folder);
+				if (entry == null) {
+					// removed along with a changed parent
+					continue;
+				}
+				if (!this.nodeService.exists(folder)) {
+					if (entry == this.root) {
+						this.listing = null;
+						return;
+					}
+					continue;
+				}
+				this.readChildren(entry);
+			}
+			this.listing = this.serialize();
+		}
+	}
+
+	/**
+	 * Builds the index from scratch.
+	 */
+	private void build() {
+		this.entries.clear();
+		this.root = null;
+
+		final NodeRef storeRoot = this.nodeService.getRootNode(StoreRef.STORE_REF_WORKSPACE_SPACESSTORE);
+		final List<NodeRef> folders = this.searchService.selectNodes(storeRoot, SCRIPTS_XPATH, null,
+				this.namespaceService, false);
+		if (folders.isEmpty()) {
+			this.listing = EMPTY_LISTING;
+		} else {
+			final NodeRef rootRef = folders.get(0);
+			this.root = new Entry(rootRef, null, true);
+			this.entries.put(rootRef, this.root);
+			this.readChildren(this.root);
+			this.listing = this.serialize();
+		}
+		this.builtAt = System.currentTimeMillis();
+		LOGGER.debug("Built script library index with {} entries", this.entries.size());
+	}
+
+	/**
+	 * (Re-)reads the children of a folder. Existing child folders keep their
+	 * indexed children, new child folders are read recursively and removed
+	 * children are dropped from the index along with their descendants.
+	 *
+	 * @param folder the folder
+	 */
+	private void readChildren(final Entry folder) {
+		final List<ChildAssociationRef> childAssocs = this.nodeService.getChildAssocs(folder.nodeRef,
+				ContentModel.ASSOC_CONTAINS, RegexQNamePattern.MATCH_ALL);
+		final List<Entry> children = new ArrayList<>(childAssocs.size());
+		final Set<NodeRef> childRefs = new HashSet<>(childAssocs.size() * 2);
+		for (final ChildAssociationRef childAssoc : childAssocs) {
+			final NodeRef childRef = childAssoc.getChildRef();
+			childRefs.add(childRef);
+
+			Entry child = this.entries.get(childRef);
+			final boolean isFolder = this.isFolder(childRef);
+			if (child == null || child.folder != isFolder) {
+				if (child != null) {
+					this.remove(child);
+				}
+				child = new Entry(childRef, folder, isFolder);
+				this.entries.put(childRef, child);
+				if (isFolder) {
+					this.readChildren(child);
+				}
+			}
+			child.parent = folder;
+			child.name = (String) this.nodeService.getProperty(childRef, ContentModel.PROP_NAME);
+			children.add(child);
+		}
+
+		for (final Entry previous : folder.children) {
+			if (!childRefs.contains(previous.nodeRef) && previous.parent == folder) {
+				this.remove(previous);
+			}
+		}
+
+		// same order as the former listing script, i.e. by UTF-16 code units
+		children.sort((a, b) -> a.name.compareTo(b.name));
+		folder.children = Collections.unmodifiableList(children);
+	}
+
+	/**
+	 * Removes an entry and its descendants from the index.
+	 *
+	 * @param entry the entry
+	 */
+	private void remove(final Entry entry) {
+		this.entries.remove(entry.nodeRef, entry);
+		for (final Entry child : entry.children) {
+			this.remove(child);
+		}
+	}
+
+	/**
+	 * Checks if a node is listed as folder, i.e. like the isContainer check of
+	 * script nodes.
+	 *
+	 * @param nodeRef the node ref
+	 * @return true, if is a folder
+	 */
+	private boolean isFolder(final NodeRef nodeRef) {
+		final QName type = this.nodeService.getType(nodeRef);
+		return this.dictionaryService.isSubClass(type, ContentModel.TYPE_FOLDER)
+				&& !this.dictionaryService.isSubClass(type, ContentModel.TYPE_SYSTEM_FOLDER);
+	}
+
+	/**
+	 * Serializes the index to the menu structure of the console.
+	 *
+	 * @return the listing
+	 */
+	private Listing serialize() {
+		try {
+			final String json = this.toJson(this.root).toString();
+			return new Listing(json, MD5.Digest(json.getBytes(StandardCharsets.UTF_8)));
+		} catch (final JSONException e) {
+			throw new IllegalStateException("Failed to serialize the script library index", e);
+		}
+	}
+
+	/**
+	 * Serializes the children of a folder.
+	 *
+	 * @param folder the folder
+	 * @return the menu items
+	 * @throws JSONException if an error occurs generating the JSON
+	 */
+	private JSONArray toJson(final Entry folder) throws JSONException {
+		final JSONArray items = new JSONArray();
+		for (final Entry child : folder.children) {
+			final JSONObject item = new JSONObject();
+			item.put("text", child.name);
+			if (child.folder) {
+				final JSONObject submenu = new JSONObject();
+				submenu.put("id", child.nodeRef.getId());
+				submenu.put("itemdata", this.toJson(child));
+				item.put("submenu", submenu);
+			} else {
+				item.put("value", child.nodeRef.toString());
+			}
+			items.put(item);
+		}
+		return items;
+	}
+
+	/**
+	 * Sets the node service.
+	 *
+	 * @param nodeService the nodeService to set
+	 */
+	public void setNodeService(final NodeService nodeService) {
+		this.nodeService = nodeService;
+	}
+
+	/**
+	 * Sets the dictionary service.
+	 *
+	 * @param dictionaryService the dictionaryService to set
+	 */
+	public void setDictionaryService(final DictionaryService dictionaryService) {
+		this.dictionaryService = dictionaryService;
+	}
+
+	/**
+	 * Sets the search service.
+	 *
+	 * @param searchService the searchService to set
+	 */
+	public void setSearchService(final SearchService searchService) {
+		this.searchService = searchService;
+	}
+
+	/**
+	 * Sets the namespace service.
+	 *
+	 * @param namespaceService the namespaceService to set
+	 */
+	public void setNamespaceService(final NamespaceService namespaceService) {
+		this.namespaceService = namespaceService;
+	}
+
+	/**
+	 * Sets the policy component.
+	 *
+	 * @param policyComponent the policyComponent to set
+	 */
+	public void setPolicyComponent(final PolicyComponent policyComponent) {
+		this.policyComponent = policyComponent;
+	}
+
+	/**
+	 * Sets the transaction service.
+	 *
+	 * @param transactionService the transactionService to set
+	 */
+	public void setTransactionService(final TransactionService transactionService) {
+		this.transactionService = transactionService;
+	}
+
+	/**
+	 * Sets the max age of the index in milliseconds before it is rebuilt (0 to
+	 * never rebuild).
+	 *
+	 * @param maxAgeMillis the maxAgeMillis to set
+	 */
+	public void setMaxAgeMillis(final long maxAgeMillis) {
+		this.maxAgeMillis = maxAgeMillis;
+	}
+
+	/**
+	 * The serialized listing of the script library and its ETag.
+	 */
+	public static final class Listing {
+
+		/** The JSON array of menu items. */
+		private final String json;
+
+		/** The ETag. */
+		private final String etag;
+
+		/**
+		 * Instantiates a new listing.
+		 *
+		 * @param json the JSON array of menu items
+		 * @param etag the ETag
+		 */
+		private Listing(final String json, final String etag) {
+			this.json = json;
+			this.etag = etag;
+		}
+
+		/**
+		 * Gets the JSON array of menu items.
+		 *
+		 * @return the json
+		 */
+		public String getJson() {
+			return this.json;
+		}
+
+		/**
+		 * Gets the ETag (the hash of the JSON).
+		 *
+		 * @return the etag
+		 */
+		public String getEtag() {
+			return this.etag;
+		}
+	}
+
+	/**
+	 * A folder or script of the index.
+	 */
+	private static final class Entry {
+
+		/** The node ref. */
+		private final NodeRef nodeRef;
+
+		/** Whether the entry is a folder. */
+		private final boolean folder;
+
+		/** The parent folder (null for the root). */
+		private volatile Entry parent;
+
+		/** The name. */
+		private volatile String name;
+
+		/** The children sorted by name (folders only). */
+		private volatile List<Entry> children = Collections.emptyList();
+
+		/**
+		 * Instantiates a new entry.
+		 *
+		 * @param nodeRef the node ref
+		 * @param parent  the parent folder
+		 * @param folder  whether the entry is a folder
+		 */
+		private Entry(final NodeRef nodeRef, final Entry parent, final boolean folder) {
+			this.nodeRef = nodeRef;
+			this.parent = parent;
+			this.folder = folder;
+		}
+	}
+
+	/**
+	 * Applies the changes of a transaction to the index after commit.
+	 */
+	private final class ChangeListener extends TransactionListenerAdapter {
+
+		/**
+		 *
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void afterCommit() {
+			final Set<NodeRef> changedFolders = new HashSet<>(
+					TransactionalResourceHelper.<NodeRef>getSet(TXN_CHANGED_FOLDERS));
+			try {
+				AuthenticationUtil.runAsSystem(() -> ScriptLibraryIndex.this.transactionService
+						.getRetryingTransactionHelper().doInTransaction(() -> {
+							ScriptLibraryIndex.this.update(changedFolders);
+							return null;
+						}, true, true));
+			} catch (final RuntimeException e) {
+				LOGGER.warn("Failed to update the script library index - rebuilding on next use", e);
+				ScriptLibraryIndex.this.invalidate();
+			}
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package de.fme.jsconsole;
+
+import java.io.Serializable;
+
+/**
+ * The aggregated profiler samples of a single line of a JavaScript Console
+ * script.
+ */
+public class ScriptLineProfile implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = -6417245061129531764L;
+
+	/** The line number within the executed script. */
+	private final int line;
+
+	/** The number of samples hitting the line. */
+	private long hits;
+
+	/** The estimated time spent on the line in nanoseconds. */
+	private long nanos;
+
+	/**
+	 * Instantiates a new script line profile.
+	 *
+	 * @param line the line number within the executed script
+	 */
+	public ScriptLineProfile(final int line) {
+		this.line = line;
+	}
+
+	/**
+	 * Records a single sample.
+	 *
+	 * @param sampleNanos the time represented by the sample in nanoseconds
+	 */
+	public void recordSample(final long sampleNanos) {
+		this.hits++;
+		this.nanos += sampleNanos;
+	}
+
+	/**
+	 * Gets the line number within the executed script.
+	 *
+	 * @return the line
+	 */
+	public int getLine() {
+		return this.line;
+	}
+
+	/**
+	 * Gets the number of samples hitting the line.
+	 *
+	 * @return the hits
+	 */
+	public long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * Gets the estimated time spent on the line in nanoseconds.
+	 *
+	 * @return the nanos
+	 */
+	public long getNanos() {
+		return this.nanos;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + this.line;
+		result = prime * result + (int) (this.hits ^ (this.hits >>> 32));
+		result = prime * result + (int) (this.nanos ^ (this.nanos >>> 32));
+		return result;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null || this.getClass() != obj.getClass()) {
+			return false;
+		}
+		final ScriptLineProfile other = (ScriptLineProfile) obj;
+		return this.line == other.line && this.hits == other.hits && this.nanos == other.nanos;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return "line " + this.line + ": " + this.hits + " hit(s), " + PerfSpan.toMillis(this.nanos) + " ms";
+	}
+}
@@ -0,0 +1,223 @@
+package de.fme.jsconsole;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Sampling profiler for JavaScript Console scripts. While profiling is active
+ * for a thread, the stack of the thread is sampled in a fixed interval and each
+ * sample is attributed to the innermost stack frame of the profiled script, so
+ * the result is a per-line table of hits and (estimated) time, including time
+ * spent in the Java and library code called from that line.
+ * <p>
+ * Script frames only show up in Java stack traces if Rhino compiles the script
+ * to bytecode, so the profiler switches Rhino contexts entered on a profiled
+ * thread from interpreted to compiled mode if configured to do so.
+ */
+public class ScriptProfiler implements ContextFactory.Listener, InitializingBean, DisposableBean {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(ScriptProfiler.class);
+
+	/** The active profiling sessions by thread. */
+	private final ConcurrentMap<Thread, ProfilingSession> sessions = new ConcurrentHashMap<>();
+
+	/** The sampling interval in milliseconds. */
+	private int samplingIntervalMillis = 5;
+
+	/** Whether Rhino contexts of profiled threads are switched to compiled mode. */
+	private boolean forceCompiledMode = true;
+
+	/** The sampler executor. */
+	private ScheduledExecutorService samplerExecutor;
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		this.samplerExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "jsconsole-script-profiler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.samplerExecutor.scheduleAtFixedRate(this::sample, this.samplingIntervalMillis,
+				this.samplingIntervalMillis, TimeUnit.MILLISECONDS);
+
+		if (this.forceCompiledMode) {
+			try {
+				ContextFactory.getGlobal().addListener(this);
+			} catch (final IllegalStateException ise) {
+				LOGGER.warn("Rhino context factory is sealed - profiling requires compiled scripts", ise);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void destroy() {
+		if (this.forceCompiledMode) {
+			try {
+				ContextFactory.getGlobal().removeListener(this);
+			} catch (final IllegalStateException ise) {
+				LOGGER.debug("Could not remove Rhino context factory listener", ise);
+			}
+		}
+		if (this.samplerExecutor != null) {
+			this.samplerExecutor.shutdownNow();
+		}
+		this.sessions.clear();
+	}
+
+	/**
+	 * Starts profiling a script on the current thread.
+	 *
+	 * @param scriptName the source name of the script, i.e. the path of its
+	 *                   script content
+	 */
+	public void startProfiling(final String scriptName) {
+		this.sessions.put(Thread.currentThread(), new ProfilingSession(scriptName));
+	}
+
+	/**
+	 * Stops profiling on the current thread. Stopping a thread which is not
+	 * profiled has no effect.
+	 *
+	 * @return the profile of all sampled lines, sorted by line number
+	 */
+	public List<ScriptLineProfile> stopProfiling() {
+		final ProfilingSession session = this.sessions.remove(Thread.currentThread());
+
+		final List<ScriptLineProfile> profile = new ArrayList<>();
+		if (session != null) {
+			synchronized (session) {
+				profile.addAll(session.lines.values());
+			}
+			profile.sort(Comparator.comparingInt(ScriptLineProfile::getLine));
+			LOGGER.debug("Collected {} samples for {} lines of {}", session.samples, profile.size(),
+					session.scriptName);
+		}
+		return profile;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void contextCreated(final Context cx) {
+		if (this.sessions.containsKey(Thread.currentThread()) && cx.getOptimizationLevel() < 0) {
+			cx.setOptimizationLevel(0);
+		}
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void contextReleased(final Context cx) {
+		// NO-OP
+	}
+
+	/**
+	 * Takes a sample of all profiled threads.
+	 */
+	protected void sample() {
+		try {
+			for (final Map.Entry<Thread, ProfilingSession> entry : this.sessions.entrySet()) {
+				final StackTraceElement[] stackTrace = entry.getKey().getStackTrace();
+				entry.getValue().recordSample(stackTrace, System.nanoTime());
+			}
+		} catch (final RuntimeException e) {
+			// never let an exception cancel the periodic sampling
+			LOGGER.warn("Failed to sample profiled threads", e);
+		}
+	}
+
+	/**
+	 * Sets the sampling interval in milliseconds.
+	 *
+	 * @param samplingIntervalMillis the samplingIntervalMillis to set
+	 */
+	public void setSamplingIntervalMillis(final int samplingIntervalMillis) {
+		this.samplingIntervalMillis = samplingIntervalMillis;
+	}
+
+	/**
+	 * Sets whether Rhino contexts of profiled threads are switched to compiled
+	 * mode.
+	 *
+	 * @param forceCompiledMode the forceCompiledMode to set
+	 */
+	public void setForceCompiledMode(final boolean forceCompiledMode) {
+		this.forceCompiledMode = forceCompiledMode;
+	}
+
+	/**
+	 * The samples of a single profiled script execution.
+	 */
+	private static class ProfilingSession {
+
+		/** The source name of the profiled script. */
+		private final String scriptName;
+
+		/** The profiles by line. */
+		private final Map<Integer, ScriptLineProfile> lines = new HashMap<>();
+
+		/** The time of the previous sample. */
+		private long lastSampleNanos = System.nanoTime();
+
+		/** The number of samples taken. */
+		private long samples;
+
+		/**
+		 * Instantiates a new profiling session.
+		 *
+		 * @param scriptName the source name of the profiled script
+		 */
+		private ProfilingSession(final String scriptName) {
+			this.scriptName = scriptName;
+		}
+
+		/**
+		 * Records a sample, attributing the time since the previous sample to the
+		 * innermost frame of the profiled script (if any).
+		 *
+		 * @param stackTrace  the stack trace of the profiled thread
+		 * @param sampleNanos the time of the sample
+		 */
+		private synchronized void recordSample(final StackTraceElement[] stackTrace, final long sampleNanos) {
+			final long elapsedNanos = sampleNanos - this.lastSampleNanos;
+			this.lastSampleNanos = sampleNanos;
+			this.samples++;
+
+			for (final StackTraceElement element : stackTrace) {
+				if (this.scriptName.equals(element.getFileName()) && element.getLineNumber() > 0) {
+					this.lines.computeIfAbsent(Integer.valueOf(element.getLineNumber()), ScriptLineProfile::new)
+							.recordSample(elapsedNanos);
+					break;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package de.fme.jsconsole;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, node-local, content-addressed store of console scripts and
+ * templates keyed by the SHA-256 hash of their text. Once a script or template
+ * has been uploaded, later executions may reference it by its hash instead of
+ * sending the full text again. The store evicts the least recently used
+ * entries once the max number of entries or the max total size is exceeded;
+ * clients have to upload the text again if the hash is unknown (e.g. after an
+ * eviction, a restart or on another cluster node).
+ */
+public class ScriptStore {
+
+	/** The max number of entries. */
+	private final int maxItems;
+
+	/** The max total size of all entries in characters. */
+	private final long maxSize;
+
+	/** The entries by hash. */
+	private final LinkedHashMap<String, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/** The current total size of all entries in characters. */
+	private long size;
+
+	/** The lookup hits. */
+	private final AtomicLong hits = new AtomicLong();
+
+	/** The lookup misses. */
+	private final AtomicLong misses = new AtomicLong();
+
+	/** The evictions. */
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Instantiates a new script store.
+	 *
+	 * @param maxItems the max number of entries (0 to disable the store)
+	 * @param maxSize  the max total size of all entries in characters
+	 */
+	public ScriptStore(final int maxItems, final long maxSize) {
+		this.maxItems = maxItems;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Stores a script or template.
+	 *
+	 * @param content the script or template text
+	 * @return the hash, or null if the content is not stored (e.g. because it
+	 *         exceeds the max size on its own)
+	 */
+	public String put(final String content) {
+		if (this.maxItems <= 0 || content.length() > this.maxSize) {
+			return null;
+		}
+
+		final String hash = hash(content);
+		synchronized (this.entries) {
+			final String previous = this.entries.put(hash, content);
+			if (previous != null) {
+				this.size -= previous.length();
+			}
+			this.size += content.length();
+
+			final Iterator<Map.Entry<String, String>> eldest = this.entries.entrySet().iterator();
+			while ((this.size > this.maxSize || this.entries.size() > this.maxItems) && eldest.hasNext()) {
+				final Map.Entry<String, String> entry = eldest.next();
+				if (!entry.getKey().equals(hash)) {
+					this.size -= entry.getValue().length();
+					eldest.remove();
+					this.evictions.incrementAndGet();
+				}
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Gets a script or template by its hash. Hits and misses are counted.
+	 *
+	 * @param hash the hash
+	 * @return the script or template text, or null if the hash is unknown
+	 */
+	public String get(final String hash) {
+		final String content;
+		synchronized (this.entries) {
+			content = this.entries.get(hash);
+		}
+		if (content != null) {
+			this.hits.incrementAndGet();
+		} else {
+			this.misses.incrementAndGet();
+		}
+		return content;
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public void clear() {
+		synchronized (this.entries) {
+			this.entries.clear();
+			this.size = 0;
+		}
+	}
+
+	/**
+	 * Calculates the hash of a script or template, i.e. the hex encoded SHA-256
+	 * digest of its UTF-8 bytes.
+	 *
+	 * @param content the script or template text
+	 * @return the hash
+	 */
+	public static String hash(final String content) {
+		try {
+			final byte[] digest = MessageDigest.getInstance("SHA-256")
+					.digest(content.getBytes(StandardCharsets.UTF_8));
+			final StringBuilder hash = new StringBuilder(digest.length * 2);
+			for (final byte b : digest) {
+				hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return hash.toString();
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported", e);
+		}
+	}
+
+	/**
+	 * Gets the current number of entries.
+	 *
+	 * @return the number of entries
+	 */
+	public int getItems() {
+		synchronized (this.entries) {
+			return this.entries.size();
+		}
+	}
+
+	/**
+	 * Gets the current total size of all entries in characters.
+	 *
+	 * @return the size
+	 */
+	public long getSize() {
+		synchronized (this.entries) {
+			return this.size;
+		}
+	}
+
+	/**
+	 * Gets the number of lookup hits.
+	 *
+	 * @return the hits
+	 */
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	/**
+	 * Gets the number of lookup misses.
+	 *
+	 * @return the misses
+	 */
+	public long getMisses() {
+		return this.misses.get();
+	}
+
+	/**
+	 * Gets the number of evicted entries.
+	 *
+	 * @return the evictions
+	 */
+	public long getEvictions() {
+		return this.evictions.get();
+	}
+}
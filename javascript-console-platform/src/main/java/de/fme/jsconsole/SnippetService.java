@@ -0,0 +1,334 @@
+package de.fme.jsconsole;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.content.MimetypeMap;
+import org.alfresco.service.cmr.dictionary.DictionaryService;
+import org.alfresco.service.cmr.repository.ChildAssociationRef;
+import org.alfresco.service.cmr.repository.ContentData;
+import org.alfresco.service.cmr.repository.ContentReader;
+import org.alfresco.service.cmr.repository.ContentService;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.cmr.search.SearchService;
+import org.alfresco.service.namespace.NamespaceService;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.service.namespace.RegexQNamePattern;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.MD5;
+import org.alfresco.util.PropertyCheck;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONTokener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Provides the JSON snippets of the snippets folder
+ * (Data Dictionary/jsconsole/snippets). Each snippet is read and parsed only
+ * once and kept in memory together with its modification date. On each call
+ * only the metadata of the folder's children is checked, so just new or
+ * modified snippets are read again and removed snippets are dropped.
+ */
+public class SnippetService implements InitializingBean {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(SnippetService.class);
+
+	/** The XPath of the snippets folder. */
+	private static final String SNIPPETS_XPATH = "/app:company_home/app:dictionary/cm:jsconsole/cm:snippets";
+
+	/** The cached snippets by node ref. */
+	private Map<NodeRef, Snippet> snippets = new HashMap<>();
+
+	/** The cached listing of all snippets (null until the first refresh). */
+	private Snippets listing;
+
+	/** The node ref of the snippets folder (null if not looked up yet). */
+	private NodeRef snippetsFolder;
+
+	/** The node service. */
+	private NodeService nodeService;
+
+	/** The content service. */
+	private ContentService contentService;
+
+	/** The dictionary service. */
+	private DictionaryService dictionaryService;
+
+	/** The search service. */
+	private SearchService searchService;
+
+	/** The namespace service. */
+	private NamespaceService namespaceService;
+
+	/** The transaction service. */
+	private TransactionService transactionService;
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		PropertyCheck.mandatory(this, "nodeService", this.nodeService);
+		PropertyCheck.mandatory(this, "contentService", this.contentService);
+		PropertyCheck.mandatory(this, "dictionaryService", this.dictionaryService);
+		PropertyCheck.mandatory(this, "searchService", this.searchService);
+		PropertyCheck.mandatory(this, "namespaceService", this.namespaceService);
+		PropertyCheck.mandatory(this, "transactionService", this.transactionService);
+	}
+
+	/**
+	 * Gets the current snippets, refreshing new, modified and removed snippets.
+	 * Runs in a read-only transaction as the current user.
+	 *
+	 * @return the snippets
+	 */
+	public Snippets getSnippets() {
+		return this.transactionService.getRetryingTransactionHelper().doInTransaction(this::refresh, true);
+	}
+
+	/**
+	 * Refreshes the cached snippets from the metadata of the snippets folder.
+	 *
+	 * @return the snippets
+	 */
+	private synchronized Snippets refresh() {
+		if (this.snippetsFolder == null || !this.nodeService.exists(this.snippetsFolder)) {
+			this.snippetsFolder = this.findSnippetsFolder();
+			if (this.snippetsFolder == null) {
+				if (this.listing == null || !this.snippets.isEmpty()) {
+					this.snippets = new HashMap<>();
+					this.listing = this.serialize(this.snippets);
+				}
+				return this.listing;
+			}
+		}
+
+		final List<ChildAssociationRef> childAssocs = this.nodeService.getChildAssocs(this.snippetsFolder,
+				ContentModel.ASSOC_CONTAINS, RegexQNamePattern.MATCH_ALL);
+		final Map<NodeRef, Snippet> current = new HashMap<>(childAssocs.size() * 2);
+		boolean changed = false;
+		for (final ChildAssociationRef childAssoc : childAssocs) {
+			final NodeRef nodeRef = childAssoc.getChildRef();
+			if (!this.dictionaryService.isSubClass(this.nodeService.getType(nodeRef), ContentModel.TYPE_CONTENT)) {
+				continue;
+			}
+			final Map<QName, Serializable> properties = this.nodeService.getProperties(nodeRef);
+			final ContentData content = (ContentData) properties.get(ContentModel.PROP_CONTENT);
+			if (content == null || !MimetypeMap.MIMETYPE_JSON.equals(content.getMimetype())) {
+				continue;
+			}
+
+			final Date modified = (Date) properties.get(ContentModel.PROP_MODIFIED);
+			Snippet snippet = this.snippets.get(nodeRef);
+			if (snippet == null || !Objects.equals(snippet.modified, modified)) {
+				snippet = new Snippet(modified, this.parse(nodeRef));
+				changed = true;
+			}
+			current.put(nodeRef, snippet);
+		}
+		changed |= !current.keySet().equals(this.snippets.keySet());
+
+		if (changed || this.listing == null) {
+			this.snippets = current;
+			this.listing = this.serialize(current);
+		}
+		return this.listing;
+	}
+
+	/**
+	 * Looks up the snippets folder.
+	 *
+	 * @return the node ref of the snippets folder, or null if it does not exist
+	 */
+	private NodeRef findSnippetsFolder() {
+		final NodeRef storeRoot = this.nodeService.getRootNode(StoreRef.STORE_REF_WORKSPACE_SPACESSTORE);
+		final List<NodeRef> folders = this.searchService.selectNodes(storeRoot, SNIPPETS_XPATH, null,
+				this.namespaceService, false);
+		return folders.isEmpty() ? null : folders.get(0);
+	}
+
+	/**
+	 * Reads and parses a snippet.
+	 *
+	 * @param nodeRef the node ref of the snippet
+	 * @return the parsed snippet, or null if the snippet is empty or not valid
+	 *         JSON
+	 */
+	private Object parse(final NodeRef nodeRef) {
+		final ContentReader reader = this.contentService.getReader(nodeRef, ContentModel.PROP_CONTENT);
+		if (reader == null || !reader.exists()) {
+			return null;
+		}
+		try {
+			return new JSONTokener(reader.getContentString()).nextValue();
+		} catch (final JSONException e) {
+			LOGGER.warn("Ignoring snippet {} with invalid JSON: {}", nodeRef, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Serializes the snippets, ordered by node ref so the ETag does not depend on
+	 * the order of the child associations. The listing is last modified now,
+	 * since removing a snippet changes it without a later modification date.
+	 *
+	 * @param snippets the snippets
+	 * @return the listing
+	 */
+	private Snippets serialize(final Map<NodeRef, Snippet> snippets) {
+		final JSONArray json = new JSONArray();
+		final List<NodeRef> nodeRefs = new ArrayList<>(snippets.keySet());
+		nodeRefs.sort((a, b) -> a.toString().compareTo(b.toString()));
+		for (final NodeRef nodeRef : nodeRefs) {
+			final Snippet snippet = snippets.get(nodeRef);
+			if (snippet.value != null) {
+				json.put(snippet.value);
+			}
+		}
+		return new Snippets(json.toString(), new Date());
+	}
+
+	/**
+	 * Sets the node service.
+	 *
+	 * @param nodeService the nodeService to set
+	 */
+	public void setNodeService(final NodeService nodeService) {
+		this.nodeService = nodeService;
+	}
+
+	/**
+	 * Sets the content service.
+	 *
+	 * @param contentService the contentService to set
+	 */
+	public void setContentService(final ContentService contentService) {
+		this.contentService = contentService;
+	}
+
+	/**
+	 * Sets the dictionary service.
+	 *
+	 * @param dictionaryService the dictionaryService to set
+	 */
+	public void setDictionaryService(final DictionaryService dictionaryService) {
+		this.dictionaryService = dictionaryService;
+	}
+
+	/**
+	 * Sets the search service.
+	 *
+	 * @param searchService the searchService to set
+	 */
+	public void setSearchService(final SearchService searchService) {
+		this.searchService = searchService;
+	}
+
+	/**
+	 * Sets the namespace service.
+	 *
+	 * @param namespaceService the namespaceService to set
+	 */
+	public void setNamespaceService(final NamespaceService namespaceService) {
+		this.namespaceService = namespaceService;
+	}
+
+	/**
+	 * Sets the transaction service.
+	 *
+	 * @param transactionService the transactionService to set
+	 */
+	public void setTransactionService(final TransactionService transactionService) {
+		this.transactionService = transactionService;
+	}
+
+	/**
+	 * The serialized snippets with their validators.
+	 */
+	public static final class Snippets {
+
+		/** The JSON array of the parsed snippets. */
+		private final String json;
+
+		/** The ETag. */
+		private final String etag;
+
+		/** The time the listing last changed on this node. */
+		private final Date lastModified;
+
+		/**
+		 * Instantiates new snippets.
+		 *
+		 * @param json         the JSON array of the parsed snippets
+		 * @param lastModified the time the listing last changed
+		 */
+		private Snippets(final String json, final Date lastModified) {
+			this.json = json;
+			this.etag = MD5.Digest(json.getBytes(StandardCharsets.UTF_8));
+			this.lastModified = lastModified;
+		}
+
+		/**
+		 * Gets the JSON array of the parsed snippets.
+		 *
+		 * @return the json
+		 */
+		public String getJson() {
+			return this.json;
+		}
+
+		/**
+		 * Gets the ETag (the hash of the JSON).
+		 *
+		 * @return the etag
+		 */
+		public String getEtag() {
+			return this.etag;
+		}
+
+		/**
+		 * Gets the time the listing last changed on this node.
+		 *
+		 * @return the last modified date
+		 */
+		public Date getLastModified() {
+			return this.lastModified;
+		}
+	}
+
+	/**
+	 * A cached snippet.
+	 */
+	private static final class Snippet {
+
+		/** The modification date the snippet was read at. */
+		private final Date modified;
+
+		/** The parsed snippet (null if empty or invalid). */
+		private final Object value;
+
+		/**
+		 * Instantiates a new snippet.
+		 *
+		 * @param modified the modification date
+		 * @param value    the parsed snippet
+		 */
+		private Snippet(final Date modified, final Object value) {
+			this.modified = modified;
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package de.fme.jsconsole;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A writer for rendered console templates which keeps small outputs in memory
+ * and spills outputs exceeding the inline limit to an export file of the
+ * {@link JsConsoleExportStore}, so that large template outputs (e.g. CSV
+ * reports) are streamed to disk instead of being held on the heap and
+ * embedded in the result JSON. Like all exports, spilled outputs can only be
+ * downloaded from other cluster nodes if the export directory is shared.
+ */
+public class SpillingTemplateWriter extends Writer {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(SpillingTemplateWriter.class);
+
+	/** The export store. */
+	private final JsConsoleExportStore exportStore;
+
+	/** The file extension of the export. */
+	private final String extension;
+
+	/** The max number of characters kept in memory. */
+	private final long inlineLimit;
+
+	/** The max number of characters in total (0 for unlimited). */
+	private final long maxSize;
+
+	/** The inline output. */
+	private final StringBuilder inline = new StringBuilder();
+
+	/** The number of characters written. */
+	private long size;
+
+	/** The export id (null if not spilled). */
+	private String exportId;
+
+	/** The writer of the export file (null if not spilled). */
+	private Writer spillWriter;
+
+	/**
+	 * Instantiates a new spilling template writer.
+	 *
+	 * @param exportStore the export store
+	 * @param extension   the file extension of the export
+	 * @param inlineLimit the max number of characters kept in memory
+	 * @param maxSize     the max number of characters in total (0 for unlimited)
+	 */
+	public SpillingTemplateWriter(final JsConsoleExportStore exportStore, final String extension,
+			final long inlineLimit, final long maxSize) {
+		this.exportStore = exportStore;
+		this.extension = extension;
+		this.inlineLimit = inlineLimit;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final char[] cbuf, final int off, final int len) throws IOException {
+		this.beforeWrite(len);
+		if (this.spillWriter != null) {
+			this.spillWriter.write(cbuf, off, len);
+		} else {
+			this.inline.append(cbuf, off, len);
+		}
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(final String str, final int off, final int len) throws IOException {
+		this.beforeWrite(len);
+		if (this.spillWriter != null) {
+			this.spillWriter.write(str, off, len);
+		} else {
+			this.inline.append(str, off, off + len);
+		}
+	}
+
+	/**
+	 * Enforces the max size and spills the inline output once the inline limit
+	 * would be exceeded.
+	 *
+	 * @param len the number of characters about to be written
+	 * @throws IOException if the max size is exceeded or the export file cannot
+	 *                     be created
+	 */
+	private void beforeWrite(final int len) throws IOException {
+		if (this.maxSize > 0 && this.size + len > this.maxSize) {
+			throw new IOException("The rendered template exceeds the max size of " + this.maxSize + " characters");
+		}
+		this.size += len;
+		if (this.spillWriter == null && this.size > this.inlineLimit) {
+			this.exportId = this.exportStore.createExport(this.extension);
+			this.spillWriter = new BufferedWriter(new OutputStreamWriter(
+					new FileOutputStream(this.exportStore.getExportFile(this.exportId)), StandardCharsets.UTF_8));
+			this.spillWriter.append(this.inline);
+			this.inline.setLength(0);
+			this.inline.trimToSize();
+		}
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (this.spillWriter != null) {
+			this.spillWriter.flush();
+		}
+	}
+
+	/**
+	 *
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.spillWriter != null) {
+			this.spillWriter.close();
+		}
+	}
+
+	/**
+	 * Closes the writer and removes the export file (if any), e.g. after the
+	 * template failed to render.
+	 */
+	public void discard() {
+		try {
+			this.close();
+		} catch (final IOException ioe) {
+			LOGGER.debug("Failed to close template export {}", this.exportId, ioe);
+		}
+		if (this.exportId != null && !this.exportStore.getExportFile(this.exportId).delete()) {
+			LOGGER.debug("Failed to remove template export {}", this.exportId);
+		}
+	}
+
+	/**
+	 * Checks if the output has been spilled to an export file.
+	 *
+	 * @return true, if spilled
+	 */
+	public boolean isSpilled() {
+		return this.exportId != null;
+	}
+
+	/**
+	 * Gets the inline output (empty if spilled).
+	 *
+	 * @return the inline output
+	 */
+	public String getInlineOutput() {
+		return this.inline.toString();
+	}
+
+	/**
+	 * Gets the export id.
+	 *
+	 * @return the export id (null if not spilled)
+	 */
+	public String getExportId() {
+		return this.exportId;
+	}
+
+	/**
+	 * Gets the export file.
+	 *
+	 * @return the export file (null if not spilled)
+	 */
+	public File getExportFile() {
+		return this.exportId != null ? this.exportStore.getExportFile(this.exportId) : null;
+	}
+
+	/**
+	 * Gets the number of characters written.
+	 *
+	 * @return the size
+	 */
+	public long getSize() {
+		return this.size;
+	}
+}
@@ -6,24 +6,42 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.nio.charset.Charset;
 
+import org.alfresco.service.cmr.repository.ScriptLocation;
 import org.alfresco.util.MD5;
 import org.springframework.extensions.webscripts.ScriptContent;
 
 /**
- * The Class StringScriptContent.
+ * The Class StringScriptContent. Implements both the web script
+ * {@link ScriptContent} and the repository {@link ScriptLocation}, so the
+ * script can be run by the web script container and by the ScriptService.
  */
-public class StringScriptContent implements ScriptContent {
+public class StringScriptContent implements ScriptContent, ScriptLocation {
 
 	/** The content. */
 	private final String content;
 
+	/** Whether the compiled script may be cached by the script processor. */
+	private final boolean cachable;
+
 	/**
 	 * Instantiates a new string script content.
 	 *
 	 * @param content the content
 	 */
 	public StringScriptContent(final String content) {
+		this(content, false);
+	}
+
+	/**
+	 * Instantiates a new string script content.
+	 *
+	 * @param content  the content
+	 * @param cachable whether the compiled script may be cached by the script
+	 *                 processor (keyed by the content hash)
+	 */
+	public StringScriptContent(final String content, final boolean cachable) {
 		this.content = content;
+		this.cachable = cachable;
 	}
 
 	/**
@@ -73,7 +91,7 @@ public class StringScriptContent implements ScriptContent {
 	 */
 	@Override
 	public boolean isCachable() {
-		return false;
+		return this.cachable;
 	}
 
 	/**
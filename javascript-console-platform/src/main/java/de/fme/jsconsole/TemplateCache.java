@@ -0,0 +1,175 @@
+package de.fme.jsconsole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.alfresco.util.MD5;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+
+/**
+ * A bounded, node-local LRU cache of parsed FreeMarker templates keyed by the
+ * MD5 hash of the template source, so that re-running the same console
+ * template only pays for rendering. Parsed templates are immutable and thread
+ * safe, so cached instances are shared between concurrent executions. The
+ * cache is bound to the FreeMarker configuration the templates were parsed
+ * with and is cleared if a different configuration is passed in.
+ */
+public class TemplateCache {
+
+	/** The name of parsed console templates (shown in FreeMarker error messages). */
+	private static final String TEMPLATE_NAME = "console template";
+
+	/** The max number of parsed templates. */
+	private final int maxItems;
+
+	/** The parsed templates by template hash. */
+	private final Map<String, Template> templates;
+
+	/** The configuration the cached templates were parsed with. */
+	private Configuration configuration;
+
+	/** The cache hits. */
+	private final AtomicLong hits = new AtomicLong();
+
+	/** The cache misses. */
+	private final AtomicLong misses = new AtomicLong();
+
+	/** The evictions. */
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Instantiates a new template cache.
+	 *
+	 * @param maxItems the max number of parsed templates (0 to disable caching)
+	 */
+	public TemplateCache(final int maxItems) {
+		this.maxItems = maxItems;
+		this.templates = new LinkedHashMap<String, Template>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = -3172447906458016394L;
+
+			/**
+			 *
+			 * {@inheritDoc}
+			 */
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, Template> eldest) {
+				final boolean evict = this.size() > TemplateCache.this.maxItems;
+				if (evict) {
+					TemplateCache.this.evictions.incrementAndGet();
+				}
+				return evict;
+			}
+		};
+	}
+
+	/**
+	 * Gets the cached parsed template for a template source, or null on a cache
+	 * miss. Hits and misses are counted.
+	 *
+	 * @param source        the template source
+	 * @param configuration the FreeMarker configuration
+	 * @return the parsed template or null
+	 */
+	public Template get(final String source, final Configuration configuration) {
+		final String key = hash(source);
+		final Template template;
+		synchronized (this.templates) {
+			template = this.configuration == configuration ? this.templates.get(key) : null;
+		}
+		if (template != null) {
+			this.hits.incrementAndGet();
+		} else {
+			this.misses.incrementAndGet();
+		}
+		return template;
+	}
+
+	/**
+	 * Parses a template source and caches the parsed template. Parsing happens
+	 * outside the cache lock, so concurrent misses of the same template may
+	 * parse it twice, with the last one winning.
+	 *
+	 * @param source        the template source
+	 * @param configuration the FreeMarker configuration
+	 * @return the parsed template
+	 * @throws IOException if the template cannot be parsed
+	 */
+	public Template parse(final String source, final Configuration configuration) throws IOException {
+		final Template template = new Template(TEMPLATE_NAME, new StringReader(source), configuration);
+		if (this.maxItems > 0) {
+			final String key = hash(source);
+			synchronized (this.templates) {
+				if (this.configuration != configuration) {
+					this.templates.clear();
+					this.configuration = configuration;
+				}
+				this.templates.put(key, template);
+			}
+		}
+		return template;
+	}
+
+	/**
+	 * Removes all parsed templates.
+	 */
+	public void clear() {
+		synchronized (this.templates) {
+			this.templates.clear();
+		}
+	}
+
+	/**
+	 * Calculates the cache key of a template source.
+	 *
+	 * @param source the template source
+	 * @return the hash
+	 */
+	private static String hash(final String source) {
+		return MD5.Digest(source.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Gets the current number of parsed templates.
+	 *
+	 * @return the size
+	 */
+	public int getSize() {
+		synchronized (this.templates) {
+			return this.templates.size();
+		}
+	}
+
+	/**
+	 * Gets the number of cache hits.
+	 *
+	 * @return the hits
+	 */
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	/**
+	 * Gets the number of cache misses.
+	 *
+	 * @return the misses
+	 */
+	public long getMisses() {
+		return this.misses.get();
+	}
+
+	/**
+	 * Gets the number of evicted templates.
+	 *
+	 * @return the evictions
+	 */
+	public long getEvictions() {
+		return this.evictions.get();
+	}
+}
@@ -0,0 +1,165 @@
+package de.fme.jsconsole;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provides the CPU time and allocated bytes of the current thread via the
+ * {@link ThreadMXBean}, if the JVM supports it, and enforces an optional
+ * per-execution allocation budget for threads running a JavaScript Console
+ * execution.
+ */
+public final class ThreadResourceUsage {
+
+	/** The Constant LOGGER. */
+	private static final Logger LOGGER = LoggerFactory.getLogger(ThreadResourceUsage.class);
+
+	/** The thread MX bean. */
+	private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+	/** Whether thread CPU time measurement is supported and enabled. */
+	private static final boolean CPU_TIME_SUPPORTED;
+
+	/** The allocated bytes extension of the thread MX bean, if available. */
+	private static final com.sun.management.ThreadMXBean ALLOCATION_MX_BEAN;
+
+	/** The allocation budget of the current thread. */
+	private static final ThreadLocal<AllocationBudget> BUDGET = new ThreadLocal<>();
+
+	static {
+		boolean cpuTimeSupported = false;
+		try {
+			cpuTimeSupported = THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()
+					&& THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+		} catch (final UnsupportedOperationException uoe) {
+			LOGGER.debug("Thread CPU time is not supported", uoe);
+		}
+		CPU_TIME_SUPPORTED = cpuTimeSupported;
+
+		com.sun.management.ThreadMXBean allocationMXBean = null;
+		if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).isThreadAllocatedMemorySupported()
+				&& ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).isThreadAllocatedMemoryEnabled()) {
+			allocationMXBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+		}
+		ALLOCATION_MX_BEAN = allocationMXBean;
+	}
+
+	/**
+	 * Instantiates a new thread resource usage.
+	 */
+	private ThreadResourceUsage() {
+		// NO-OP
+	}
+
+	/**
+	 * Gets the CPU time of the current thread.
+	 *
+	 * @return the CPU time in nanoseconds or -1 if not supported
+	 */
+	public static long getCurrentThreadCpuNanos() {
+		return CPU_TIME_SUPPORTED ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : -1;
+	}
+
+	/**
+	 * Gets the number of bytes allocated by the current thread.
+	 *
+	 * @return the allocated bytes or -1 if not supported
+	 */
+	public static long getCurrentThreadAllocatedBytes() {
+		return ALLOCATION_MX_BEAN != null ? ALLOCATION_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId())
+				: -1;
+	}
+
+	/**
+	 * Starts enforcing an allocation budget for the current thread.
+	 *
+	 * @param budgetBytes the max number of bytes the current thread may allocate
+	 *                    from now on (0 or less to disable)
+	 */
+	public static void startAllocationBudget(final long budgetBytes) {
+		final long allocatedBytes = getCurrentThreadAllocatedBytes();
+		if (budgetBytes > 0 && allocatedBytes >= 0) {
+			BUDGET.set(new AllocationBudget(allocatedBytes + budgetBytes, budgetBytes));
+		} else {
+			BUDGET.remove();
+		}
+	}
+
+	/**
+	 * Gets the allocation budget of the current thread, e.g. to enforce the same
+	 * budget on threads working on behalf of the current thread.
+	 *
+	 * @return the budget in bytes (0 if no budget is enforced)
+	 */
+	public static long getAllocationBudgetBytes() {
+		final AllocationBudget budget = BUDGET.get();
+		return budget != null ? budget.budgetBytes : 0;
+	}
+
+	/**
+	 * Stops enforcing the allocation budget for the current thread.
+	 */
+	public static void stopAllocationBudget() {
+		BUDGET.remove();
+	}
+
+	/**
+	 * Checks the allocation budget of the current thread. This is called at
+	 * checkpoints reached regularly by scripts, e.g. print calls and repository
+	 * service calls. Once the budget has been exceeded, every subsequent check
+	 * fails as well, so a script can not simply catch and ignore the error.
+	 *
+	 * @throws AllocationBudgetExceededException if the budget has been exceeded
+	 */
+	public static void checkAllocationBudget() {
+		final AllocationBudget budget = BUDGET.get();
+		if (budget != null && getCurrentThreadAllocatedBytes() > budget.limit) {
+			throw new AllocationBudgetExceededException(budget.budgetBytes);
+		}
+	}
+
+	/**
+	 * The allocation budget of a thread.
+	 */
+	private static class AllocationBudget {
+
+		/** The absolute allocated bytes limit of the thread. */
+		private final long limit;
+
+		/** The budget in bytes. */
+		private final long budgetBytes;
+
+		/**
+		 * Instantiates a new allocation budget.
+		 *
+		 * @param limit       the absolute allocated bytes limit of the thread
+		 * @param budgetBytes the budget in bytes
+		 */
+		private AllocationBudget(final long limit, final long budgetBytes) {
+			this.limit = limit;
+			this.budgetBytes = budgetBytes;
+		}
+	}
+
+	/**
+	 * Signals that a script execution has exceeded its allocation budget.
+	 */
+	public static class AllocationBudgetExceededException extends RuntimeException {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = -4402396575906339178L;
+
+		/**
+		 * Instantiates a new allocation budget exceeded exception.
+		 *
+		 * @param budgetBytes the budget in bytes
+		 */
+		public AllocationBudgetExceededException(final long budgetBytes) {
+			super("Script execution aborted: allocation budget of " + budgetBytes + " bytes exceeded");
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package de.fme.jsconsole;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptException;
+
+/**
+ * Signals that an execute request referenced scripts or templates by hashes
+ * which are not (or no longer) in the {@link ScriptStore}, so the client has to
+ * send the full text again. Answered with 412 (precondition failed) and the
+ * list of unknown hashes.
+ */
+public class UnknownScriptHashException extends WebScriptException {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 4725170623145862906L;
+
+	/** The unknown hashes. */
+	private final List<String> unknownHashes;
+
+	/**
+	 * Instantiates a new unknown script hash exception.
+	 *
+	 * @param unknownHashes the unknown hashes
+	 */
+	public UnknownScriptHashException(final List<String> unknownHashes) {
+		super(Status.STATUS_PRECONDITION_FAILED, "Unknown script or template hashes " + unknownHashes);
+		this.unknownHashes = Collections.unmodifiableList(unknownHashes);
+	}
+
+	/**
+	 * Gets the unknown hashes.
+	 *
+	 * @return the unknown hashes
+	 */
+	public List<String> getUnknownHashes() {
+		return this.unknownHashes;
+	}
+}
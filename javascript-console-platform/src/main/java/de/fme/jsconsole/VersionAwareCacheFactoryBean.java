@@ -3,6 +3,7 @@
  */
 package de.fme.jsconsole;
 
+import java.io.Serializable;
 import java.lang.reflect.Method;
 
 import org.alfresco.repo.cache.SimpleCache;
@@ -29,6 +30,45 @@ public class VersionAwareCacheFactoryBean extends AbstractFactoryBean<Object> {
 	/** The descriptor service. */
 	protected DescriptorService descriptorService;
 
+	/**
+	 * Whether to front the cache with a node-local near cache (only for caches
+	 * with write-once keys, see {@link NearCache}).
+	 */
+	protected boolean nearCacheEnabled;
+
+	/** The near cache max items. */
+	protected int nearCacheMaxItems = 1000;
+
+	/** The near cache time to live in seconds. */
+	protected int nearCacheTimeToLiveSeconds = 60;
+
+	/**
+	 * The time to live of cache entries in seconds, used to expire entries
+	 * tracked for statistics.
+	 */
+	protected int statisticsTimeToLiveSeconds;
+
+	/**
+	 * Whether the statistics estimate the size of cache entries by serializing
+	 * them (instead of from the lengths of strings and lists).
+	 */
+	protected boolean serializedSizeEstimation;
+
+	/** Whether to use a node-local off-heap cache instead of the cache factory. */
+	protected boolean offHeapEnabled;
+
+	/** The max number of bytes of the off-heap cache. */
+	protected long offHeapMaxBytes = 256L * 1024 * 1024;
+
+	/** The size of a single off-heap slab in bytes. */
+	protected int offHeapSlabSize = 4 * 1024 * 1024;
+
+	/** The size of a single off-heap allocation block in bytes. */
+	protected int offHeapBlockSize = 1024;
+
+	/** The time to live of off-heap cache entries in seconds. */
+	protected int offHeapTimeToLiveSeconds = 3600;
+
 	/**
 	 * After properties set.
 	 *
@@ -41,13 +81,17 @@ public class VersionAwareCacheFactoryBean extends AbstractFactoryBean<Object> {
 		PropertyCheck.mandatory(this, "preAlf42ClassName", this.preAlf42ClassName);
 		PropertyCheck.mandatory(this, "cacheName", this.cacheName);
 
+		if (this.nearCacheEnabled && this.nearCacheMaxItems <= 0) {
+			throw new IllegalStateException("nearCacheMaxItems must be positive if the near cache is enabled");
+		}
+
 		super.afterPropertiesSet();
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	@SuppressWarnings("deprecation")
+	@SuppressWarnings({ "deprecation", "unchecked" })
 	@Override
 	public Object createInstance() throws Exception {
 		final Descriptor serverDescriptor = this.descriptorService.getServerDescriptor();
@@ -59,7 +103,10 @@ public class VersionAwareCacheFactoryBean extends AbstractFactoryBean<Object> {
 
 		// need to do most of this reflectively as classes may not be available between
 		// 4.0/4.1 and 4.2/5.0
-		if (alf42Version.compareTo(versionNumber) <= 0) {
+		if (this.offHeapEnabled) {
+			resultObject = new OffHeapCache<>(this.offHeapMaxBytes, this.offHeapSlabSize, this.offHeapBlockSize,
+					this.offHeapTimeToLiveSeconds);
+		} else if (alf42Version.compareTo(versionNumber) <= 0) {
 			final Object cacheFactory = getBeanFactory().getBean("cacheFactory");
 			Method createCacheMethod = cacheFactory.getClass().getMethod("createCache", String.class);
 			resultObject = createCacheMethod.invoke(cacheFactory, this.cacheName);
@@ -70,6 +117,17 @@ public class VersionAwareCacheFactoryBean extends AbstractFactoryBean<Object> {
 			}
 		}
 
+		// a near cache would keep values on the heap again, defeating the off-heap cache
+		if (this.nearCacheEnabled && !this.offHeapEnabled && resultObject instanceof SimpleCache<?, ?>) {
+			resultObject = new NearCache<>((SimpleCache<Serializable, Object>) resultObject, this.nearCacheMaxItems,
+					this.nearCacheTimeToLiveSeconds);
+		}
+
+		if (resultObject instanceof SimpleCache<?, ?>) {
+			resultObject = new InstrumentedCache<>(this.cacheName, (SimpleCache<Serializable, Object>) resultObject,
+					this.statisticsTimeToLiveSeconds, this.serializedSizeEstimation);
+		}
+
 		return resultObject;
 	}
 
@@ -107,4 +165,97 @@ public class VersionAwareCacheFactoryBean extends AbstractFactoryBean<Object> {
 	public final void setDescriptorService(final DescriptorService descriptorService) {
 		this.descriptorService = descriptorService;
 	}
+
+	/**
+	 * Sets whether to front the cache with a node-local near cache.
+	 *
+	 * @param nearCacheEnabled the nearCacheEnabled to set
+	 */
+	public void setNearCacheEnabled(final boolean nearCacheEnabled) {
+		this.nearCacheEnabled = nearCacheEnabled;
+	}
+
+	/**
+	 * Sets the near cache max items.
+	 *
+	 * @param nearCacheMaxItems the nearCacheMaxItems to set
+	 */
+	public void setNearCacheMaxItems(final int nearCacheMaxItems) {
+		this.nearCacheMaxItems = nearCacheMaxItems;
+	}
+
+	/**
+	 * Sets the near cache time to live in seconds.
+	 *
+	 * @param nearCacheTimeToLiveSeconds the nearCacheTimeToLiveSeconds to set
+	 */
+	public void setNearCacheTimeToLiveSeconds(final int nearCacheTimeToLiveSeconds) {
+		this.nearCacheTimeToLiveSeconds = nearCacheTimeToLiveSeconds;
+	}
+
+	/**
+	 * Sets the time to live of cache entries in seconds, used to expire entries
+	 * tracked for statistics.
+	 *
+	 * @param statisticsTimeToLiveSeconds the statisticsTimeToLiveSeconds to set
+	 */
+	public void setStatisticsTimeToLiveSeconds(final int statisticsTimeToLiveSeconds) {
+		this.statisticsTimeToLiveSeconds = statisticsTimeToLiveSeconds;
+	}
+
+	/**
+	 * Sets whether the statistics estimate the size of cache entries by
+	 * serializing them.
+	 *
+	 * @param serializedSizeEstimation the serializedSizeEstimation to set
+	 */
+	public void setSerializedSizeEstimation(final boolean serializedSizeEstimation) {
+		this.serializedSizeEstimation = serializedSizeEstimation;
+	}
+
+	/**
+	 * Sets whether to use a node-local off-heap cache instead of the cache
+	 * factory.
+	 *
+	 * @param offHeapEnabled the offHeapEnabled to set
+	 */
+	public void setOffHeapEnabled(final boolean offHeapEnabled) {
+		this.offHeapEnabled = offHeapEnabled;
+	}
+
+	/**
+	 * Sets the max number of bytes of the off-heap cache.
+	 *
+	 * @param offHeapMaxBytes the offHeapMaxBytes to set
+	 */
+	public void setOffHeapMaxBytes(final long offHeapMaxBytes) {
+		this.offHeapMaxBytes = offHeapMaxBytes;
+	}
+
+	/**
+	 * Sets the size of a single off-heap slab in bytes.
+	 *
+	 * @param offHeapSlabSize the offHeapSlabSize to set
+	 */
+	public void setOffHeapSlabSize(final int offHeapSlabSize) {
+		this.offHeapSlabSize = offHeapSlabSize;
+	}
+
+	/**
+	 * Sets the size of a single off-heap allocation block in bytes.
+	 *
+	 * @param offHeapBlockSize the offHeapBlockSize to set
+	 */
+	public void setOffHeapBlockSize(final int offHeapBlockSize) {
+		this.offHeapBlockSize = offHeapBlockSize;
+	}
+
+	/**
+	 * Sets the time to live of off-heap cache entries in seconds.
+	 *
+	 * @param offHeapTimeToLiveSeconds the offHeapTimeToLiveSeconds to set
+	 */
+	public void setOffHeapTimeToLiveSeconds(final int offHeapTimeToLiveSeconds) {
+		this.offHeapTimeToLiveSeconds = offHeapTimeToLiveSeconds;
+	}
 }
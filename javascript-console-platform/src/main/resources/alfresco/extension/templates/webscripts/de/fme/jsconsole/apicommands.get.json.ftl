@@ -1 +0,0 @@
-${json}
@@ -1,4 +0,0 @@
-{
-	"scripts" : ${scripts}
-	
-}
@@ -1,3 +1,3 @@
 {
-	"scripts" : ${scripts}
+	"nodeRef" : "${(nodeRef!"")?js_string}"
 }
\ No newline at end of file
@@ -1,5 +1,3 @@
-<import resource="classpath:alfresco/templates/webscripts/de/fme/jsconsole/listscripts.get.js">
-
 var isUpdate = args.isUpdate;
 
 var saveScript = function saveScript(){
@@ -14,12 +12,10 @@ var saveScript = function saveScript(){
     	scriptNode.content = json.get('jsScript');
     	scriptNode.properties["jsc:freemarkerScript"].content=json.get('fmScript');
     	scriptNode.save();
+    	model.nodeRef = scriptNode.nodeRef.toString();
     }else{
         logger.warn('No script folder');
     }
 }
 
 saveScript();
-
-// from listScripts.get.js
-findAvailableScripts();
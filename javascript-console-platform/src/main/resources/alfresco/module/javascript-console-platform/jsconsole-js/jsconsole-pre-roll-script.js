@@ -26,18 +26,6 @@
  * is now being licensed under the LGPL as part of the OOTBee Support Tools
  * addon.
  */
-// normally, logger should be considered immutable - this is one of the rare exceptions
-/* global jsconsole: false, dumpService: false, logger: true */
-logger = jsconsole.getLogger();
-
-/* exported print */
-function print(obj)
-{
-	jsconsole.print(obj);
-}
-
-/* exported dump */
-function dump(obj)
-{
-    dumpService.addDump(obj);
-}
\ No newline at end of file
+// the helpers (print, dump, exportDumps, recurse, ...) live in the shared scope of the ConsoleScriptScope
+/* global jsconsoleBindScope: false, jsconsole: false, dumpService: false, utils: false */
+jsconsoleBindScope(this, jsconsole, dumpService, typeof utils !== 'undefined' ? utils : null);
@@ -115,7 +115,9 @@ if (typeof String.prototype.startsWith != 'function') {
                      runas : Dom.get(parent.id + "-runas"),
                      transaction : Dom.get(parent.id + "-transactions"),
                      urlargs : Dom.get(parent.id + "-urlarguments"),
-                     runlikecrazy : Dom.get(parent.id + "-runlikecrazy")
+                     runlikecrazy : Dom.get(parent.id + "-runlikecrazy"),
+                     profile : Dom.get(parent.id + "-profile"),
+                     templateDownload : Dom.get(parent.id + "-templateDownload")
              };
 
              // Buttons
@@ -155,6 +157,30 @@ if (typeof String.prototype.startsWith != 'function') {
            outputfield.appendChild(document.createTextNode(text));
        },
 
+       appendDumpExportLinks : function(dumpExports) {
+           var outputfield = this.widgets.scriptOutput, i, link;
+           if (YAHOO.lang.isArray(dumpExports)) {
+               for (i = 0; i < dumpExports.length; i++) {
+                   link = document.createElement("a");
+                   link.href = Alfresco.constants.PROXY_URI + dumpExports[i].downloadUrl;
+                   link.appendChild(document.createTextNode(this.msg("label.dump.export.link", dumpExports[i].count, dumpExports[i].size)));
+                   outputfield.appendChild(link);
+                   outputfield.appendChild(document.createTextNode("\n"));
+               }
+           }
+       },
+
+       appendTemplateExportLink : function(templateExport) {
+           var outputfield = this.widgets.scriptOutput, link;
+           if (templateExport) {
+               link = document.createElement("a");
+               link.href = Alfresco.constants.PROXY_URI + templateExport.downloadUrl;
+               link.appendChild(document.createTextNode(this.msg("label.template.export.link", templateExport.size)));
+               outputfield.appendChild(link);
+               outputfield.appendChild(document.createTextNode("\n"));
+           }
+       },
+
        browserSupportsHtml5Storage: function ACJC_browserSupportsHtml5Storage() {
            try {
                var testString = "LSTEST12345";
@@ -435,6 +461,7 @@ if (typeof String.prototype.startsWith != 'function') {
           //       return CodeMirror.lint.javascript(text, self.javascriptCommands.globalMap);
           //   },
              lineNumbers: true,
+             gutters: ["CodeMirror-linenumbers", "jsconsole-profile-gutter"],
              lineWrapping: true,
              matchBrackets: true,
              tabSize: 4,
@@ -1373,24 +1400,40 @@ if (typeof String.prototype.startsWith != 'function') {
         var scriptCode = "";
         if (this.widgets.codeMirrorScript.somethingSelected()) {
             scriptCode = this.widgets.codeMirrorScript.getSelection();
+            this.scriptLineOffset = this.widgets.codeMirrorScript.getCursor("from").line;
         }
         else {
             scriptCode = this.widgets.scriptInput.value;
+            this.scriptLineOffset = 0;
         }
 
         templateCode = this.widgets.templateInput.value;
 
         // Build JSON Object to send to the server
         var input = {
-           "script" : scriptCode,
-           "template" : templateCode,
            "spaceNodeRef" : this.widgets.nodeField.value,
            "transaction" : this.widgets.config.transaction.value ? this.widgets.config.transaction.value : "readwrite",
            "runas" : this.widgets.config.runas.value ? this.widgets.config.runas.value : "admin",
            "urlargs" : this.widgets.config.urlargs.value ? this.widgets.config.urlargs.value : "",
-           "documentNodeRef" : this.options.documentNodeRef
+           "documentNodeRef" : this.options.documentNodeRef,
+           "profile" : this.widgets.config.profile ? this.widgets.config.profile.checked : false,
+           "templateOutput" : this.widgets.config.templateDownload && this.widgets.config.templateDownload.checked ? "download" : "inline"
         };
 
+        // only send the hashes of texts which have already been uploaded to the repository
+        var scriptHashes = this.scriptHashes || {};
+        if (scriptHashes.script && scriptHashes.script.text === scriptCode) {
+            input.scriptHash = scriptHashes.script.hash;
+        } else {
+            input.script = scriptCode;
+        }
+        if (scriptHashes.template && scriptHashes.template.text === templateCode) {
+            input.templateHash = scriptHashes.template.hash;
+        } else {
+            input.template = templateCode;
+        }
+        this.executedTexts = { script : scriptCode, template : templateCode };
+
         // Disable the result textarea
         this.widgets.scriptOutput.disabled = true;
         this.widgets.executeButton.disabled = true;
@@ -1415,10 +1458,14 @@ if (typeof String.prototype.startsWith != 'function') {
                  this.fetchResultTimer.cancel();
                  this.fetchResultTimer = null;
                  this.showLoadingAjaxSpinner(false);
+                 this.rememberScriptHashes(res.json);
                  this.printExecutionStats(res.json);
+                 this.showScriptProfile(res.json.scriptProfile);
                  this.printDumpInfos(res.json.dumpOutput);
                  this.clearOutput();
                  this.appendLineArrayToOutput(res.json.printOutput);
+                 this.appendDumpExportLinks(res.json.dumpExports);
+                 this.appendTemplateExportLink(res.json.renderedTemplateExport);
                  this.widgets.templateOutputHtml.innerHTML = res.json.renderedTemplate;
                  this.widgets.templateOutputText.innerHTML = $html(res.json.renderedTemplate);
                  this.widgets.codeMirrorJSON.setValue(formatter.formatJson(res.json.renderedTemplate,"  "));
@@ -1426,7 +1473,10 @@ if (typeof String.prototype.startsWith != 'function') {
 
                  if (res.json.spaceNodeRef) {
                      this.widgets.nodeField.value = res.json.spaceNodeRef;
-                     this.widgets.pathField.innerHTML = res.json.spacePath;
+                     // the path is only reported if the script changed the space
+                     if (res.json.spacePath) {
+                         this.widgets.pathField.innerHTML = res.json.spacePath;
+                     }
                  }
                  this.widgets.scriptOutput.disabled = false;
                  this.widgets.templateOutputHtml.disabled = false;
@@ -1444,15 +1494,40 @@ if (typeof String.prototype.startsWith != 'function') {
             failureCallback:
             {
                fn: function(res) {
-                   if (res.serverResponse.status !== 408) {
-                     this.fetchResult();
+                   if (res.serverResponse.status === 412) {
+                     // the repository does not know the hashes (anymore), so send the texts again
+                     this.scriptHashes = {};
+                     if (this.fetchResultTimer !== null) {
+                         this.fetchResultTimer.cancel();
+                         this.fetchResultTimer = null;
+                     }
+                     this.widgets.executeButton.disabled = false;
+                     this.onExecuteClick();
+                   }
+                   else if (res.serverResponse.status !== 408) {
+                     // a rejected request (4xx) never started an execution, so there is no print output to fetch
+                     if (res.serverResponse.status >= 500) {
+                         this.fetchResult();
+                     }
                      
-                     this.fetchResultTimer.cancel();
-                     this.fetchResultTimer = null;
+                     if (this.fetchResultTimer !== null) {
+                         this.fetchResultTimer.cancel();
+                         this.fetchResultTimer = null;
+                     }
                      this.showLoadingAjaxSpinner(false);
                      this.printExecutionStats();
     
-                     var result = YAHOO.lang.JSON.parse(res.serverResponse.responseText);
+                     var result;
+                     try {
+                         result = YAHOO.lang.JSON.parse(res.serverResponse.responseText);
+                     } catch (e) {
+                         // e.g. an error page of a proxy
+                         result = {
+                             status : { code : res.serverResponse.status, name : res.serverResponse.statusText, description : "" },
+                             message : res.serverResponse.responseText,
+                             callstack : ""
+                         };
+                     }
     
                      this.markJSError(result);
                      this.markFreemarkerError(result);
@@ -1468,7 +1543,10 @@ if (typeof String.prototype.startsWith != 'function') {
                      Dom.addClass(this.widgets.scriptOutput, 'jserror');
                      this.widgets.outputTabs.selectTab(0); // show console tab
     
-                     this.runLikeCrazy();
+                     // a rejected request would be rejected again
+                     if (res.serverResponse.status >= 500) {
+                         this.runLikeCrazy();
+                     }
                    }
                },
                scope: this
@@ -1514,12 +1592,15 @@ if (typeof String.prototype.startsWith != 'function') {
                                       this.showLoadingAjaxSpinner(false);
                                       
                                       if (YAHOO.lang.isArray(response.json.result)) {
+                                          this.rememberScriptHashes(response.json);
                                           this.printExecutionStats(response.json);
                                       } else {
                                           this.printExecutionStats();
                                       }
                                       
                                       if (YAHOO.lang.isArray(response.json.result)) {
+                                          this.appendDumpExportLinks(response.json.dumpExports);
+                                          this.appendTemplateExportLink(response.json.renderedTemplateExport);
                                           this.widgets.templateOutputHtml.innerHTML = response.json.renderedTemplate;
                                           this.widgets.templateOutputText.innerHTML = $html(response.json.renderedTemplate);
                                           this.widgets.codeMirrorJSON.setValue(formatter.formatJson(response.json.renderedTemplate,"  "));
@@ -1527,7 +1608,10 @@ if (typeof String.prototype.startsWith != 'function') {
                                           
                                           if (response.json.spaceNodeRef) {
                                               this.widgets.nodeField.value = response.json.spaceNodeRef;
-                                              this.widgets.pathField.innerHTML = response.json.spacePath;
+                                              // the path is only reported if the script changed the space
+                                              if (response.json.spacePath) {
+                                                  this.widgets.pathField.innerHTML = response.json.spacePath;
+                                              }
                                           }
                                       }
             
@@ -1557,6 +1641,25 @@ if (typeof String.prototype.startsWith != 'function') {
           }
       },
 
+      /**
+         * Remembers the hashes the repository reported for the script and
+         * template texts of the last execution, so repeated executions only
+         * send the hashes instead of the texts.
+         *
+         * @method rememberScriptHashes
+         */
+      rememberScriptHashes : function(result) {
+          if (this.executedTexts && result) {
+              this.scriptHashes = this.scriptHashes || {};
+              if (result.scriptHash) {
+                  this.scriptHashes.script = { text : this.executedTexts.script, hash : result.scriptHash };
+              }
+              if (result.templateHash) {
+                  this.scriptHashes.template = { text : this.executedTexts.template, hash : result.templateHash };
+              }
+          }
+      },
+
       runLikeCrazy : function() {
          var me = this;
          if (this.widgets.config.runlikecrazy.value > 0) {
@@ -1644,14 +1747,15 @@ if (typeof String.prototype.startsWith != 'function') {
           var serverCodePerf ="-";
 
           if(json){
-              scriptPerf = parseInt(json.scriptPerf || '0', 10);
-              fmPerf = parseInt(json.freemarkerPerf || '0', 10);
+              // server side timings are reported in milliseconds with microsecond precision
+              scriptPerf = Math.round(parseFloat(json.scriptPerf || '0'));
+              fmPerf = Math.round(parseFloat(json.freemarkerPerf || '0'));
 
               if(fmPerf === undefined){
                   fmPerf = 0;
               }
 
-              webscriptPerf = parseInt(json.webscriptPerf || '0', 10);
+              webscriptPerf = Math.round(parseFloat(json.webscriptPerf || '0'));
               serverCodePerf = webscriptPerf - scriptPerf - fmPerf;
 
               networkPerf = overallPerf - webscriptPerf;
@@ -1684,9 +1788,94 @@ if (typeof String.prototype.startsWith != 'function') {
 
           var text = overallEl+scriptEl+fmEl+codeEl+networkEl;
 
+          if(json && json.scriptCpu !== undefined){
+              text += YAHOO.lang.substitute(this.template, {
+                  name: this.msg("label.stats.jscript.cpu"),
+                  value: Math.round(parseFloat(json.scriptCpu)) + "ms"
+              });
+              text += YAHOO.lang.substitute(this.template, {
+                  name: this.msg("label.stats.jscript.allocated"),
+                  value: Math.round(json.scriptAllocated / 1024) + "KB"
+              });
+          }
+
+          if(json && json.templateCache){
+              text += YAHOO.lang.substitute(this.template, {
+                  name: this.msg("label.stats.freemarker.cache"),
+                  value: this.msg("label.stats.freemarker.cache.value",
+                          this.msg(json.templateCache.hit ? "label.stats.freemarker.cache.hit" : "label.stats.freemarker.cache.miss"),
+                          json.templateCache.hits, json.templateCache.misses)
+              });
+          }
+
+          if(json && json.perfSpans){
+              text += this.renderPerfSpans(json.perfSpans, 0);
+          }
+
+          if(json && json.repositoryCalls && json.repositoryCalls.length > 0){
+              text += YAHOO.lang.substitute(this.template, {
+                  name: this.msg("label.stats.repository.calls"),
+                  value: ""
+              });
+              for (var i = 0; i < json.repositoryCalls.length; i++) {
+                  text += YAHOO.lang.substitute(this.template, {
+                      name: "&nbsp;&nbsp;&nbsp;&nbsp;" + $html(json.repositoryCalls[i].method),
+                      value: json.repositoryCalls[i].time.toFixed(3) + "ms (" + json.repositoryCalls[i].calls + "x)"
+                  });
+              }
+          }
+
           this.widgets.statsModule.setBody(text);
       },
 
+      /**
+         * shows the line profile of the last execution as a heat gutter in the
+         * javascript editor.
+         */
+      showScriptProfile : function(scriptProfile) {
+          var cm = this.widgets.codeMirrorScript;
+          cm.clearGutter("jsconsole-profile-gutter");
+          if (!scriptProfile || scriptProfile.length === 0) {
+              return;
+          }
+
+          var maxTime = 0;
+          for (var i = 0; i < scriptProfile.length; i++) {
+              maxTime = Math.max(maxTime, scriptProfile[i].time);
+          }
+
+          for (var j = 0; j < scriptProfile.length; j++) {
+              // lines are 1-based and relative to the executed selection
+              var line = scriptProfile[j].line - 1 + (this.scriptLineOffset || 0);
+              if (line < cm.lineCount()) {
+                  var marker = document.createElement("div");
+                  marker.className = "jsconsole-profile-marker";
+                  marker.style.opacity = maxTime > 0 ? Math.max(0.15, scriptProfile[j].time / maxTime) : 1;
+                  marker.title = this.msg("label.profile.hits", scriptProfile[j].hits, scriptProfile[j].time.toFixed(3));
+                  cm.setGutterMarker(line, "jsconsole-profile-gutter", marker);
+              }
+          }
+      },
+
+      renderPerfSpans : function(span, depth) {
+          var indent = "";
+          for (var i = 0; i < depth; i++) {
+              indent += "&nbsp;&nbsp;&nbsp;&nbsp;";
+          }
+
+          var text = YAHOO.lang.substitute(this.template, {
+              name: indent + $html(span.name),
+              value: span.duration.toFixed(3) + "ms" + (span.cpu !== undefined ? " (CPU " + span.cpu.toFixed(3) + "ms)" : "")
+          });
+
+          if (span.children) {
+              for (var j = 0; j < span.children.length; j++) {
+                  text += this.renderPerfSpans(span.children[j], depth + 1);
+              }
+          }
+          return text;
+      },
+
       printDumpInfos : function(json) {
           var now  = new Date();
           var nowAsString = now.getFullYear() + "-"+ (parseInt(now.getMonth())+1) +"-"+now.getDate() + " " + now.getHours() +":"+now.getMinutes()+":"+now.getSeconds();
@@ -2113,8 +2302,8 @@ if (typeof String.prototype.startsWith != 'function') {
                        Alfresco.util.PopupManager.displayMessage({
                            text: this.msg("message.save.successful", filename)
                        });
-                       var listOfScripts = res.json.scripts;
-                       this.createMenuButtons(listOfScripts);
+                       // revalidates the cached listing, which the repository updated on commit
+                       this.loadRepoScriptList();
                    },
                    scope: this
                },
@@ -2133,9 +2322,8 @@ if (typeof String.prototype.startsWith != 'function') {
                        Alfresco.util.PopupManager.displayMessage({
                            text: this.msg("message.save.successful", filename)
                        });
-
-                       var listOfScripts = res.json.scripts;
-                       this.createMenuButtons(listOfScripts);
+                       // revalidates the cached listing, which the repository updated on commit
+                       this.loadRepoScriptList();
                    },
                    scope: this
                },
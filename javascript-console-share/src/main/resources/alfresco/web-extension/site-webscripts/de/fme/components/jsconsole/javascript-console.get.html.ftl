@@ -83,6 +83,14 @@
                                 <option value="1">${msg("value.nodelay")}</option>
                             </select>
                         </div>
+                        <div class="control">
+                            <span class="label">${msg("option.profile")}</span>
+                            <input id="${el}-profile" type="checkbox"/>
+                        </div>
+                        <div class="control">
+                            <span class="label">${msg("option.templateDownload")}</span>
+                            <input id="${el}-templateDownload" type="checkbox"/>
+                        </div>
                     </div> 
                 </div>
 		    </div>